@@ -0,0 +1,59 @@
+package com.chat.app.backend.common.cluster;
+
+/**
+ * A broker message relayed between backend nodes over the cluster bus.
+ * Carries the already serialized STOMP payload, so receiving nodes hand it to their local
+ * broker without converting it again.
+ */
+public class ClusterBrokerMessage {
+
+    private String originNodeId;
+    private String destination;
+    private String contentType;
+    private byte[] payload;
+
+    // Default constructor
+    public ClusterBrokerMessage() {
+    }
+
+    // Constructor with all fields
+    public ClusterBrokerMessage(String originNodeId, String destination, String contentType, byte[] payload) {
+        this.originNodeId = originNodeId;
+        this.destination = destination;
+        this.contentType = contentType;
+        this.payload = payload;
+    }
+
+    // Getters and Setters
+    public String getOriginNodeId() {
+        return originNodeId;
+    }
+
+    public void setOriginNodeId(String originNodeId) {
+        this.originNodeId = originNodeId;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+}
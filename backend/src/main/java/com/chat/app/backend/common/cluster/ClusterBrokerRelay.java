@@ -0,0 +1,159 @@
+package com.chat.app.backend.common.cluster;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import com.chat.app.backend.common.config.KafkaConfig;
+
+/**
+ * Relays broker messages between backend nodes over the cluster bus.
+ * Registered on the broker channel: every message this node publishes to a broker destination is
+ * also sent to the cluster bus if another node has a matching subscription (or, for /user
+ * destinations, a session of that user). Relayed messages are handed to the local broker of the
+ * receiving nodes, which delivers them to their own subscribers.
+ */
+@Component
+public class ClusterBrokerRelay implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterBrokerRelay.class);
+
+    // Marks messages that arrived from another node, so they are not relayed again
+    public static final String RELAYED_FROM_HEADER = "clusterRelayedFrom";
+
+    private static final String USER_DESTINATION_PREFIX = "/user/";
+
+    @Autowired
+    private ClusterSessionRegistry clusterSessionRegistry;
+
+    @Autowired
+    private KafkaTemplate<String, Object> objectKafkaTemplate;
+
+    // Lazy: this interceptor is registered while the broker (and the template) is being configured
+    @Lazy
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Relay outgoing broker messages that other nodes have subscribers for.
+     *
+     * @param message the message being sent to the broker
+     * @param channel the broker channel
+     * @return the message, unchanged
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!clusterSessionRegistry.isEnabled()) {
+            return message;
+        }
+
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || destination == null
+                || headers.containsKey(RELAYED_FROM_HEADER)
+                // Already resolved from a /user destination; the unresolved original was relayed
+                || headers.containsKey(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        if (!hasRemoteRecipients(destination)) {
+            return message;
+        }
+
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        try {
+            objectKafkaTemplate.send(KafkaConfig.CLUSTER_BUS_TOPIC, destination, new ClusterBrokerMessage(
+                    clusterSessionRegistry.getNodeId(), destination,
+                    contentType != null ? contentType.toString() : null, payload));
+        } catch (Exception e) {
+            logger.error("Failed to relay message for {} to the cluster: {}", destination, e.getMessage(), e);
+        }
+
+        return message;
+    }
+
+    /**
+     * Receive records from the cluster bus: node snapshots and relayed broker messages.
+     * Every node consumes in its own group, starting from the latest offset.
+     * Takes the consumer record rather than an Object payload, which the listener adapter would
+     * resolve to the record itself.
+     *
+     * @param record the record, whose value is a ClusterNodeSnapshot or a ClusterBrokerMessage
+     */
+    @KafkaListener(id = "clusterBusListener",
+            topics = KafkaConfig.CLUSTER_BUS_TOPIC,
+            groupId = "#{@clusterSessionRegistry.consumerGroupId}",
+            containerFactory = "clusterKafkaListenerContainerFactory",
+            autoStartup = "${app.cluster.enabled:false}")
+    public void listen(ConsumerRecord<String, Object> record) {
+        Object value = record.value();
+        if (value instanceof ClusterNodeSnapshot snapshot) {
+            clusterSessionRegistry.applySnapshot(snapshot);
+        } else if (value instanceof ClusterBrokerMessage relayed) {
+            deliverLocally(relayed);
+        } else {
+            logger.error("Received unknown record type on the cluster bus: {}",
+                    value == null ? "null" : value.getClass().getName());
+        }
+    }
+
+    /**
+     * Hand a message relayed by another node to the local broker.
+     *
+     * @param relayed the relayed message
+     */
+    private void deliverLocally(ClusterBrokerMessage relayed) {
+        if (clusterSessionRegistry.getNodeId().equals(relayed.getOriginNodeId()) || relayed.getDestination() == null) {
+            return;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(relayed.getDestination());
+        if (relayed.getContentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(relayed.getContentType()));
+        }
+        accessor.setHeader(RELAYED_FROM_HEADER, relayed.getOriginNodeId());
+        accessor.setLeaveMutable(true);
+
+        try {
+            messagingTemplate.send(relayed.getDestination(),
+                    MessageBuilder.createMessage(relayed.getPayload(), accessor.getMessageHeaders()));
+        } catch (Exception e) {
+            logger.error("Failed to deliver relayed message for {}: {}", relayed.getDestination(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check whether any other node should receive a message for a destination.
+     *
+     * @param destination the broker destination
+     * @return true if another node has a matching subscription or user session
+     */
+    private boolean hasRemoteRecipients(String destination) {
+        if (destination.startsWith(USER_DESTINATION_PREFIX)) {
+            int end = destination.indexOf('/', USER_DESTINATION_PREFIX.length());
+            String username = end > 0
+                    ? destination.substring(USER_DESTINATION_PREFIX.length(), end)
+                    : destination.substring(USER_DESTINATION_PREFIX.length());
+            return clusterSessionRegistry.isUsernameConnectedElsewhere(username);
+        }
+
+        return clusterSessionRegistry.hasRemoteSubscribers(destination);
+    }
+}
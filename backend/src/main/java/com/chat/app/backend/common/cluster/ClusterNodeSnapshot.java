@@ -0,0 +1,63 @@
+package com.chat.app.backend.common.cluster;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The WebSocket state of one backend node, published on the cluster bus.
+ * Lists the users with open sessions on the node and the broker destinations its sessions
+ * are subscribed to. A node that shuts down publishes a final snapshot with leaving set.
+ */
+public class ClusterNodeSnapshot {
+
+    private String nodeId;
+    private Set<Long> userIds = new HashSet<>();
+    private Set<String> usernames = new HashSet<>();
+    private Set<String> destinations = new HashSet<>();
+    private boolean leaving;
+
+    // Default constructor
+    public ClusterNodeSnapshot() {
+    }
+
+    // Getters and Setters
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Set<Long> getUserIds() {
+        return userIds;
+    }
+
+    public void setUserIds(Set<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public Set<String> getUsernames() {
+        return usernames;
+    }
+
+    public void setUsernames(Set<String> usernames) {
+        this.usernames = usernames;
+    }
+
+    public Set<String> getDestinations() {
+        return destinations;
+    }
+
+    public void setDestinations(Set<String> destinations) {
+        this.destinations = destinations;
+    }
+
+    public boolean isLeaving() {
+        return leaving;
+    }
+
+    public void setLeaving(boolean leaving) {
+        this.leaving = leaving;
+    }
+}
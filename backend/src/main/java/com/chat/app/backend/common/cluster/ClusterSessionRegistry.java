@@ -0,0 +1,372 @@
+package com.chat.app.backend.common.cluster;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import com.chat.app.backend.common.config.KafkaConfig;
+import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cluster-wide registry of WebSocket users and subscriptions.
+ * Tracks the users and broker destinations of this node's sessions and exchanges them with the
+ * other nodes as snapshots on the cluster bus: immediately (coalesced) when the local set changes,
+ * and as a periodic heartbeat otherwise. Nodes that stop sending heartbeats are dropped.
+ * Everything is a no-op unless {@code app.cluster.enabled} is set.
+ */
+@Service
+public class ClusterSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterSessionRegistry.class);
+
+    private static final String USER_DESTINATION_PREFIX = "/user/";
+
+    @Autowired
+    private KafkaTemplate<String, Object> objectKafkaTemplate;
+
+    @Value("${app.cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.cluster.heartbeat-interval-ms:5000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${app.cluster.node-timeout-ms:15000}")
+    private long nodeTimeoutMs;
+
+    private String nodeId;
+
+    // Local state: session ID -> session, and reference counts of what the sessions cover
+    private final ConcurrentHashMap<String, LocalSession> localSessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Integer> localUserIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> localUsernames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> localDestinations = new ConcurrentHashMap<>();
+
+    // Latest snapshot of every other live node
+    private final ConcurrentHashMap<String, RemoteNode> remoteNodes = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile long lastPublishMillis;
+
+    /**
+     * Resolve this node's ID.
+     */
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                ? UUID.randomUUID().toString()
+                : configuredNodeId;
+        if (enabled) {
+            logger.info("Cluster mode enabled, node ID {}", nodeId);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Get the consumer group of this node on the cluster bus. Every node uses its own group,
+     * so every node receives every record.
+     *
+     * @return the consumer group ID
+     */
+    public String getConsumerGroupId() {
+        return "chat-cluster-" + nodeId;
+    }
+
+    /**
+     * Check whether a user has an open session on another node.
+     *
+     * @param userId the ID of the user
+     * @return true if another live node reports a session for the user
+     */
+    public boolean isUserConnectedElsewhere(Long userId) {
+        for (RemoteNode node : remoteNodes.values()) {
+            if (node.snapshot.getUserIds().contains(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a user, by name, has an open session on another node.
+     *
+     * @param username the username
+     * @return true if another live node reports a session for the user
+     */
+    public boolean isUsernameConnectedElsewhere(String username) {
+        for (RemoteNode node : remoteNodes.values()) {
+            if (node.snapshot.getUsernames().contains(username)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether any other node has a session subscribed to a broker destination.
+     *
+     * @param destination the broker destination
+     * @return true if another live node reports a subscription to it
+     */
+    public boolean hasRemoteSubscribers(String destination) {
+        for (RemoteNode node : remoteNodes.values()) {
+            if (node.snapshot.getDestinations().contains(destination)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record a newly connected local session.
+     *
+     * @param event the session connected event
+     */
+    @EventListener
+    public void handleSessionConnected(SessionConnectedEvent event) {
+        UserDetailsImpl userDetails = userDetailsOf(event.getUser());
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (!enabled || userDetails == null || sessionId == null) {
+            return;
+        }
+
+        LocalSession session = new LocalSession(userDetails.getId(), userDetails.getUsername());
+        if (localSessions.putIfAbsent(sessionId, session) == null) {
+            increment(localUserIds, session.userId);
+            increment(localUsernames, session.username);
+        }
+    }
+
+    /**
+     * Record a local subscription to a broker destination.
+     *
+     * @param event the session subscribe event
+     */
+    @EventListener
+    public void handleSessionSubscribe(SessionSubscribeEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        LocalSession session = accessor.getSessionId() != null ? localSessions.get(accessor.getSessionId()) : null;
+        // User destinations are routed by username, not by subscription
+        if (session == null || destination == null || accessor.getSubscriptionId() == null
+                || destination.startsWith(USER_DESTINATION_PREFIX)) {
+            return;
+        }
+
+        if (session.subscriptions.put(accessor.getSubscriptionId(), destination) == null) {
+            increment(localDestinations, destination);
+        }
+    }
+
+    /**
+     * Remove a local subscription.
+     *
+     * @param event the session unsubscribe event
+     */
+    @EventListener
+    public void handleSessionUnsubscribe(SessionUnsubscribeEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        LocalSession session = accessor.getSessionId() != null ? localSessions.get(accessor.getSessionId()) : null;
+        if (session == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+
+        String destination = session.subscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null) {
+            decrement(localDestinations, destination);
+        }
+    }
+
+    /**
+     * Remove a closed local session and its subscriptions.
+     *
+     * @param event the session disconnect event
+     */
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        LocalSession session = localSessions.remove(event.getSessionId());
+        if (session == null) {
+            return;
+        }
+
+        for (String destination : session.subscriptions.values()) {
+            decrement(localDestinations, destination);
+        }
+        decrement(localUserIds, session.userId);
+        decrement(localUsernames, session.username);
+    }
+
+    /**
+     * Apply a snapshot received from the cluster bus.
+     *
+     * @param snapshot the snapshot of another node
+     */
+    public void applySnapshot(ClusterNodeSnapshot snapshot) {
+        if (!enabled || snapshot.getNodeId() == null || snapshot.getNodeId().equals(nodeId)) {
+            return;
+        }
+
+        if (snapshot.isLeaving()) {
+            if (remoteNodes.remove(snapshot.getNodeId()) != null) {
+                logger.info("Cluster node {} left", snapshot.getNodeId());
+            }
+            return;
+        }
+
+        RemoteNode previous = remoteNodes.put(snapshot.getNodeId(), new RemoteNode(snapshot, System.currentTimeMillis()));
+        if (previous == null) {
+            logger.info("Cluster node {} joined", snapshot.getNodeId());
+            // Let the new node learn about this one without waiting for the next heartbeat
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Publish this node's snapshot if it changed or a heartbeat is due, and drop nodes
+     * whose heartbeats stopped.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.snapshot-interval-ms:200}")
+    public void publishSnapshot() {
+        if (!enabled) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        remoteNodes.entrySet().removeIf(entry -> {
+            boolean expired = now - entry.getValue().lastSeenMillis > nodeTimeoutMs;
+            if (expired) {
+                logger.warn("Cluster node {} timed out", entry.getKey());
+            }
+            return expired;
+        });
+
+        if (!dirty.getAndSet(false) && now - lastPublishMillis < heartbeatIntervalMs) {
+            return;
+        }
+
+        publish(buildSnapshot(false));
+        lastPublishMillis = now;
+    }
+
+    /**
+     * Tell the other nodes this node is going away.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            publish(buildSnapshot(true));
+        }
+    }
+
+    private ClusterNodeSnapshot buildSnapshot(boolean leaving) {
+        ClusterNodeSnapshot snapshot = new ClusterNodeSnapshot();
+        snapshot.setNodeId(nodeId);
+        snapshot.setLeaving(leaving);
+        if (!leaving) {
+            snapshot.getUserIds().addAll(localUserIds.keySet());
+            snapshot.getUsernames().addAll(localUsernames.keySet());
+            snapshot.getDestinations().addAll(localDestinations.keySet());
+        }
+        return snapshot;
+    }
+
+    private void publish(ClusterNodeSnapshot snapshot) {
+        try {
+            objectKafkaTemplate.send(KafkaConfig.CLUSTER_BUS_TOPIC, nodeId, snapshot);
+        } catch (Exception e) {
+            logger.error("Failed to publish cluster snapshot: {}", e.getMessage(), e);
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Add a reference; marks the snapshot dirty when the key appears.
+     */
+    private <K> void increment(ConcurrentHashMap<K, Integer> counts, K key) {
+        if (counts.merge(key, 1, Integer::sum) == 1) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Drop a reference; marks the snapshot dirty when the key disappears.
+     */
+    private <K> void decrement(ConcurrentHashMap<K, Integer> counts, K key) {
+        Integer remaining = counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            dirty.set(true);
+        }
+    }
+
+    private UserDetailsImpl userDetailsOf(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return userDetails;
+        }
+        return null;
+    }
+
+    /**
+     * A WebSocket session on this node and its subscriptions (subscription ID -> destination).
+     */
+    private static class LocalSession {
+        private final Long userId;
+        private final String username;
+        private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+        LocalSession(Long userId, String username) {
+            this.userId = userId;
+            this.username = username;
+        }
+    }
+
+    /**
+     * The latest snapshot of another node and when it was received.
+     */
+    private static class RemoteNode {
+        private final ClusterNodeSnapshot snapshot;
+        private final long lastSeenMillis;
+
+        RemoteNode(ClusterNodeSnapshot snapshot, long lastSeenMillis) {
+            this.snapshot = snapshot;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+}
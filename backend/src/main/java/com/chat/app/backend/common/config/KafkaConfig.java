@@ -7,12 +7,16 @@ import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
@@ -20,10 +24,12 @@ import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
-import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.event.ChatEvent;
+import com.chat.app.backend.feature.chat.event.ChatEventDeserializer;
 
 /**
  * Kafka Configuration.
@@ -33,12 +39,53 @@ import com.chat.app.backend.feature.chat.dto.MessageDTO;
 @EnableKafka
 public class KafkaConfig {
 
+    /**
+     * Topic carrying chat message events. Records are keyed by conversation ID so that all
+     * events of one conversation land on the same partition and are consumed in order.
+     * Values are {@link ChatEvent} envelopes in the binary format of
+     * {@link com.chat.app.backend.feature.chat.event.ChatEventCodec}.
+     */
+    public static final String CHAT_MESSAGES_TOPIC = "chat-messages";
+
+    /**
+     * Topic connecting backend nodes in cluster mode: node snapshots and relayed broker messages.
+     * Every node consumes it in its own consumer group.
+     */
+    public static final String CLUSTER_BUS_TOPIC = "chat-cluster-bus";
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${app.kafka.chat-messages.partitions:12}")
+    private int chatMessagesPartitions;
+
+    @Value("${app.kafka.chat-messages.replicas:1}")
+    private short chatMessagesReplicas;
+
+    @Value("${app.kafka.chat-messages.listener-concurrency:3}")
+    private int listenerConcurrency;
+
+    @Value("${app.kafka.chat-messages.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${app.kafka.chat-messages.compression-type:lz4}")
+    private String chatMessagesCompressionType;
+
+    @Value("${app.kafka.chat-messages.linger-ms:5}")
+    private int chatMessagesLingerMs;
+
+    @Value("${app.kafka.chat-messages.batch-size-bytes:65536}")
+    private int chatMessagesBatchSizeBytes;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.cluster.bus-retention-ms:600000}")
+    private long clusterBusRetentionMs;
+
     /**
      * Kafka admin client configuration.
      *
@@ -53,36 +100,62 @@ public class KafkaConfig {
 
     /**
      * Create the chat messages topic.
+     * KafkaAdmin adds partitions to an existing topic if the configured count is higher.
      *
      * @return the chat messages topic configuration
      */
     @Bean
     public NewTopic chatMessagesTopic() {
-        return new NewTopic("chat-messages", 1, (short) 1);
+        return TopicBuilder.name(CHAT_MESSAGES_TOPIC)
+                .partitions(chatMessagesPartitions)
+                .replicas(chatMessagesReplicas)
+                .build();
+    }
+
+    /**
+     * Create the cluster bus topic. A single partition keeps snapshots and relayed messages
+     * in publish order; records only matter while fresh, so retention is short.
+     *
+     * @return the cluster bus topic configuration
+     */
+    @Bean
+    public NewTopic clusterBusTopic() {
+        return TopicBuilder.name(CLUSTER_BUS_TOPIC)
+                .partitions(1)
+                .replicas(chatMessagesReplicas)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(clusterBusRetentionMs))
+                .build();
     }
 
     /**
-     * Kafka producer factory configuration for MessageDTO.
+     * Kafka producer factory configuration for chat events.
+     * Values are events already encoded with
+     * {@link com.chat.app.backend.feature.chat.event.ChatEventCodec}, so an event encoded once
+     * when it is written to the outbox is sent exactly as stored.
+     * The producer lingers briefly so records headed for the same partition go out as one batch,
+     * and compresses each batch as a whole; events of one conversation share most of their bytes,
+     * so batch compression shrinks them much further than compressing records one by one would.
      *
-     * @return the Kafka producer factory for MessageDTO
+     * @return the Kafka producer factory for chat events
      */
     @Bean
-    public ProducerFactory<String, MessageDTO> messageDtoProducerFactory() {
+    public ProducerFactory<String, byte[]> chatEventProducerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, chatMessagesCompressionType);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, chatMessagesLingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, chatMessagesBatchSizeBytes);
+        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), new ByteArraySerializer());
     }
 
     /**
-     * Kafka template configuration for MessageDTO.
+     * Kafka template configuration for chat events.
      *
-     * @return the Kafka template for MessageDTO
+     * @return the Kafka template for chat events
      */
-    @Bean
-    public KafkaTemplate<String, MessageDTO> kafkaTemplate() {
-        return new KafkaTemplate<>(messageDtoProducerFactory());
+    @Bean(name = "chatEventKafkaTemplate")
+    public KafkaTemplate<String, byte[]> chatEventKafkaTemplate() {
+        return new KafkaTemplate<>(chatEventProducerFactory());
     }
 
     /**
@@ -111,31 +184,125 @@ public class KafkaConfig {
 
     /**
      * Kafka consumer factory configuration.
+     * A record that cannot be decoded is handed on with a null value and skipped by the
+     * listener, rather than failing every poll that contains it.
      *
      * @return the Kafka consumer factory
      */
     @Bean
-    public ConsumerFactory<String, MessageDTO> consumerFactory() {
+    public ConsumerFactory<String, ChatEvent> consumerFactory() {
+        return new DefaultKafkaConsumerFactory<>(consumerProps(), new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new ChatEventDeserializer()));
+    }
+
+    /**
+     * Kafka consumer factory configuration for the batch listener.
+     * Same as {@link #consumerFactory()}, with the poll size bounded so one batch stays
+     * within a single bulk query and update.
+     *
+     * @return the Kafka consumer factory for batch consumption
+     */
+    @Bean
+    public ConsumerFactory<String, ChatEvent> batchConsumerFactory() {
+        Map<String, Object> props = consumerProps();
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new ChatEventDeserializer()));
+    }
+
+    /**
+     * Common consumer properties.
+     *
+     * @return a new mutable map of consumer properties
+     */
+    private Map<String, Object> consumerProps() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.chat.app.backend.feature.chat.dto");
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(),
-                new JsonDeserializer<>(MessageDTO.class, false));
+        return props;
     }
 
     /**
      * Kafka listener container factory configuration.
+     * Runs one consumer thread per unit of concurrency. Each partition is owned by exactly one
+     * thread (and, across instances in the same consumer group, by exactly one backend), so
+     * per-conversation ordering is preserved while different conversations are processed in parallel.
+     * Concurrency beyond the partition count leaves threads idle.
      *
      * @return the Kafka listener container factory
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, MessageDTO> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, MessageDTO> factory =
+    public ConcurrentKafkaListenerContainerFactory<String, ChatEvent> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ChatEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(listenerConcurrency);
+        configureListenerExecutor(factory, "kafka-listener-");
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Kafka listener container factory for batch consumption.
+     * Delivers each poll as one list so a listener can process it with bulk queries.
+     * Partition ownership and concurrency are the same as for the record listener.
+     *
+     * @return the batch Kafka listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ChatEvent> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ChatEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setConcurrency(listenerConcurrency);
+        factory.setBatchListener(true);
+        configureListenerExecutor(factory, "kafka-batch-listener-");
+        return factory;
+    }
+
+    /**
+     * Kafka consumer factory for the cluster bus.
+     * The consumer group is set per node on the listener; a node that (re)joins only cares
+     * about records published from now on.
+     *
+     * @return the Kafka consumer factory for the cluster bus
+     */
+    @Bean
+    public ConsumerFactory<String, Object> clusterConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        JsonDeserializer<Object> valueDeserializer = new JsonDeserializer<>();
+        valueDeserializer.addTrustedPackages("com.chat.app.backend.common.cluster");
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), valueDeserializer);
+    }
+
+    /**
+     * Kafka listener container factory for the cluster bus.
+     *
+     * @return the cluster bus Kafka listener container factory
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> clusterKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(clusterConsumerFactory());
+        configureListenerExecutor(factory, "kafka-cluster-listener-");
+        return factory;
+    }
+
+    /**
+     * Run a factory's consumer threads as virtual threads when virtual-thread mode is enabled.
+     * Listener work blocks on the database, so this frees the platform threads while it waits.
+     *
+     * @param factory the listener container factory
+     * @param threadNamePrefix the prefix for the consumer thread names
+     */
+    private void configureListenerExecutor(ConcurrentKafkaListenerContainerFactory<?, ?> factory,
+                                           String threadNamePrefix) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package com.chat.app.backend.common.config;
 
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -19,7 +25,11 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
+import com.chat.app.backend.common.cluster.ClusterBrokerRelay;
+import com.chat.app.backend.common.websocket.CompactFrameInterceptor;
+import com.chat.app.backend.common.websocket.CompactPayloadMessageConverter;
 import com.chat.app.backend.feature.auth.websocket.WebSocketAuthChannelInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * WebSocket Configuration.
@@ -32,9 +42,27 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Autowired
     private WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor;
 
+    @Autowired
+    private ClusterBrokerRelay clusterBrokerRelay;
+
+    @Autowired
+    private CompactFrameInterceptor compactFrameInterceptor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private Environment env;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.websocket.channel-pool-size:16}")
+    private int channelPoolSize;
+
+    @Value("${app.scheduling.pool-size:4}")
+    private int schedulingPoolSize;
+
     /**
      * Configure message broker options.
      *
@@ -42,6 +70,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
+        // Frames to a session stay in publish order even when the outbound channel runs them on several threads
+        config.setPreservePublishOrder(true);
+
         // Enable a simple in-memory message broker to carry messages back to the client on destinations prefixed with /topic
         config.enableSimpleBroker("/topic", "/queue")
               .setHeartbeatValue(new long[]{10000, 10000}) // 10 second heartbeat
@@ -52,6 +83,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
         // Set prefix for user-specific messages
         config.setUserDestinationPrefix("/user");
+
+        // Relay broker messages to other nodes when running as a cluster
+        config.configureBrokerChannel().interceptors(clusterBrokerRelay);
     }
 
     /**
@@ -67,15 +101,38 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     }
 
     /**
-     * Create a task scheduler for heartbeats.
+     * Configure the converters for payloads sent through the messaging template.
+     * The compact-capable JSON converter goes first; strings and byte arrays fall through
+     * to the converters registered after it.
+     *
+     * @param messageConverters the converters to add to
+     * @return true to keep the default converters as well
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(0, new CompactPayloadMessageConverter(objectMapper));
+        return true;
+    }
+
+    /**
+     * Create the task scheduler for broker heartbeats and {@code @Scheduled} jobs.
+     * In virtual-thread mode every run gets its own virtual thread, so a job blocked on the
+     * database cannot delay heartbeats or other jobs.
      *
      * @return the task scheduler
      */
     @Bean
-    public ThreadPoolTaskScheduler taskScheduler() {
+    public TaskScheduler taskScheduler() {
+        if (virtualThreads) {
+            SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setVirtualThreads(true);
+            scheduler.setThreadNamePrefix("scheduling-");
+            return scheduler;
+        }
+
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(2);
-        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        scheduler.setPoolSize(schedulingPoolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
         scheduler.initialize();
         return scheduler;
     }
@@ -87,6 +144,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // Frames from a session are handled in the order they were received
+        registry.setPreserveReceiveOrder(true);
+
         // Register the "/ws" endpoint, enabling SockJS fallback options
         // Get allowed origins from application properties
         String allowedOriginsStr = env.getProperty("app.cors.allowed-origins");
@@ -143,7 +203,39 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        // Add authentication channel interceptor
-        registration.interceptors(webSocketAuthChannelInterceptor);
+        // Add authentication channel interceptor, then record the frame encoding the client accepts
+        registration.interceptors(webSocketAuthChannelInterceptor, compactFrameInterceptor);
+        configureChannelExecutor(registration, "ws-inbound-");
+    }
+
+    /**
+     * Configure the executor that writes frames to client sessions.
+     *
+     * @param registration the ChannelRegistration to configure
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Re-encode frames for sessions that negotiated compact frames
+        registration.interceptors(compactFrameInterceptor);
+        configureChannelExecutor(registration, "ws-outbound-");
+    }
+
+    /**
+     * Run a client channel on virtual threads, or on a bounded pool of platform threads.
+     * Inbound handlers block on JDBC and Kafka, so with virtual threads the number of frames
+     * in flight is no longer capped by the pool size.
+     *
+     * @param registration the ChannelRegistration to configure
+     * @param threadNamePrefix the prefix for the channel's thread names
+     */
+    private void configureChannelExecutor(ChannelRegistration registration, String threadNamePrefix) {
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor(threadNamePrefix));
+        } else {
+            registration.taskExecutor()
+                    .corePoolSize(channelPoolSize)
+                    .maxPoolSize(channelPoolSize)
+                    .keepAliveSeconds(60);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.chat.app.backend.common.monitoring;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier thread.
+ * A virtual thread that parks inside a synchronized block or a native frame keeps its carrier
+ * busy; enough of those and virtual-thread mode degrades to a small fixed pool. The monitor
+ * listens for the JFR jdk.VirtualThreadPinned event in-process, logs the first occurrence of
+ * each pinning site and periodically logs how often each site pinned.
+ * Only active when {@code spring.threads.virtual.enabled} is set.
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    // Frames of our own code identify the pinning site better than the JDK frame that parked
+    private static final String APPLICATION_PACKAGE = "com.chat.app.";
+
+    private static final int MAX_LOGGED_FRAMES = 12;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.threads.pinning-diagnostics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.threads.pinning-diagnostics.threshold-ms:20}")
+    private long thresholdMs;
+
+    private RecordingStream stream;
+
+    // Pinning site -> occurrences since the last report
+    private final Map<String, AtomicLong> pinnedBySite = new ConcurrentHashMap<>();
+
+    /**
+     * Start listening for pinning events.
+     */
+    @PostConstruct
+    public void start() {
+        if (!virtualThreads || !enabled) {
+            return;
+        }
+
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+            logger.info("Virtual thread pinning diagnostics enabled (threshold {} ms)", thresholdMs);
+        } catch (Exception e) {
+            // JFR may be unavailable in some runtimes; the application works without it
+            logger.warn("Could not start virtual thread pinning diagnostics: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    /**
+     * Stop listening for pinning events.
+     */
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * Log pinning counts per site and reset them.
+     */
+    @Scheduled(fixedRateString = "${app.threads.pinning-diagnostics.report-interval-ms:60000}")
+    public void reportPinning() {
+        if (stream == null || pinnedBySite.isEmpty()) {
+            return;
+        }
+
+        pinnedBySite.forEach((site, count) -> {
+            long pinned = count.getAndSet(0);
+            if (pinned > 0) {
+                logger.warn("Virtual thread pinned {} times at {}", pinned, site);
+            }
+        });
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = siteOf(event);
+        pinnedBySite.computeIfAbsent(site, k -> {
+            // Full stack trace only the first time a site shows up
+            logger.warn("Virtual thread pinned for {} ms at {}:\n{}",
+                    event.getDuration().toMillis(), site, stackTraceOf(event));
+            return new AtomicLong();
+        }).incrementAndGet();
+    }
+
+    /**
+     * Identify a pinning event by its innermost application frame, or its top frame if there is none.
+     */
+    private String siteOf(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                return describe(frame);
+            }
+        }
+        return describe(event.getStackTrace().getFrames().get(0));
+    }
+
+    private String stackTraceOf(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "\t(no stack trace)";
+        }
+
+        StringBuilder trace = new StringBuilder();
+        int logged = 0;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (logged++ == MAX_LOGGED_FRAMES) {
+                trace.append("\t...");
+                break;
+            }
+            trace.append("\tat ").append(describe(frame)).append('\n');
+        }
+        return trace.toString();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line " + frame.getLineNumber() + ")";
+    }
+}
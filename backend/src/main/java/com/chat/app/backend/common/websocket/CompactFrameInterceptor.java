@@ -0,0 +1,161 @@
+package com.chat.app.backend.common.websocket;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * Negotiates and applies the compact frame encoding per WebSocket session.
+ * A client opts in by listing {@link CompactPayloadMessageConverter#COMPACT_CONTENT_TYPE} in the
+ * {@value #ACCEPT_CONTENT_TYPE_HEADER} header of its CONNECT frame. On the client outbound
+ * channel, JSON frames to such a session are swapped for the message's compact rendition, and
+ * their content-type changes accordingly. Frames without a rendition (plain strings, messages
+ * relayed from another node) stay JSON, so clients pick the decoder by each frame's content-type.
+ * <p>
+ * Registered on both client channels. Also counts the bytes of the frames it sees, so the two
+ * encodings can be compared on live traffic.
+ */
+@Component
+public class CompactFrameInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactFrameInterceptor.class);
+
+    /**
+     * CONNECT header listing the content types the client can decode, comma-separated.
+     */
+    public static final String ACCEPT_CONTENT_TYPE_HEADER = "accept-content-type";
+
+    @Value("${app.websocket.compact-frames.enabled:true}")
+    private boolean enabled;
+
+    // Sessions that negotiated compact frames
+    private final Set<String> compactSessions = ConcurrentHashMap.newKeySet();
+
+    // Counters, reset every time they are reported
+    private final AtomicLong jsonFrames = new AtomicLong();
+    private final AtomicLong jsonBytes = new AtomicLong();
+    private final AtomicLong compactFrames = new AtomicLong();
+    private final AtomicLong compactBytes = new AtomicLong();
+    // What the compact frames would have taken as JSON
+    private final AtomicLong compactJsonBytes = new AtomicLong();
+
+    /**
+     * Record the encoding negotiated at CONNECT, and re-encode outgoing frames for compact sessions.
+     *
+     * @param message the message being sent
+     * @param channel the channel the message is being sent through
+     * @return the message, or its compact replacement
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
+
+        if (messageType == SimpMessageType.CONNECT) {
+            negotiate(message);
+            return message;
+        }
+
+        if (messageType != SimpMessageType.MESSAGE || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sessionId == null || !compactSessions.contains(sessionId)
+                || !(headers.get(CompactPayloadMessageConverter.COMPACT_RENDITION_HEADER)
+                        instanceof CompactPayloadMessageConverter.Rendition rendition)) {
+            jsonFrames.incrementAndGet();
+            jsonBytes.addAndGet(payload.length);
+            return message;
+        }
+
+        byte[] compact;
+        try {
+            compact = rendition.getBytes();
+        } catch (Exception e) {
+            logger.warn("Failed to encode compact frame for session {}, sending JSON: {}", sessionId, e.getMessage());
+            return message;
+        }
+
+        compactFrames.incrementAndGet();
+        compactBytes.addAndGet(compact.length);
+        compactJsonBytes.addAndGet(payload.length);
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(CompactPayloadMessageConverter.COMPACT_CONTENT_TYPE);
+        return MessageBuilder.createMessage(compact, accessor.getMessageHeaders());
+    }
+
+    private void negotiate(Message<?> message) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (!enabled || accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return;
+        }
+
+        String accepted = accessor.getFirstNativeHeader(ACCEPT_CONTENT_TYPE_HEADER);
+        if (accepted == null || accessor.getSessionId() == null) {
+            return;
+        }
+        for (String contentType : accepted.split(",")) {
+            try {
+                if (CompactPayloadMessageConverter.COMPACT_CONTENT_TYPE.equalsTypeAndSubtype(
+                        MimeType.valueOf(contentType.trim()))) {
+                    compactSessions.add(accessor.getSessionId());
+                    logger.debug("Session {} negotiated compact frames", accessor.getSessionId());
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                // Ignore malformed entries
+            }
+        }
+    }
+
+    /**
+     * Forget the encoding of a closed session.
+     *
+     * @param event the session disconnect event
+     */
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        compactSessions.remove(event.getSessionId());
+    }
+
+    /**
+     * Periodically log frame counts and average frame sizes per encoding.
+     */
+    @Scheduled(fixedRateString = "${app.websocket.compact-frames.report-interval-ms:60000}")
+    public void reportStats() {
+        long json = jsonFrames.getAndSet(0);
+        long jsonTotal = jsonBytes.getAndSet(0);
+        long compact = compactFrames.getAndSet(0);
+        long compactTotal = compactBytes.getAndSet(0);
+        long compactAsJson = compactJsonBytes.getAndSet(0);
+        if (json > 0 || compact > 0) {
+            logger.info("STOMP frames: {} JSON at {} bytes/frame, {} compact at {} bytes/frame "
+                            + "({}% of their JSON size), {} compact sessions",
+                    json, json > 0 ? jsonTotal / json : 0,
+                    compact, compact > 0 ? compactTotal / compact : 0,
+                    compactAsJson > 0 ? compactTotal * 100 / compactAsJson : 0,
+                    compactSessions.size());
+        }
+    }
+}
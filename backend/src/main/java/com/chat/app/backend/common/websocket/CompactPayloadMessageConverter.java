@@ -0,0 +1,118 @@
+package com.chat.app.backend.common.websocket;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * JSON message converter for broker messages that also offers a compact rendition of each payload.
+ * The JSON payload is what every session receives by default. The compact rendition travels with
+ * the message in the {@link #COMPACT_RENDITION_HEADER} header and is encoded on first use, once per
+ * message, for sessions that negotiated {@link #COMPACT_CONTENT_TYPE} (see {@link CompactFrameInterceptor}).
+ * <p>
+ * The compact form is JSON with the same field names, minus null and default values (empty
+ * collections, zero, false), and with timestamps as epoch milliseconds instead of ISO strings.
+ */
+public class CompactPayloadMessageConverter extends MappingJackson2MessageConverter {
+
+    /**
+     * Content type of compact frames.
+     */
+    public static final MimeType COMPACT_CONTENT_TYPE = MimeType.valueOf("application/vnd.chat.compact+json");
+
+    /**
+     * Header holding the {@link Rendition} of a converted payload. Not a native header, so it is
+     * never written to the wire.
+     */
+    public static final String COMPACT_RENDITION_HEADER = "chatCompactRendition";
+
+    private final ObjectWriter compactWriter;
+
+    /**
+     * @param objectMapper the application's object mapper, used as is for JSON frames
+     */
+    public CompactPayloadMessageConverter(ObjectMapper objectMapper) {
+        setObjectMapper(objectMapper);
+
+        SimpleModule epochMillis = new SimpleModule("CompactFrameTimestamps");
+        epochMillis.addSerializer(LocalDateTime.class, new EpochMillisSerializer());
+        this.compactWriter = objectMapper.copy()
+                .setDefaultPropertyInclusion(JsonInclude.Include.NON_DEFAULT)
+                .registerModule(epochMillis)
+                .writer();
+    }
+
+    /**
+     * Strings and byte arrays are left to the other converters.
+     */
+    @Override
+    protected boolean canConvertTo(Object payload, MessageHeaders headers) {
+        return !(payload instanceof String || payload instanceof byte[]) && super.canConvertTo(payload, headers);
+    }
+
+    /**
+     * Convert a payload to JSON and attach its compact rendition to the message headers.
+     * Messaging template sends pass mutable headers, which become the headers of the message;
+     * the rendition is only attached to those.
+     */
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        MessageHeaderAccessor accessor = headers != null
+                ? MessageHeaderAccessor.getAccessor(headers, MessageHeaderAccessor.class) : null;
+        if (accessor != null && accessor.isMutable()) {
+            accessor.setHeader(COMPACT_RENDITION_HEADER, new Rendition(payload, compactWriter));
+        }
+        return super.convertToInternal(payload, headers, conversionHint);
+    }
+
+    /**
+     * Compact form of one payload, encoded on first use and shared by every session the
+     * message is delivered to.
+     */
+    public static final class Rendition {
+        private final Object payload;
+        private final ObjectWriter writer;
+        private byte[] bytes;
+
+        Rendition(Object payload, ObjectWriter writer) {
+            this.payload = payload;
+            this.writer = writer;
+        }
+
+        /**
+         * @return the compact encoding of the payload; must not be modified
+         * @throws JsonProcessingException if the payload cannot be encoded
+         */
+        public synchronized byte[] getBytes() throws JsonProcessingException {
+            if (bytes == null) {
+                bytes = writer.writeValueAsBytes(payload);
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Writes a wall-clock time of this server's zone as epoch milliseconds.
+     */
+    private static class EpochMillisSerializer extends JsonSerializer<LocalDateTime> {
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeNumber(value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+}
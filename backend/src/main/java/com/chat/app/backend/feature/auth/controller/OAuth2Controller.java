@@ -7,6 +7,7 @@ import com.chat.app.backend.feature.auth.dto.TokenVerificationRequest;
 import com.chat.app.backend.feature.auth.security.JwtUtils;
 import com.chat.app.backend.feature.user.model.User;
 import com.chat.app.backend.feature.user.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -133,8 +134,9 @@ public class OAuth2Controller {
         logger.debug("Verifying token: {}", request.getToken().substring(0, Math.min(10, request.getToken().length())) + "...");
 
         try {
-            // First, validate the token format and signature
-            if (!jwtUtils.validateJwtToken(request.getToken())) {
+            // Validate the token format and signature, parsing it once
+            Claims claims = jwtUtils.parseAndValidate(request.getToken());
+            if (claims == null) {
                 logger.warn("Invalid token format or signature");
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("success", false);
@@ -143,7 +145,7 @@ public class OAuth2Controller {
             }
 
             // Extract username from token
-            String username = jwtUtils.getUserNameFromJwtToken(request.getToken());
+            String username = claims.getSubject();
 
             if (username != null) {
                 // Get user details
@@ -1,6 +1,7 @@
 package com.chat.app.backend.feature.auth.oauth2;
 
 import com.chat.app.backend.feature.auth.security.JwtUtils;
+import com.chat.app.backend.feature.auth.security.UserDetailsServiceImpl;
 import com.chat.app.backend.feature.user.model.Role;
 import com.chat.app.backend.feature.user.model.User;
 import com.chat.app.backend.feature.user.repository.RoleRepository;
@@ -44,6 +45,9 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
                                         Authentication authentication) throws IOException, ServletException {
@@ -99,7 +103,9 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
             User existingUser = userOptional.get();
             existingUser.setFullName(name);
             existingUser.setUpdatedAt(LocalDateTime.now());
-            return userRepository.save(existingUser);
+            User saved = userRepository.save(existingUser);
+            userDetailsService.evictUser(saved.getId());
+            return saved;
         } else {
             // Try to find user by email
             userOptional = userRepository.findByEmail(email);
@@ -111,7 +117,9 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
                 existingUser.setProviderId(providerId);
                 existingUser.setFullName(name);
                 existingUser.setUpdatedAt(LocalDateTime.now());
-                return userRepository.save(existingUser);
+                User saved = userRepository.save(existingUser);
+                userDetailsService.evictUser(saved.getId());
+                return saved;
             } else {
                 // Create new user
                 User newUser = new User();
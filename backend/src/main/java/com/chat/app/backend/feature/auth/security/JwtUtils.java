@@ -10,11 +10,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PostConstruct;
+
 import java.security.Key;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for JWT token generation and validation.
+ * The signing key and parser are built once. Tokens that passed verification are kept in a
+ * bounded cache until they expire, so repeat requests with the same token skip the HMAC check.
  */
 @Component
 public class JwtUtils {
@@ -26,6 +31,24 @@ public class JwtUtils {
     @Value("${app.jwt.expiration-ms}")
     private int jwtExpirationMs;
 
+    @Value("${app.jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    private Key signingKey;
+    private JwtParser parser;
+
+    // Tokens whose signature has already been verified, mapped to their subject and expiry
+    private final ConcurrentHashMap<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * Build the signing key and the parser once.
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     /**
      * Generate a JWT token for the authenticated user.
      *
@@ -87,12 +110,12 @@ public class JwtUtils {
     }
 
     /**
-     * Get the signing key from the JWT secret.
+     * Get the signing key built from the JWT secret.
      *
      * @return the signing key
      */
     private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        return signingKey;
     }
 
     /**
@@ -102,8 +125,7 @@ public class JwtUtils {
      * @return the username
      */
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key()).build()
-                .parseClaimsJws(token).getBody().getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     /**
@@ -113,9 +135,18 @@ public class JwtUtils {
      * @return true if the token is valid, false otherwise
      */
     public boolean validateJwtToken(String authToken) {
+        return parseAndValidate(authToken) != null;
+    }
+
+    /**
+     * Validate a JWT token and return its claims, parsing and verifying it once.
+     *
+     * @param authToken the JWT token to validate
+     * @return the token claims, or null if the token is invalid
+     */
+    public Claims parseAndValidate(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(key()).build().parseClaimsJws(authToken);
-            return true;
+            return parser.parseClaimsJws(authToken).getBody();
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -124,8 +155,60 @@ public class JwtUtils {
             logger.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
         }
 
-        return false;
+        return null;
+    }
+
+    /**
+     * Validate a JWT token and return its subject.
+     * Tokens that were verified before and have not expired are answered from the cache.
+     *
+     * @param authToken the JWT token to validate
+     * @return the username, or null if the token is invalid
+     */
+    public String getValidatedUsername(String authToken) {
+        long now = System.currentTimeMillis();
+
+        VerifiedToken cached = verifiedTokens.get(authToken);
+        if (cached != null) {
+            if (cached.expiresAtMillis > now) {
+                return cached.subject;
+            }
+            verifiedTokens.remove(authToken, cached);
+        }
+
+        Claims claims = parseAndValidate(authToken);
+        if (claims == null) {
+            return null;
+        }
+
+        // Only tokens with an expiry are cached, so an entry can never outlive its token
+        Date expiration = claims.getExpiration();
+        if (expiration != null && claims.getSubject() != null) {
+            if (verifiedTokens.size() >= verifiedCacheMaxSize) {
+                verifiedTokens.values().removeIf(token -> token.expiresAtMillis <= now);
+            }
+            if (verifiedTokens.size() < verifiedCacheMaxSize) {
+                verifiedTokens.put(authToken, new VerifiedToken(claims.getSubject(), expiration.getTime()));
+            }
+        }
+
+        return claims.getSubject();
+    }
+
+    /**
+     * Subject and expiry of a token whose signature has been verified.
+     */
+    private static class VerifiedToken {
+        private final String subject;
+        private final long expiresAtMillis;
+
+        VerifiedToken(String subject, long expiresAtMillis) {
+            this.subject = subject;
+            this.expiresAtMillis = expiresAtMillis;
+        }
     }
-}
\ No newline at end of file
+}
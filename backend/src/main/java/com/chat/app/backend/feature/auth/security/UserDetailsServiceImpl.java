@@ -2,23 +2,50 @@ package com.chat.app.backend.feature.auth.security;
 
 import com.chat.app.backend.feature.user.model.User;
 import com.chat.app.backend.feature.user.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Implementation of Spring Security's UserDetailsService.
  * This service loads user-specific data for authentication.
+ * Token-authenticated requests go through a principal cache keyed by username, so they do not
+ * hit the users and user_roles tables; entries expire after a TTL and are evicted explicitly
+ * when a user is saved. Password logins always load fresh data.
  */
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
+
     @Autowired
     private UserRepository userRepository;
 
+    @Value("${app.security.principal-cache.ttl-ms:300000}")
+    private long principalCacheTtlMs;
+
+    @Value("${app.security.principal-cache.max-size:10000}")
+    private int principalCacheMaxSize;
+
+    private final ConcurrentHashMap<String, CachedPrincipal> principalCache = new ConcurrentHashMap<>();
+
+    // Bumped on every eviction, so a load that raced with one is not cached
+    private final AtomicLong evictionGeneration = new AtomicLong();
+
+    // Cache counters, reset every time they are reported
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
     /**
      * Load a user by username for authentication.
      * This method is used by Spring Security to load user details during authentication.
@@ -37,4 +64,80 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
         return UserDetailsImpl.build(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * Load the principal for an already verified token subject, from the cache when possible.
+     *
+     * @param username the username (token subject) to load
+     * @return UserDetails object containing the user's authentication information
+     * @throws UsernameNotFoundException if the user is not found
+     */
+    public UserDetails loadCachedUserByUsername(String username) throws UsernameNotFoundException {
+        long now = System.currentTimeMillis();
+
+        CachedPrincipal cached = principalCache.get(username);
+        if (cached != null && cached.expiresAtMillis > now) {
+            cacheHits.incrementAndGet();
+            return cached.principal;
+        }
+
+        cacheMisses.incrementAndGet();
+        long generation = evictionGeneration.get();
+        UserDetailsImpl principal = (UserDetailsImpl) loadUserByUsername(username);
+        if (generation != evictionGeneration.get()) {
+            return principal;
+        }
+
+        if (principalCache.size() >= principalCacheMaxSize) {
+            principalCache.values().removeIf(entry -> entry.expiresAtMillis <= now);
+        }
+        if (principalCache.size() < principalCacheMaxSize) {
+            principalCache.put(username, new CachedPrincipal(principal, now + principalCacheTtlMs));
+        }
+
+        return principal;
+    }
+
+    /**
+     * Drop cached principals of a user after their account or roles changed.
+     *
+     * @param userId the ID of the user
+     */
+    public void evictUser(Long userId) {
+        if (userId != null) {
+            evictionGeneration.incrementAndGet();
+            principalCache.values().removeIf(entry -> userId.equals(entry.principal.getId()));
+        }
+    }
+
+    /**
+     * Periodically purge expired principals and log cache hit/miss counts.
+     */
+    @Scheduled(fixedRateString = "${app.security.principal-cache.report-interval-ms:60000}")
+    public void reportCacheStats() {
+        long now = System.currentTimeMillis();
+        principalCache.values().removeIf(entry -> entry.expiresAtMillis <= now);
+
+        long hits = cacheHits.getAndSet(0);
+        long misses = cacheMisses.getAndSet(0);
+        if (hits + misses > 0) {
+            logger.info("Principal cache: {} hits, {} misses ({}% hit rate), {} entries",
+                    hits, misses,
+                    String.format("%.1f", 100.0 * hits / (hits + misses)),
+                    principalCache.size());
+        }
+    }
+
+    /**
+     * A cached principal and the time it stops being served.
+     */
+    private static class CachedPrincipal {
+        private final UserDetailsImpl principal;
+        private final long expiresAtMillis;
+
+        CachedPrincipal(UserDetailsImpl principal, long expiresAtMillis) {
+            this.principal = principal;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
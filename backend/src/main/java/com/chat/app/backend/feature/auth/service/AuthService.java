@@ -7,7 +7,6 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -26,6 +25,7 @@ import com.chat.app.backend.feature.user.model.User;
 import com.chat.app.backend.feature.user.model.UserStatus;
 import com.chat.app.backend.feature.user.repository.RoleRepository;
 import com.chat.app.backend.feature.user.repository.UserRepository;
+import com.chat.app.backend.feature.user.service.PresenceService;
 
 /**
  * Service for authentication operations.
@@ -51,10 +51,10 @@ public class AuthService {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private MessageSyncService messageSyncService;
 
     @Autowired
-    private MessageSyncService messageSyncService;
+    private PresenceService presenceService;
 
     /**
      * Authenticate a user and generate a JWT token.
@@ -83,19 +83,9 @@ public class AuthService {
             User user = userRepository.findByUsername(userDetails.getUsername())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            // Update user status to ONLINE
-            user.setStatus(UserStatus.ONLINE);
-            user.setLastActive(LocalDateTime.now());
-            user = userRepository.save(user);
-
-            // Broadcast status update to all connected clients
-            messagingTemplate.convertAndSend("/topic/user.status",
-                new com.chat.app.backend.feature.user.dto.UserStatusDTO(
-                    user.getId(),
-                    user.getUsername(),
-                    UserStatus.ONLINE
-                )
-            );
+            // Update user status to ONLINE; the presence registry persists it with the next flush
+            // and broadcasts it to the user's contacts
+            presenceService.updateStatus(user.getId(), user.getUsername(), UserStatus.ONLINE);
 
             // Process any pending messages for this user
             messageSyncService.processPendingMessagesForUser(user.getId());
@@ -57,12 +57,12 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
                 String token = extractTokenFromHeaders(accessor);
                 logger.debug("Extracted token: {}", token != null ? "[PRESENT]" : "[NULL]");
 
-                if (token != null && jwtUtils.validateJwtToken(token)) {
-                    String username = jwtUtils.getUserNameFromJwtToken(token);
+                String username = token != null ? jwtUtils.getValidatedUsername(token) : null;
+                if (username != null) {
                     logger.debug("WebSocket connection authenticated for user: {}", username);
 
                     // Load user details and set authentication
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = userDetailsService.loadCachedUserByUsername(username);
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
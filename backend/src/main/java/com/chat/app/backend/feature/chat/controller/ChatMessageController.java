@@ -1,20 +1,18 @@
 package com.chat.app.backend.feature.chat.controller;
 
 import com.chat.app.backend.feature.chat.dto.MessageDTO;
-import com.chat.app.backend.feature.chat.model.MessageStatus;
 import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
 import com.chat.app.backend.feature.chat.service.MessageService;
 import com.chat.app.backend.feature.chat.service.MessageSyncService;
+import com.chat.app.backend.feature.chat.service.TypingStateService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
-import java.time.LocalDateTime;
 
 /**
  * Controller for handling WebSocket chat messages.
@@ -24,15 +22,15 @@ public class ChatMessageController {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatMessageController.class);
 
-    @Autowired
-    private SimpMessagingTemplate messagingTemplate;
-
     @Autowired
     private MessageService messageService;
 
     @Autowired
     private MessageSyncService messageSyncService;
 
+    @Autowired
+    private TypingStateService typingStateService;
+
     /**
      * Handle messages sent to a conversation.
      *
@@ -50,10 +48,18 @@ public class ChatMessageController {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             Long senderId = userDetails.getId();
 
-            // Use the message service to send the message
-            messageService.sendMessage(senderId, messageDTO.getConversationId(), messageDTO.getContent());
-
-            // The message service already handles WebSocket and Kafka distribution
+            // Queue the message without blocking the inbound channel thread;
+            // the send pipeline handles persistence, WebSocket and Kafka distribution
+            messageService.sendMessageAsync(senderId, messageDTO.getConversationId(), messageDTO.getContent())
+                    .whenComplete((sent, error) -> {
+                        if (error != null) {
+                            logger.error("Failed to send message from user {} to conversation {}: {}",
+                                    senderId, messageDTO.getConversationId(), error.getMessage());
+                        }
+                    });
+
+            // Sending ends the sender's typing state without waiting for the client's stop frame
+            typingStateService.stopTyping(messageDTO.getConversationId(), senderId, userDetails.getUsername());
         } catch (Exception e) {
             logger.error("Error in sendMessage: {}", e.getMessage(), e);
         }
@@ -76,23 +82,10 @@ public class ChatMessageController {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             Long userId = userDetails.getId();
 
-            // Mark messages as read in the conversation
+            // Mark messages as read in the conversation; this also sends the read status frame
             int messagesRead = messageService.markMessagesAsRead(userId, messageDTO.getConversationId());
-
-            // Notify about read status if any messages were marked as read
-            if (messagesRead > 0) {
-                // Create a status update DTO
-                MessageDTO statusUpdate = new MessageDTO();
-                statusUpdate.setConversationId(messageDTO.getConversationId());
-                statusUpdate.setStatus(MessageStatus.READ);
-                statusUpdate.setReadAt(LocalDateTime.now());
-
-                // Send to the conversation topic
-                messagingTemplate.convertAndSend(
-                        "/topic/conversation." + messageDTO.getConversationId() + ".status",
-                        statusUpdate
-                );
-            }
+            logger.debug("User {} read {} messages in conversation {}",
+                    userId, messagesRead, messageDTO.getConversationId());
         } catch (Exception e) {
             logger.error("Error in markMessagesAsRead: {}", e.getMessage(), e);
         }
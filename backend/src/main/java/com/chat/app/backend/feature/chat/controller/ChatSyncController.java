@@ -2,15 +2,12 @@ package com.chat.app.backend.feature.chat.controller;
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
@@ -29,9 +26,6 @@ public class ChatSyncController {
     @Autowired
     private MessageSyncService messageSyncService;
 
-    @Autowired
-    private SimpMessagingTemplate messagingTemplate;
-
     /**
      * Handle client reconnection and synchronize messages.
      *
@@ -49,8 +43,8 @@ public class ChatSyncController {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             Long userId = userDetails.getId();
 
-            logger.info("Received sync request from user {}: lastSyncTimestamp={}",
-                    userId, syncRequest.getLastSyncTimestamp());
+            logger.info("Received sync request from user {}: clientId={}, lastSyncTimestamp={}, cursor={}",
+                    userId, syncRequest.getClientId(), syncRequest.getLastSyncTimestamp(), syncRequest.getCursor());
 
             // Convert timestamp to LocalDateTime
             LocalDateTime lastSyncTime = null;
@@ -64,20 +58,14 @@ public class ChatSyncController {
                 lastSyncTime = LocalDateTime.now().minusHours(1);
             }
 
-            // Process pending messages for the user who just came online
-            messageSyncService.processPendingMessagesForUser(userId);
-
-            // Synchronize messages since the last sync time
-            int syncedCount = messageSyncService.synchronizeMessages(userId, lastSyncTime);
-
-            // Send sync complete notification
-            Map<String, Object> syncResponse = new HashMap<>();
-            syncResponse.put("status", "complete");
-            syncResponse.put("syncedCount", syncedCount);
-            syncResponse.put("timestamp", System.currentTimeMillis());
+            // A request with a cursor continues a sync; only the first request marks the user as back
+            if (syncRequest.getCursor() == null) {
+                messageSyncService.processPendingMessagesForUser(userId);
+            }
 
-            String destination = "/queue/user." + userId + ".sync";
-            messagingTemplate.convertAndSend(destination, syncResponse);
+            // Synchronize messages in batches; the service sends them and the final sync frame
+            int syncedCount = messageSyncService.synchronizeMessages(userId, userDetails.getUsername(),
+                    syncRequest.getClientId(), syncRequest.getCursor(), lastSyncTime);
 
             logger.info("Sync completed for user {}: {} messages synchronized", userId, syncedCount);
         } catch (Exception e) {
@@ -8,11 +8,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
 import com.chat.app.backend.feature.chat.dto.TypingIndicatorDTO;
+import com.chat.app.backend.feature.chat.service.TypingStateService;
 
 /**
  * Controller for handling typing indicator WebSocket messages.
@@ -23,10 +23,12 @@ public class ChatTypingController {
     private static final Logger logger = LoggerFactory.getLogger(ChatTypingController.class);
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private TypingStateService typingStateService;
 
     /**
      * Handle typing indicator messages.
+     * Frames only update the typing state; start and stop transitions are broadcast by
+     * {@link TypingStateService}, so repeated frames while typing go nowhere.
      *
      * @param typingIndicator the typing indicator data
      * @param authentication the authentication object containing user details
@@ -41,14 +43,12 @@ public class ChatTypingController {
         try {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-            // Add the username to the typing indicator
-            typingIndicator.setUsername(userDetails.getUsername());
+            if (typingIndicator.getConversationId() == null) {
+                return;
+            }
 
-            // Broadcast the typing indicator to all subscribers of the conversation's typing topic
-            messagingTemplate.convertAndSend(
-                    "/topic/conversation." + typingIndicator.getConversationId() + ".typing",
-                    typingIndicator
-            );
+            typingStateService.onTypingFrame(typingIndicator.getConversationId(), userDetails.getId(),
+                    userDetails.getUsername(), typingIndicator.isTyping());
         } catch (Exception e) {
             logger.error("Error in handleTypingIndicator: {}", e.getMessage(), e);
         }
@@ -1,15 +1,17 @@
 package com.chat.app.backend.feature.chat.controller;
 
 import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.dto.MessageHistoryDTO;
 import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
 import com.chat.app.backend.feature.chat.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST Controller for message operations.
@@ -27,7 +29,7 @@ public class MessageController {
      * @param conversationId the conversation ID
      * @param page the page number (0-based)
      * @param size the page size
-     * @return a page of message DTOs
+     * @return a list of message DTOs
      */
     @GetMapping("/conversation/{conversationId}")
     public ResponseEntity<List<MessageDTO>> getMessagesForConversation(
@@ -35,11 +37,36 @@ public class MessageController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
 
-        Page<MessageDTO> messagesPage = messageService.getMessagesForConversation(conversationId, page, size);
-        List<MessageDTO> messages = messagesPage.getContent();
+        Slice<MessageDTO> messagesSlice = messageService.getMessagesForConversation(conversationId, page, size);
+        List<MessageDTO> messages = messagesSlice.getContent();
         return ResponseEntity.ok(messages);
     }
 
+    /**
+     * Get conversation history using cursor (keyset) pagination.
+     * Pass the returned {@code nextCursor} as {@code before} to keep scrolling into older
+     * messages, or as {@code after} to keep loading newer ones. A client that knows the
+     * sequence number of the newest message it holds can pass it as {@code afterSeq} instead.
+     *
+     * @param conversationId the conversation ID
+     * @param before cursor of the oldest message already loaded (optional)
+     * @param after cursor of the newest message already loaded (optional)
+     * @param afterSeq sequence number of the newest message already loaded (optional)
+     * @param size the maximum number of messages to return
+     * @return the history slice and the cursor to continue from
+     */
+    @GetMapping("/conversation/{conversationId}/history")
+    public ResponseEntity<MessageHistoryDTO> getMessageHistory(
+            @PathVariable Long conversationId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Long afterSeq,
+            @RequestParam(defaultValue = "20") int size) {
+
+        MessageHistoryDTO history = messageService.getMessageHistory(conversationId, before, after, afterSeq, size);
+        return ResponseEntity.ok(history);
+    }
+
     /**
      * Send a new message to a conversation.
      *
@@ -93,6 +120,21 @@ public class MessageController {
         return ResponseEntity.ok(unreadCount);
     }
 
+    /**
+     * Get the unread message counts for all conversations of a user in one call.
+     *
+     * @param userDetails the authenticated user details
+     * @return the unread counts keyed by conversation ID
+     */
+    @GetMapping("/unread/counts")
+    public ResponseEntity<Map<Long, Long>> getUnreadMessageCounts(
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+
+        Long userId = userDetails.getId();
+        Map<Long, Long> unreadCounts = messageService.getUnreadMessageCounts(userId);
+        return ResponseEntity.ok(unreadCounts);
+    }
+
     /**
      * Get the latest messages for each conversation a user is part of.
      *
@@ -0,0 +1,67 @@
+package com.chat.app.backend.feature.chat.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a conversation's message history.
+ * A cursor identifies a message by its per-conversation sequence number, which matches the
+ * unique (conversation_id, seq) index and lets history queries seek directly to a position
+ * instead of skipping rows with an OFFSET. Unlike send times, sequence numbers never collide,
+ * so a cursor neither skips nor repeats messages.
+ */
+public class MessageCursor {
+
+    private static final String PREFIX = "s";
+
+    private final long seq;
+
+    // Constructor with required fields
+    public MessageCursor(long seq) {
+        this.seq = seq;
+    }
+
+    /**
+     * Create a cursor pointing at the given message.
+     *
+     * @param message the message DTO
+     * @return the cursor for the message
+     */
+    public static MessageCursor of(MessageDTO message) {
+        return new MessageCursor(message.getSeq());
+    }
+
+    /**
+     * Decode an opaque cursor string received from a client.
+     *
+     * @param value the encoded cursor
+     * @return the decoded cursor
+     * @throws RuntimeException if the cursor is malformed
+     */
+    public static MessageCursor decode(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(PREFIX)) {
+                throw new RuntimeException("Invalid message cursor");
+            }
+            return new MessageCursor(Long.parseLong(decoded.substring(PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid message cursor");
+        }
+    }
+
+    /**
+     * Encode this cursor as an opaque, URL-safe string.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        String raw = PREFIX + seq;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Getters
+    public long getSeq() {
+        return seq;
+    }
+}
@@ -14,6 +14,8 @@ public class MessageDTO {
     private String senderUsername;
     private String senderAvatarUrl;
     private Long conversationId;
+    // Position within the conversation; null until the message is committed
+    private Long seq;
     private String content;
     private LocalDateTime sentAt;
     private LocalDateTime deliveredAt;
@@ -76,6 +78,14 @@ public class MessageDTO {
         this.conversationId = conversationId;
     }
 
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
     public String getContent() {
         return content;
     }
@@ -0,0 +1,52 @@
+package com.chat.app.backend.feature.chat.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object for a cursor-based slice of conversation history.
+ * Unlike page-based results it carries no total count; clients continue by
+ * passing {@code nextCursor} back in the same direction while {@code hasMore} is true.
+ */
+public class MessageHistoryDTO {
+
+    private List<MessageDTO> messages = new ArrayList<>();
+    private String nextCursor;
+    private boolean hasMore;
+
+    // Default constructor
+    public MessageHistoryDTO() {
+    }
+
+    // Constructor with all fields
+    public MessageHistoryDTO(List<MessageDTO> messages, String nextCursor, boolean hasMore) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getters and Setters
+    public List<MessageDTO> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<MessageDTO> messages) {
+        this.messages = messages;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,114 @@
+package com.chat.app.backend.feature.chat.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+
+/**
+ * Data Transfer Object for aggregated message status frames.
+ * One frame reports a status transition for several messages of the same conversation,
+ * replacing one {@link MessageDTO} frame per message on the conversation's status topic.
+ */
+public class MessageStatusUpdateDTO {
+
+    // Set only when the frame covers exactly one message, for clients that read MessageDTO-shaped frames
+    private Long id;
+    private Long conversationId;
+    private MessageStatus status;
+    private List<Long> messageIds = new ArrayList<>();
+    private LocalDateTime deliveredAt;
+    private LocalDateTime readAt;
+    // Set on read-watermark frames: every message up to this sequence number (and ID) not sent by the reader is read
+    private Long upToMessageId;
+    private Long upToSeq;
+    private Long readerId;
+
+    // Default constructor
+    public MessageStatusUpdateDTO() {
+    }
+
+    // Constructor with required fields
+    public MessageStatusUpdateDTO(Long conversationId, MessageStatus status, List<Long> messageIds) {
+        this.conversationId = conversationId;
+        this.status = status;
+        this.messageIds = messageIds;
+        if (messageIds.size() == 1) {
+            this.id = messageIds.get(0);
+        }
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public MessageStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(MessageStatus status) {
+        this.status = status;
+    }
+
+    public List<Long> getMessageIds() {
+        return messageIds;
+    }
+
+    public void setMessageIds(List<Long> messageIds) {
+        this.messageIds = messageIds;
+    }
+
+    public LocalDateTime getDeliveredAt() {
+        return deliveredAt;
+    }
+
+    public void setDeliveredAt(LocalDateTime deliveredAt) {
+        this.deliveredAt = deliveredAt;
+    }
+
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+
+    public Long getUpToMessageId() {
+        return upToMessageId;
+    }
+
+    public void setUpToMessageId(Long upToMessageId) {
+        this.upToMessageId = upToMessageId;
+    }
+
+    public Long getUpToSeq() {
+        return upToSeq;
+    }
+
+    public void setUpToSeq(Long upToSeq) {
+        this.upToSeq = upToSeq;
+    }
+
+    public Long getReaderId() {
+        return readerId;
+    }
+
+    public void setReaderId(Long readerId) {
+        this.readerId = readerId;
+    }
+}
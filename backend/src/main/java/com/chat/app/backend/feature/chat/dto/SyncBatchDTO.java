@@ -0,0 +1,97 @@
+package com.chat.app.backend.feature.chat.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for one batch of an offline sync.
+ * A sync request is answered with one or more batches in message ID order. Intermediate
+ * batches have status "batch"; the last batch of a request has status "complete" if the
+ * client is up to date, or "more" if it should send another sync request with the cursor.
+ */
+public class SyncBatchDTO {
+
+    public static final String STATUS_BATCH = "batch";
+    public static final String STATUS_MORE = "more";
+    public static final String STATUS_COMPLETE = "complete";
+
+    private String clientId;
+    private String status;
+    private List<MessageDTO> messages;
+    private String cursor;
+    private boolean hasMore;
+    private int syncedCount;
+    private long timestamp;
+
+    // Default constructor
+    public SyncBatchDTO() {
+    }
+
+    // Constructor with all fields
+    public SyncBatchDTO(String clientId, String status, List<MessageDTO> messages, String cursor,
+                        boolean hasMore, int syncedCount, long timestamp) {
+        this.clientId = clientId;
+        this.status = status;
+        this.messages = messages;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.syncedCount = syncedCount;
+        this.timestamp = timestamp;
+    }
+
+    // Getters and Setters
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<MessageDTO> getMessages() {
+        return messages;
+    }
+
+    public void setMessages(List<MessageDTO> messages) {
+        this.messages = messages;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getSyncedCount() {
+        return syncedCount;
+    }
+
+    public void setSyncedCount(int syncedCount) {
+        this.syncedCount = syncedCount;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+}
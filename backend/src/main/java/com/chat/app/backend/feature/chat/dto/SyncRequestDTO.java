@@ -3,11 +3,14 @@ package com.chat.app.backend.feature.chat.dto;
 /**
  * Data Transfer Object for message synchronization requests.
  * Used when clients reconnect and need to synchronize missed messages.
+ * A client resumes a sync with the cursor of the last batch it received; without a cursor
+ * the server resumes from the client's stored position, then from lastSyncTimestamp.
  */
 public class SyncRequestDTO {
 
     private Long lastSyncTimestamp;
     private String clientId;
+    private String cursor;
 
     // Default constructor
     public SyncRequestDTO() {
@@ -35,4 +38,12 @@ public class SyncRequestDTO {
     public void setClientId(String clientId) {
         this.clientId = clientId;
     }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
 }
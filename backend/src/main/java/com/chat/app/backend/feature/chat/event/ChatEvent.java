@@ -0,0 +1,130 @@
+package com.chat.app.backend.feature.chat.event;
+
+import com.chat.app.backend.feature.chat.dto.MessageDTO;
+
+/**
+ * Envelope of the events published on the chat-messages topic.
+ * Every record carries exactly one event; its type says which of the fields are set.
+ * On the wire the envelope is encoded by {@link ChatEventCodec}.
+ */
+public class ChatEvent {
+
+    /**
+     * Event types. The code is written to the wire and must never change or be reused;
+     * code 3 belonged to a status change event that was never published.
+     */
+    public enum Type {
+        MESSAGE_CREATED(1),  // A message was committed; carries the full message
+        MESSAGE_RETRY(2);    // A message is due for another delivery attempt; carries its IDs and attempt
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        /**
+         * Look up a type by its wire code.
+         *
+         * @param code the wire code
+         * @return the type, or null if the code is unknown
+         */
+        public static Type fromCode(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private Type type;
+    private Long messageId;
+    private Long conversationId;
+    // Set on MESSAGE_CREATED
+    private MessageDTO message;
+    // Set on MESSAGE_RETRY: the attempt number, or 0 for a manual retry
+    private int attempt;
+
+    // Default constructor
+    public ChatEvent() {
+    }
+
+    /**
+     * Create the event for a committed message.
+     *
+     * @param message the message DTO
+     * @return the MESSAGE_CREATED event
+     */
+    public static ChatEvent messageCreated(MessageDTO message) {
+        ChatEvent event = new ChatEvent();
+        event.type = Type.MESSAGE_CREATED;
+        event.messageId = message.getId();
+        event.conversationId = message.getConversationId();
+        event.message = message;
+        return event;
+    }
+
+    /**
+     * Create the event for a retry of a message.
+     *
+     * @param messageId the ID of the message
+     * @param conversationId the ID of the message's conversation
+     * @param attempt the attempt number, or 0 for a manual retry
+     * @return the MESSAGE_RETRY event
+     */
+    public static ChatEvent messageRetry(Long messageId, Long conversationId, int attempt) {
+        ChatEvent event = new ChatEvent();
+        event.type = Type.MESSAGE_RETRY;
+        event.messageId = messageId;
+        event.conversationId = conversationId;
+        event.attempt = attempt;
+        return event;
+    }
+
+    // Getters and Setters
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public MessageDTO getMessage() {
+        return message;
+    }
+
+    public void setMessage(MessageDTO message) {
+        this.message = message;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(int attempt) {
+        this.attempt = attempt;
+    }
+}
@@ -0,0 +1,340 @@
+package com.chat.app.backend.feature.chat.event;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+
+/**
+ * Binary codec for {@link ChatEvent}.
+ * Layout: a magic byte, the format version, the event type code, then the type's fields in a
+ * fixed order. Integers are unsigned LEB128 varints, so the small IDs, sequence numbers and
+ * counts of a chat event take one to three bytes instead of their decimal text plus a JSON key.
+ * Nullable values are written shifted by one, with 0 meaning null; strings are their UTF-8
+ * length (shifted the same way) followed by the bytes; timestamps are microseconds since the
+ * epoch of the wall-clock time, which round-trips a {@link LocalDateTime} exactly at the
+ * precision the database keeps (save the one instant a microsecond before the epoch, which
+ * reads back as null). Enums are written as their ordinal plus one.
+ * <p>
+ * Encoding measures the event first and writes it into one array of the exact size, so the
+ * only allocation per event is the record value itself. Decoding reads the array in place.
+ * <p>
+ * Compatibility: new fields are only ever appended to the end of a type's layout together with
+ * a version bump, and new message statuses to the end of {@link MessageStatus}. Decoders read
+ * the fields they know and ignore the rest, so a node can consume events written by a newer
+ * node during a rolling upgrade; events of an unknown type are rejected.
+ */
+public final class ChatEventCodec {
+
+    private static final byte MAGIC = (byte) 0xCE;
+
+    /**
+     * Version written by this codec.
+     */
+    public static final byte VERSION = 1;
+
+    private static final MessageStatus[] STATUSES = MessageStatus.values();
+
+    private ChatEventCodec() {
+    }
+
+    /**
+     * Encode an event.
+     *
+     * @param event the event
+     * @return the encoded event
+     * @throws IllegalArgumentException if the event has no type
+     */
+    public static byte[] encode(ChatEvent event) {
+        if (event.getType() == null) {
+            throw new IllegalArgumentException("Chat event has no type");
+        }
+
+        Writer writer = new Writer(new byte[3 + bodySize(event)]);
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION);
+        writer.writeByte(event.getType().getCode());
+        switch (event.getType()) {
+            case MESSAGE_CREATED -> writeMessage(writer, event.getMessage());
+            case MESSAGE_RETRY -> {
+                writer.writeNullableLong(event.getMessageId());
+                writer.writeNullableLong(event.getConversationId());
+                writer.writeVarLong(event.getAttempt());
+            }
+        }
+        return writer.buf;
+    }
+
+    /**
+     * Decode an event.
+     *
+     * @param data the encoded event
+     * @return the decoded event
+     * @throws IllegalArgumentException if the data is not a chat event, or is truncated,
+     *         or was written with a type this codec does not know
+     */
+    public static ChatEvent decode(byte[] data) {
+        if (data.length < 3 || data[0] != MAGIC) {
+            throw new IllegalArgumentException("Not a chat event");
+        }
+        if (data[1] < 1) {
+            throw new IllegalArgumentException("Unsupported chat event version " + data[1]);
+        }
+        ChatEvent.Type type = ChatEvent.Type.fromCode(data[2]);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown chat event type " + data[2]);
+        }
+
+        Reader reader = new Reader(data, 3);
+        try {
+            return switch (type) {
+                case MESSAGE_CREATED -> ChatEvent.messageCreated(readMessage(reader));
+                case MESSAGE_RETRY -> ChatEvent.messageRetry(
+                        reader.readNullableLong(), reader.readNullableLong(), (int) reader.readVarLong());
+            };
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated chat event");
+        }
+    }
+
+    private static int bodySize(ChatEvent event) {
+        return switch (event.getType()) {
+            case MESSAGE_CREATED -> messageSize(event.getMessage());
+            case MESSAGE_RETRY -> nullableLongSize(event.getMessageId())
+                    + nullableLongSize(event.getConversationId())
+                    + varLongSize(event.getAttempt());
+        };
+    }
+
+    // MESSAGE_CREATED: id, senderId, conversationId, seq, senderUsername, senderAvatarUrl,
+    // content, sentAt, deliveredAt, readAt, status
+
+    private static int messageSize(MessageDTO message) {
+        return nullableLongSize(message.getId())
+                + nullableLongSize(message.getSenderId())
+                + nullableLongSize(message.getConversationId())
+                + nullableLongSize(message.getSeq())
+                + stringSize(message.getSenderUsername())
+                + stringSize(message.getSenderAvatarUrl())
+                + stringSize(message.getContent())
+                + timeSize(message.getSentAt())
+                + timeSize(message.getDeliveredAt())
+                + timeSize(message.getReadAt())
+                + 1;
+    }
+
+    private static void writeMessage(Writer writer, MessageDTO message) {
+        writer.writeNullableLong(message.getId());
+        writer.writeNullableLong(message.getSenderId());
+        writer.writeNullableLong(message.getConversationId());
+        writer.writeNullableLong(message.getSeq());
+        writer.writeString(message.getSenderUsername());
+        writer.writeString(message.getSenderAvatarUrl());
+        writer.writeString(message.getContent());
+        writer.writeTime(message.getSentAt());
+        writer.writeTime(message.getDeliveredAt());
+        writer.writeTime(message.getReadAt());
+        writer.writeStatus(message.getStatus());
+    }
+
+    private static MessageDTO readMessage(Reader reader) {
+        MessageDTO message = new MessageDTO();
+        message.setId(reader.readNullableLong());
+        message.setSenderId(reader.readNullableLong());
+        message.setConversationId(reader.readNullableLong());
+        message.setSeq(reader.readNullableLong());
+        message.setSenderUsername(reader.readString());
+        message.setSenderAvatarUrl(reader.readString());
+        message.setContent(reader.readString());
+        message.setSentAt(reader.readTime());
+        message.setDeliveredAt(reader.readTime());
+        message.setReadAt(reader.readTime());
+        message.setStatus(reader.readStatus());
+        return message;
+    }
+
+    // Sizes
+
+    private static int varLongSize(long value) {
+        // One byte per started group of 7 bits; zero still takes a byte
+        int bits = 64 - Long.numberOfLeadingZeros(value | 1);
+        return (bits + 6) / 7;
+    }
+
+    private static int nullableLongSize(Long value) {
+        return value == null ? 1 : varLongSize(value + 1);
+    }
+
+    private static int timeSize(LocalDateTime time) {
+        return time == null ? 1 : varLongSize(toEpochMicros(time) + 1);
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 1;
+        }
+        int length = utf8Length(value);
+        return varLongSize(length + 1L) + length;
+    }
+
+    /**
+     * UTF-8 length of a string, counted without encoding it.
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // Includes unpaired surrogates, which the encoder replaces with '?'
+                length += c >= 0xD800 && c <= 0xDFFF ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    private static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Write cursor over an array sized up front.
+     */
+    private static final class Writer {
+        private final byte[] buf;
+        private int pos;
+
+        Writer(byte[] buf) {
+            this.buf = buf;
+        }
+
+        void writeByte(byte value) {
+            buf[pos++] = value;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeNullableLong(Long value) {
+            writeVarLong(value == null ? 0 : value + 1);
+        }
+
+        void writeTime(LocalDateTime time) {
+            writeVarLong(time == null ? 0 : toEpochMicros(time) + 1);
+        }
+
+        void writeStatus(MessageStatus status) {
+            buf[pos++] = (byte) (status == null ? 0 : status.ordinal() + 1);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            writeVarLong(utf8Length(value) + 1L);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buf[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (c >= 0xD800 && c <= 0xDFFF) {
+                    buf[pos++] = '?';
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+    }
+
+    /**
+     * Read cursor over an encoded event.
+     */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int remaining() {
+            return buf.length - pos;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Corrupt chat event");
+        }
+
+        Long readNullableLong() {
+            long value = readVarLong();
+            return value == 0 ? null : value - 1;
+        }
+
+        LocalDateTime readTime() {
+            long value = readVarLong();
+            return value == 0 ? null : fromEpochMicros(value - 1);
+        }
+
+        MessageStatus readStatus() {
+            int value = buf[pos++];
+            if (value < 0 || value > STATUSES.length) {
+                throw new IllegalArgumentException("Unknown message status " + value);
+            }
+            return value == 0 ? null : STATUSES[value - 1];
+        }
+
+        String readString() {
+            long value = readVarLong();
+            if (value == 0) {
+                return null;
+            }
+            if (value - 1 > remaining()) {
+                throw new IllegalArgumentException("Truncated chat event");
+            }
+            int length = (int) (value - 1);
+            String result = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.chat.app.backend.feature.chat.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka deserializer reading {@link ChatEvent}s with {@link ChatEventCodec}.
+ * Records that cannot be decoded fail with a {@link SerializationException}.
+ */
+public class ChatEventDeserializer implements Deserializer<ChatEvent> {
+
+    @Override
+    public ChatEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return ChatEventCodec.decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Cannot decode record from " + topic + ": " + e.getMessage(), e);
+        }
+    }
+}
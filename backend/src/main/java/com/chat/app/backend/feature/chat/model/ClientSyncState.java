@@ -0,0 +1,108 @@
+package com.chat.app.backend.feature.chat.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Entity representing how far a client device has been synchronized.
+ * Every message with an ID up to {@code lastMessageId} in the user's conversations has been
+ * sent to the client by the offline sync protocol, so a reconnecting client resumes from there.
+ */
+@Entity
+@Table(name = "client_sync_states", indexes = {
+    @Index(name = "idx_client_sync_states_updated_at", columnList = "updated_at")
+})
+@IdClass(ClientSyncState.Key.class)
+public class ClientSyncState {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "client_id", length = 64)
+    private String clientId;
+
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Default constructor
+    public ClientSyncState() {
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Composite primary key of a client sync state.
+     */
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long userId;
+        private String clientId;
+
+        // Default constructor
+        public Key() {
+        }
+
+        public Key(Long userId, String clientId) {
+            this.userId = userId;
+            this.clientId = clientId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(clientId, key.clientId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, clientId);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.chat.app.backend.feature.chat.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Entity representing how far a Kafka consumer has processed a partition.
+ * The checkpoint is written in the same transaction as the effects of the records it covers,
+ * so records at or below {@code committedOffset} have been fully applied and are skipped when
+ * they are delivered again, whatever the consumer group's own committed offsets say.
+ */
+@Entity
+@Table(name = "consumer_checkpoints")
+@IdClass(ConsumerCheckpoint.Key.class)
+public class ConsumerCheckpoint {
+
+    @Id
+    @Column(name = "consumer_name", length = 100)
+    private String consumerName;
+
+    @Id
+    @Column(name = "topic")
+    private String topic;
+
+    @Id
+    @Column(name = "partition_id")
+    private Integer partitionId;
+
+    @Column(name = "committed_offset", nullable = false)
+    private Long committedOffset;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Default constructor
+    public ConsumerCheckpoint() {
+    }
+
+    // Getters and Setters
+    public String getConsumerName() {
+        return consumerName;
+    }
+
+    public void setConsumerName(String consumerName) {
+        this.consumerName = consumerName;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public Integer getPartitionId() {
+        return partitionId;
+    }
+
+    public void setPartitionId(Integer partitionId) {
+        this.partitionId = partitionId;
+    }
+
+    public Long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public void setCommittedOffset(Long committedOffset) {
+        this.committedOffset = committedOffset;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Composite primary key of a consumer checkpoint.
+     */
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String consumerName;
+        private String topic;
+        private Integer partitionId;
+
+        // Default constructor
+        public Key() {
+        }
+
+        public Key(String consumerName, String topic, Integer partitionId) {
+            this.consumerName = consumerName;
+            this.topic = topic;
+            this.partitionId = partitionId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(consumerName, key.consumerName) && Objects.equals(topic, key.topic)
+                    && Objects.equals(partitionId, key.partitionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(consumerName, topic, partitionId);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.chat.app.backend.feature.chat.model;
 
 import jakarta.persistence.*;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -53,6 +55,34 @@ public class Conversation {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Snapshot of the newest message, maintained by the send pipeline so that listing
+    // conversations does not touch the messages table. Only ever written by SQL updates;
+    // read-only here, so saving a loaded conversation cannot put back an older snapshot
+    @Column(name = "last_message_id", insertable = false, updatable = false)
+    private Long lastMessageId;
+
+    @Column(name = "last_message_sender_id", insertable = false, updatable = false)
+    private Long lastMessageSenderId;
+
+    @Column(name = "last_message_sender_username", insertable = false, updatable = false)
+    private String lastMessageSenderUsername;
+
+    @Column(name = "last_message_preview", insertable = false, updatable = false)
+    private String lastMessagePreview;
+
+    @Column(name = "last_message_sent_at", insertable = false, updatable = false)
+    private LocalDateTime lastMessageSentAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_message_status", length = 20, insertable = false, updatable = false)
+    private MessageStatus lastMessageStatus;
+
+    // Highest message sequence number allocated in this conversation; advanced by the send pipeline.
+    // Read-only like the snapshot: writing back a stale value would hand out sequence numbers again
+    @ColumnDefault("0")
+    @Column(name = "last_seq", nullable = false, insertable = false, updatable = false)
+    private long lastSeq = 0;
+
     // Default constructor
     public Conversation() {
     }
@@ -159,6 +189,34 @@ public class Conversation {
         this.updatedAt = updatedAt;
     }
 
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public Long getLastMessageSenderId() {
+        return lastMessageSenderId;
+    }
+
+    public String getLastMessageSenderUsername() {
+        return lastMessageSenderUsername;
+    }
+
+    public String getLastMessagePreview() {
+        return lastMessagePreview;
+    }
+
+    public LocalDateTime getLastMessageSentAt() {
+        return lastMessageSentAt;
+    }
+
+    public MessageStatus getLastMessageStatus() {
+        return lastMessageStatus;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
     // Helper methods
     public void addParticipant(User user) {
         this.participants.add(user);
@@ -188,4 +246,4 @@ public class Conversation {
     protected void onUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package com.chat.app.backend.feature.chat.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Entity representing how far a user has read in a conversation.
+ * Every message with a sequence number up to {@code lastReadSeq} counts as read by the user, so a
+ * read action is a single row upsert instead of one update per message. The row also carries
+ * the materialized unread counter, maintained by {@code UnreadCounterService}.
+ */
+@Entity
+@Table(name = "conversation_read_states")
+@IdClass(ConversationReadState.Key.class)
+public class ConversationReadState {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    @Column(name = "last_read_message_id", nullable = false)
+    private Long lastReadMessageId = 0L;
+
+    @Column(name = "last_read_seq", nullable = false)
+    private long lastReadSeq = 0;
+
+    // Null until the user has read anything in the conversation
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    @Column(name = "unread_count", nullable = false)
+    private long unreadCount = 0;
+
+    // Default constructor
+    public ConversationReadState() {
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public Long getLastReadMessageId() {
+        return lastReadMessageId;
+    }
+
+    public void setLastReadMessageId(Long lastReadMessageId) {
+        this.lastReadMessageId = lastReadMessageId;
+    }
+
+    public long getLastReadSeq() {
+        return lastReadSeq;
+    }
+
+    public void setLastReadSeq(long lastReadSeq) {
+        this.lastReadSeq = lastReadSeq;
+    }
+
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+
+    public long getUnreadCount() {
+        return unreadCount;
+    }
+
+    public void setUnreadCount(long unreadCount) {
+        this.unreadCount = unreadCount;
+    }
+
+    /**
+     * Composite primary key of a read state.
+     */
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private Long userId;
+        private Long conversationId;
+
+        // Default constructor
+        public Key() {
+        }
+
+        public Key(Long userId, Long conversationId) {
+            this.userId = userId;
+            this.conversationId = conversationId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Objects.equals(userId, key.userId) && Objects.equals(conversationId, key.conversationId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, conversationId);
+        }
+    }
+}
@@ -12,16 +12,26 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 /**
  * Entity representing a message in the chat application.
+ * Within a conversation, messages are ordered by {@code seq}, a gap-free sequence number
+ * assigned by the send pipeline when the message is committed.
  */
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    @Index(name = "idx_messages_conversation_sent_at_id", columnList = "conversation_id, sent_at, id"),
+    @Index(name = "idx_messages_status_id", columnList = "status, id"),
+    @Index(name = "idx_messages_status_next_retry_at", columnList = "status, next_retry_at")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_messages_conversation_seq", columnNames = {"conversation_id", "seq"})
+})
 public class Message {
 
     @Id
@@ -36,6 +46,10 @@ public class Message {
     @JoinColumn(name = "conversation_id", nullable = false)
     private Conversation conversation;
 
+    // Position within the conversation, starting at 1
+    @Column(name = "seq", nullable = false, updatable = false)
+    private Long seq;
+
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
@@ -54,6 +68,10 @@ public class Message {
     @Column(name = "retry_count")
     private Integer retryCount = 0;
 
+    // When the next delivery attempt of a PENDING message is due
+    @Column(name = "next_retry_at")
+    private LocalDateTime nextRetryAt;
+
     // Default constructor
     public Message() {
     }
@@ -92,6 +110,14 @@ public class Message {
         this.conversation = conversation;
     }
 
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
     public String getContent() {
         return content;
     }
@@ -144,6 +170,14 @@ public class Message {
         this.retryCount = retryCount;
     }
 
+    public LocalDateTime getNextRetryAt() {
+        return nextRetryAt;
+    }
+
+    public void setNextRetryAt(LocalDateTime nextRetryAt) {
+        this.nextRetryAt = nextRetryAt;
+    }
+
     @PrePersist
     protected void onCreate() {
         this.sentAt = LocalDateTime.now();
@@ -0,0 +1,50 @@
+package com.chat.app.backend.feature.chat.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.chat.app.backend.feature.chat.model.ClientSyncState;
+
+/**
+ * Repository interface for ClientSyncState entity operations.
+ */
+@Repository
+public interface ClientSyncStateRepository extends JpaRepository<ClientSyncState, ClientSyncState.Key> {
+
+    /**
+     * Move a client's sync position forward in a single statement.
+     * The position never moves backwards, so overlapping sync requests are safe.
+     *
+     * @param userId the ID of the user
+     * @param clientId the client (device) identifier
+     * @param messageId the ID of the newest message sent to the client
+     * @param updatedAt the time of the sync
+     * @return the number of affected rows as reported by MySQL
+     */
+    @Modifying
+    @Query(value = "INSERT INTO client_sync_states (user_id, client_id, last_message_id, updated_at) " +
+                   "VALUES (:userId, :clientId, :messageId, :updatedAt) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "last_message_id = GREATEST(last_message_id, VALUES(last_message_id)), " +
+                   "updated_at = VALUES(updated_at)",
+           nativeQuery = true)
+    int advance(@Param("userId") Long userId,
+                @Param("clientId") String clientId,
+                @Param("messageId") Long messageId,
+                @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Delete the sync states of clients that have not synchronized since a given time.
+     *
+     * @param before the cutoff time
+     * @return the number of deleted states
+     */
+    @Modifying
+    @Query("DELETE FROM ClientSyncState s WHERE s.updatedAt < :before")
+    int deleteByUpdatedAtBefore(@Param("before") LocalDateTime before);
+}
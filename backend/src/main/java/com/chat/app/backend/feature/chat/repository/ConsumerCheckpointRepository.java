@@ -0,0 +1,69 @@
+package com.chat.app.backend.feature.chat.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.chat.app.backend.feature.chat.model.ConsumerCheckpoint;
+
+/**
+ * Repository interface for ConsumerCheckpoint entity operations.
+ */
+@Repository
+public interface ConsumerCheckpointRepository extends JpaRepository<ConsumerCheckpoint, ConsumerCheckpoint.Key> {
+
+    /**
+     * Move a partition's checkpoint forward in a single statement.
+     * The checkpoint never moves backwards, so redelivered or overlapping batches are safe.
+     *
+     * @param consumerName the logical name of the consumer
+     * @param topic the topic
+     * @param partitionId the partition
+     * @param offset the highest offset whose effects are part of the current transaction
+     * @param updatedAt the time of the update
+     * @return the number of affected rows as reported by MySQL
+     */
+    @Modifying
+    @Query(value = "INSERT INTO consumer_checkpoints (consumer_name, topic, partition_id, committed_offset, updated_at) " +
+                   "VALUES (:consumerName, :topic, :partitionId, :offset, :updatedAt) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "committed_offset = GREATEST(committed_offset, VALUES(committed_offset)), " +
+                   "updated_at = VALUES(updated_at)",
+           nativeQuery = true)
+    int advance(@Param("consumerName") String consumerName,
+                @Param("topic") String topic,
+                @Param("partitionId") int partitionId,
+                @Param("offset") long offset,
+                @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Delete a partition's checkpoint, unless it has moved on from the given offset.
+     *
+     * @param consumerName the logical name of the consumer
+     * @param topic the topic
+     * @param partitionId the partition
+     * @param offset the stale offset
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM ConsumerCheckpoint c WHERE c.consumerName = :consumerName AND c.topic = :topic " +
+           "AND c.partitionId = :partitionId AND c.committedOffset = :offset")
+    int deleteIfAt(@Param("consumerName") String consumerName,
+                   @Param("topic") String topic,
+                   @Param("partitionId") int partitionId,
+                   @Param("offset") long offset);
+
+    /**
+     * Find the checkpoints of a consumer on a topic.
+     *
+     * @param consumerName the logical name of the consumer
+     * @param topic the topic
+     * @return the checkpoints of the partitions the consumer has processed
+     */
+    List<ConsumerCheckpoint> findByConsumerNameAndTopic(String consumerName, String topic);
+}
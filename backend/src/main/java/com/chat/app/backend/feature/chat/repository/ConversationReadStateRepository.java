@@ -0,0 +1,62 @@
+package com.chat.app.backend.feature.chat.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.chat.app.backend.feature.chat.model.ConversationReadState;
+
+/**
+ * Repository interface for ConversationReadState entity operations.
+ */
+@Repository
+public interface ConversationReadStateRepository
+        extends JpaRepository<ConversationReadState, ConversationReadState.Key> {
+
+    /**
+     * Move a user's read watermark forward in a single statement.
+     * The watermark never moves backwards, so concurrent or out-of-order read actions are safe.
+     * The message ID moves together with the sequence number it belongs to.
+     *
+     * @param userId the ID of the reader
+     * @param conversationId the ID of the conversation
+     * @param messageId the ID of the newest message read
+     * @param seq the sequence number of the newest message read
+     * @param readAt the time of the read action
+     * @return the number of affected rows as reported by MySQL
+     */
+    @Modifying
+    @Query(value = "INSERT INTO conversation_read_states (user_id, conversation_id, last_read_message_id, last_read_seq, read_at) " +
+                   "VALUES (:userId, :conversationId, :messageId, :seq, :readAt) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "read_at = IF(VALUES(last_read_seq) > last_read_seq OR read_at IS NULL, VALUES(read_at), read_at), " +
+                   "last_read_message_id = IF(VALUES(last_read_seq) > last_read_seq, VALUES(last_read_message_id), last_read_message_id), " +
+                   "last_read_seq = GREATEST(last_read_seq, VALUES(last_read_seq))",
+           nativeQuery = true)
+    int advanceWatermark(@Param("userId") Long userId,
+                         @Param("conversationId") Long conversationId,
+                         @Param("messageId") Long messageId,
+                         @Param("seq") Long seq,
+                         @Param("readAt") LocalDateTime readAt);
+
+    /**
+     * Find the read states of all participants of a conversation.
+     *
+     * @param conversationId the ID of the conversation
+     * @return the read states of users who have read anything in the conversation
+     */
+    List<ConversationReadState> findByConversationId(Long conversationId);
+
+    /**
+     * Find the read states of a user across all conversations.
+     *
+     * @param userId the ID of the user
+     * @return the user's read states
+     */
+    List<ConversationReadState> findByUserId(Long userId);
+}
@@ -1,12 +1,17 @@
 package com.chat.app.backend.feature.chat.repository;
 
 import com.chat.app.backend.feature.chat.model.Conversation;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
 import com.chat.app.backend.feature.user.model.User;
+import com.chat.app.backend.feature.user.model.UserStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +21,108 @@ import java.util.Optional;
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
 
+    /**
+     * Projection of a single conversation membership.
+     */
+    interface ParticipantView {
+        Long getConversationId();
+        Long getUserId();
+    }
+
+    /**
+     * Projection of a contact: a user who shares at least one conversation with the subject.
+     */
+    interface ContactView {
+        Long getSubjectId();
+        Long getContactId();
+        String getContactUsername();
+    }
+
+    /**
+     * Projection of one (conversation, participant) pair for the conversation list,
+     * carrying the conversation columns alongside the participant columns.
+     */
+    interface ConversationListRow {
+        Long getConversationId();
+        String getName();
+        String getDescription();
+        String getAvatarUrl();
+        Boolean getGroupChat();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getUpdatedAt();
+        Long getCreatorId();
+        String getCreatorUsername();
+        Long getLastMessageId();
+        Long getLastMessageSenderId();
+        String getLastMessageSenderUsername();
+        String getLastMessagePreview();
+        LocalDateTime getLastMessageSentAt();
+        MessageStatus getLastMessageStatus();
+        Long getParticipantId();
+        String getParticipantUsername();
+        String getParticipantEmail();
+        String getParticipantFullName();
+        String getParticipantAvatarUrl();
+        UserStatus getParticipantStatus();
+        LocalDateTime getParticipantLastActive();
+    }
+
+    // Shared SELECT for the conversation list queries; "me" is the requesting user
+    String CONVERSATION_LIST_SELECT =
+            "SELECT c.id AS conversationId, c.name AS name, c.description AS description, " +
+            "c.avatarUrl AS avatarUrl, c.isGroupChat AS groupChat, c.createdAt AS createdAt, " +
+            "c.updatedAt AS updatedAt, cr.id AS creatorId, cr.username AS creatorUsername, " +
+            "c.lastMessageId AS lastMessageId, c.lastMessageSenderId AS lastMessageSenderId, " +
+            "c.lastMessageSenderUsername AS lastMessageSenderUsername, c.lastMessagePreview AS lastMessagePreview, " +
+            "c.lastMessageSentAt AS lastMessageSentAt, c.lastMessageStatus AS lastMessageStatus, " +
+            "p.id AS participantId, p.username AS participantUsername, p.email AS participantEmail, " +
+            "p.fullName AS participantFullName, p.avatarUrl AS participantAvatarUrl, " +
+            "p.status AS participantStatus, p.lastActive AS participantLastActive " +
+            "FROM Conversation c JOIN c.participants me JOIN c.participants p LEFT JOIN c.creator cr ";
+
+    /**
+     * Load the conversation list of a user in a single query: one row per participant of
+     * every conversation the user belongs to, without materializing entities.
+     *
+     * @param userId the ID of the user
+     * @return the conversation list rows
+     */
+    @Query(CONVERSATION_LIST_SELECT + "WHERE me.id = :userId")
+    List<ConversationListRow> findConversationListRows(@Param("userId") Long userId);
+
+    /**
+     * Load the conversations of a user whose name contains the given string (case insensitive),
+     * in the same shape as {@link #findConversationListRows(Long)}.
+     *
+     * @param userId the ID of the user
+     * @param name the name pattern to search for
+     * @return the conversation list rows
+     */
+    @Query(CONVERSATION_LIST_SELECT + "WHERE me.id = :userId AND LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<ConversationListRow> findConversationListRowsByName(@Param("userId") Long userId, @Param("name") String name);
+
+    /**
+     * Load the participants of several conversations in a single query,
+     * without materializing the conversations or their lazy collections.
+     *
+     * @param conversationIds the conversation IDs
+     * @return one row per (conversation, participant) pair
+     */
+    @Query("SELECT c.id AS conversationId, p.id AS userId " +
+           "FROM Conversation c JOIN c.participants p WHERE c.id IN :conversationIds")
+    List<ParticipantView> findParticipantsByConversationIds(@Param("conversationIds") Collection<Long> conversationIds);
+
+    /**
+     * Find the contacts of several users in a single query.
+     *
+     * @param userIds the IDs of the users
+     * @return one row per (user, contact) pair
+     */
+    @Query("SELECT DISTINCT me.id AS subjectId, p.id AS contactId, p.username AS contactUsername " +
+           "FROM Conversation c JOIN c.participants me JOIN c.participants p " +
+           "WHERE me.id IN :userIds AND p.id <> me.id")
+    List<ContactView> findContactsByUserIds(@Param("userIds") Collection<Long> userIds);
+
     /**
      * Find all conversations that a user participates in.
      *
@@ -54,6 +161,17 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
            "WHERE c.isGroupChat = false AND p1 = :user1 AND p2 = :user2")
     Optional<Conversation> findOneToOneConversation(@Param("user1") User user1, @Param("user2") User user2);
 
+    /**
+     * Look up a participant's username, confirming in a single query that the user
+     * exists and belongs to the conversation.
+     *
+     * @param conversationId the conversation ID
+     * @param userId the user ID
+     * @return an Optional containing the username if the user is a participant
+     */
+    @Query("SELECT p.username FROM Conversation c JOIN c.participants p WHERE c.id = :conversationId AND p.id = :userId")
+    Optional<String> findParticipantUsername(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+
     /**
      * Find conversations by name containing the given string (case insensitive).
      *
@@ -69,4 +187,47 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
      * @return a list of conversations created by the user
      */
     List<Conversation> findByCreator(User creator);
-}
\ No newline at end of file
+
+    /**
+     * Find the IDs of the conversations a user participates in.
+     *
+     * @param userId the ID of the user
+     * @return the conversation IDs
+     */
+    @Query("SELECT c.id FROM Conversation c JOIN c.participants p WHERE p.id = :userId")
+    List<Long> findConversationIdsByParticipantId(@Param("userId") Long userId);
+
+    /**
+     * Move the last-message snapshot of the conversations whose newest message is one of the
+     * given messages to a new status, if it is currently in one of the expected statuses.
+     *
+     * @param messageIds the IDs of the messages whose status changed
+     * @param currentStatuses the statuses the snapshot may be moved from
+     * @param newStatus the new status
+     * @return the number of conversations updated
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageStatus = :newStatus " +
+           "WHERE c.lastMessageId IN :messageIds AND c.lastMessageStatus IN :currentStatuses")
+    int updateLastMessageStatus(@Param("messageIds") Collection<Long> messageIds,
+                                @Param("currentStatuses") Collection<MessageStatus> currentStatuses,
+                                @Param("newStatus") MessageStatus newStatus);
+
+    /**
+     * Mark the last-message snapshot of a one-to-one conversation as READ once the recipient
+     * has read up to it. Group chats keep the snapshot's delivery status, since READ there
+     * depends on every participant's watermark.
+     *
+     * @param conversationId the conversation ID
+     * @param upToMessageId the reader's new watermark
+     * @param readerId the ID of the reader
+     * @return the number of conversations updated
+     */
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageStatus = com.chat.app.backend.feature.chat.model.MessageStatus.READ " +
+           "WHERE c.id = :conversationId AND c.isGroupChat = false AND c.lastMessageId <= :upToMessageId " +
+           "AND c.lastMessageSenderId <> :readerId")
+    int markLastMessageRead(@Param("conversationId") Long conversationId,
+                            @Param("upToMessageId") Long upToMessageId,
+                            @Param("readerId") Long readerId);
+}
@@ -1,12 +1,20 @@
 package com.chat.app.backend.feature.chat.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -15,20 +23,78 @@ import com.chat.app.backend.feature.chat.model.Message;
 import com.chat.app.backend.feature.chat.model.MessageStatus;
 import com.chat.app.backend.feature.user.model.User;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Repository interface for Message entity operations.
  */
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
 
+    /**
+     * Projection of a message awaiting delivery.
+     */
+    interface DeliveryCandidate {
+        Long getId();
+        Long getConversationId();
+        Long getSenderId();
+    }
+
+    /**
+     * Projection of a message for offline sync, carrying the sender's username so no
+     * entities are loaded while a sync streams through the result.
+     */
+    interface SyncMessageView {
+        Long getId();
+        Long getConversationId();
+        Long getSeq();
+        Long getSenderId();
+        String getSenderUsername();
+        String getContent();
+        LocalDateTime getSentAt();
+        LocalDateTime getDeliveredAt();
+        LocalDateTime getReadAt();
+        MessageStatus getStatus();
+    }
+
+    /**
+     * Projection of a PENDING message's retry state.
+     */
+    interface RetryCandidate {
+        Long getId();
+        Long getConversationId();
+        Integer getRetryCount();
+        LocalDateTime getNextRetryAt();
+    }
+
+    /**
+     * Projection of a message's identity and position in its conversation.
+     */
+    interface MessagePosition {
+        Long getId();
+        Long getSeq();
+    }
+
+    /**
+     * Projection of a count of messages, with the highest sequence number the count covers.
+     */
+    interface SeqBoundedCount {
+        Long getCount();
+        Long getMaxSeq();
+    }
+
+    // Rows fetched per round trip while streaming a sync; matches the default sync batch size
+    String SYNC_FETCH_SIZE = "200";
+
     /**
      * Find all messages in a conversation, ordered by sent time.
+     * Returns a slice rather than a page so no COUNT query is issued.
      *
      * @param conversation the conversation to find messages for
      * @param pageable pagination information
-     * @return a page of messages in the conversation
+     * @return a slice of messages in the conversation
      */
-    Page<Message> findByConversationOrderBySentAtDesc(Conversation conversation, Pageable pageable);
+    Slice<Message> findByConversationOrderBySentAtDesc(Conversation conversation, Pageable pageable);
 
     /**
      * Find all messages in a conversation, ordered by sent time ascending (oldest first).
@@ -39,6 +105,47 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
      */
     Page<Message> findByConversationOrderBySentAtAsc(Conversation conversation, Pageable pageable);
 
+    /**
+     * Find the newest messages in a conversation (first page of keyset-paginated history).
+     *
+     * @param conversationId the conversation ID
+     * @param pageable the slice size (page number is always 0)
+     * @return a slice of messages, newest first
+     */
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+           "ORDER BY m.seq DESC")
+    Slice<Message> findLatestByConversationId(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    /**
+     * Find messages in a conversation with a sequence number below a cursor.
+     *
+     * @param conversationId the conversation ID
+     * @param seq the cursor's sequence number (exclusive)
+     * @param pageable the slice size (page number is always 0)
+     * @return a slice of messages older than the cursor, newest first
+     */
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+           "AND m.seq < :seq ORDER BY m.seq DESC")
+    Slice<Message> findByConversationIdBefore(@Param("conversationId") Long conversationId,
+                                              @Param("seq") long seq,
+                                              Pageable pageable);
+
+    /**
+     * Find messages in a conversation with a sequence number above a cursor.
+     * Sequence numbers are gap-free, so this returns exactly the messages a client holding
+     * everything up to {@code seq} is missing.
+     *
+     * @param conversationId the conversation ID
+     * @param seq the cursor's sequence number (exclusive)
+     * @param pageable the slice size (page number is always 0)
+     * @return a slice of messages newer than the cursor, oldest first
+     */
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+           "AND m.seq > :seq ORDER BY m.seq ASC")
+    Slice<Message> findByConversationIdAfter(@Param("conversationId") Long conversationId,
+                                             @Param("seq") long seq,
+                                             Pageable pageable);
+
     /**
      * Find all messages sent by a specific user in a conversation.
      *
@@ -70,15 +177,6 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
            "AND m.sender != :user AND (m.readAt IS NULL OR m.status != 'READ')")
     long countUnreadMessagesForUser(@Param("conversation") Conversation conversation, @Param("user") User user);
 
-    /**
-     * Find messages sent after a specific time in a conversation.
-     *
-     * @param conversation the conversation to find messages in
-     * @param timestamp the time after which to find messages
-     * @return a list of messages sent after the specified time
-     */
-    List<Message> findByConversationAndSentAtAfterOrderBySentAtAsc(Conversation conversation, LocalDateTime timestamp);
-
     /**
      * Find the latest message in each conversation for a user.
      *
@@ -111,14 +209,29 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByStatus(MessageStatus status);
 
     /**
-     * Find messages by status with a limit on retry count.
+     * Find PENDING messages whose next retry is due by a given time, earliest first.
+     * Backed by the (status, next_retry_at) index, so the scan is bounded by the limit.
      *
-     * @param status the status to find messages for
-     * @param maxRetryCount the maximum retry count
-     * @return a list of messages with the specified status and retry count less than or equal to maxRetryCount
+     * @param until the latest retry time to include
+     * @param pageable the maximum number of messages to return
+     * @return the retry candidates
+     */
+    @Query("SELECT m.id AS id, m.conversation.id AS conversationId, m.retryCount AS retryCount, " +
+           "m.nextRetryAt AS nextRetryAt FROM Message m " +
+           "WHERE m.status = com.chat.app.backend.feature.chat.model.MessageStatus.PENDING " +
+           "AND m.nextRetryAt <= :until ORDER BY m.nextRetryAt ASC, m.id ASC")
+    List<RetryCandidate> findDueForRetry(@Param("until") LocalDateTime until, Pageable pageable);
+
+    /**
+     * Find the retry state of several messages that are still PENDING.
+     *
+     * @param ids the message IDs
+     * @return the retry candidates among the given messages
      */
-    @Query("SELECT m FROM Message m WHERE m.status = :status AND m.retryCount <= :maxRetryCount")
-    List<Message> findByStatusAndRetryCountLessThanEqual(@Param("status") MessageStatus status, @Param("maxRetryCount") Integer maxRetryCount);
+    @Query("SELECT m.id AS id, m.conversation.id AS conversationId, m.retryCount AS retryCount, " +
+           "m.nextRetryAt AS nextRetryAt FROM Message m " +
+           "WHERE m.status = com.chat.app.backend.feature.chat.model.MessageStatus.PENDING AND m.id IN :ids")
+    List<RetryCandidate> findRetryCandidatesByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
      * Find messages sent to a specific user with a specific status.
@@ -146,13 +259,134 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
             @Param("sender") User sender);
 
     /**
-     * Find messages in conversations where a user is a participant and sent after a specific time.
+     * Stream the messages of a user's conversations after a message ID, in ID order.
+     * Rows are mapped one at a time rather than collected into a list, and the JDBC fetch size is
+     * {@link #SYNC_FETCH_SIZE} (MySQL Connector/J honors it with useCursorFetch=true; otherwise
+     * the limit bounds the result). The stream must be consumed inside a transaction and closed.
+     *
+     * @param userId the ID of the participant
+     * @param afterId the ID after which to start (exclusive)
+     * @param limit the maximum number of messages to return
+     * @return the messages, oldest first
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = SYNC_FETCH_SIZE))
+    @Query("SELECT m.id AS id, m.conversation.id AS conversationId, m.seq AS seq, s.id AS senderId, " +
+           "s.username AS senderUsername, m.content AS content, m.sentAt AS sentAt, " +
+           "m.deliveredAt AS deliveredAt, m.readAt AS readAt, m.status AS status " +
+           "FROM Message m JOIN m.sender s " +
+           "WHERE m.conversation.id IN (SELECT c.id FROM Conversation c JOIN c.participants p WHERE p.id = :userId) " +
+           "AND m.id > :afterId ORDER BY m.id ASC")
+    Stream<SyncMessageView> streamMessagesForSync(@Param("userId") Long userId,
+                                                  @Param("afterId") Long afterId,
+                                                  Limit limit);
+
+    /**
+     * Find the ID of the oldest message in a user's conversations sent after a specific time.
      *
-     * @param user the participant user
+     * @param userId the ID of the participant
      * @param since the time after which messages were sent
-     * @return a list of messages in the user's conversations sent after the specified time
+     * @return the message ID, or null if no message was sent since
      */
-    @Query("SELECT m FROM Message m JOIN m.conversation c JOIN c.participants p " +
-           "WHERE p.id = :#{#user.id} AND m.sentAt > :since ORDER BY m.sentAt ASC")
-    List<Message> findByConversationParticipantAndSentAtAfter(@Param("user") User user, @Param("since") LocalDateTime since);
-}
\ No newline at end of file
+    @Query("SELECT MIN(m.id) FROM Message m " +
+           "WHERE m.conversation.id IN (SELECT c.id FROM Conversation c JOIN c.participants p WHERE p.id = :userId) " +
+           "AND m.sentAt > :since")
+    Long findFirstMessageIdSentAfter(@Param("userId") Long userId, @Param("since") LocalDateTime since);
+
+    /**
+     * Load several messages with their senders in a single query.
+     *
+     * @param ids the message IDs
+     * @return the messages that exist, in no particular order
+     */
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.id IN :ids")
+    List<Message> findAllWithSenderByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Move several messages to a new status and set their delivery time in one statement.
+     * Only messages currently in one of the given statuses are changed, so a later
+     * status (e.g. READ) is never downgraded.
+     *
+     * @param ids the message IDs
+     * @param currentStatuses the statuses a message must be in to be updated
+     * @param newStatus the status to set
+     * @param deliveredAt the delivery time to set
+     * @return the number of messages updated
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.status = :newStatus, m.deliveredAt = :deliveredAt " +
+           "WHERE m.id IN :ids AND m.status IN :currentStatuses")
+    int updateStatusAndDeliveredAt(@Param("ids") Collection<Long> ids,
+                                   @Param("currentStatuses") Collection<MessageStatus> currentStatuses,
+                                   @Param("newStatus") MessageStatus newStatus,
+                                   @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    /**
+     * Move several messages from one status to another in one statement.
+     *
+     * @param ids the message IDs
+     * @param currentStatus the status a message must be in to be updated
+     * @param newStatus the status to set
+     * @return the number of messages updated
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.status = :newStatus WHERE m.id IN :ids AND m.status = :currentStatus")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("currentStatus") MessageStatus currentStatus,
+                     @Param("newStatus") MessageStatus newStatus);
+
+    /**
+     * Find messages in a given status after a keyset position, in ID order.
+     * Backed by the (status, id) index, so each chunk is a bounded range scan.
+     *
+     * @param status the message status
+     * @param afterId the last message ID of the previous chunk (0 for the first chunk)
+     * @param pageable the chunk size
+     * @return the next chunk of candidates
+     */
+    @Query("SELECT m.id AS id, m.conversation.id AS conversationId, m.sender.id AS senderId FROM Message m " +
+           "WHERE m.status = :status AND m.id > :afterId ORDER BY m.id ASC")
+    List<DeliveryCandidate> findDeliveryCandidates(@Param("status") MessageStatus status,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
+    /**
+     * Find messages in a given status, addressed to a recipient, after a keyset position, in ID order.
+     *
+     * @param recipientId the ID of the recipient
+     * @param status the message status
+     * @param afterId the last message ID of the previous chunk (0 for the first chunk)
+     * @param pageable the chunk size
+     * @return the next chunk of candidates in the recipient's conversations not sent by the recipient
+     */
+    @Query("SELECT m.id AS id, m.conversation.id AS conversationId, m.sender.id AS senderId FROM Message m " +
+           "WHERE m.status = :status AND m.id > :afterId AND m.sender.id <> :recipientId " +
+           "AND m.conversation.id IN (SELECT c.id FROM Conversation c JOIN c.participants p WHERE p.id = :recipientId) " +
+           "ORDER BY m.id ASC")
+    List<DeliveryCandidate> findDeliveryCandidatesForRecipient(@Param("recipientId") Long recipientId,
+                                                               @Param("status") MessageStatus status,
+                                                               @Param("afterId") Long afterId,
+                                                               Pageable pageable);
+
+    /**
+     * Find the positions of the newest messages in a conversation, newest first.
+     *
+     * @param conversationId the conversation ID
+     * @param pageable how many positions to return
+     * @return the message IDs and sequence numbers
+     */
+    @Query("SELECT m.id AS id, m.seq AS seq FROM Message m WHERE m.conversation.id = :conversationId ORDER BY m.seq DESC")
+    List<MessagePosition> findLatestPositions(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    /**
+     * Count the messages in a conversation not sent by the given user. Sequence numbers are
+     * allocated and committed in order, so the count covers exactly the messages up to the
+     * returned sequence number.
+     *
+     * @param conversationId the conversation ID
+     * @param userId the ID of the user whose own messages are excluded
+     * @return the message count and the highest sequence number in the conversation
+     */
+    @Query("SELECT COUNT(CASE WHEN m.sender.id <> :userId THEN 1 END) AS count, COALESCE(MAX(m.seq), 0) AS maxSeq " +
+           "FROM Message m WHERE m.conversation.id = :conversationId")
+    SeqBoundedCount countFromOthers(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+}
@@ -5,10 +5,6 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,12 +12,11 @@ import com.chat.app.backend.feature.chat.dto.ConversationDTO;
 import com.chat.app.backend.feature.chat.dto.MessageDTO;
 import com.chat.app.backend.feature.user.dto.UserDTO;
 import com.chat.app.backend.feature.chat.model.Conversation;
-import com.chat.app.backend.feature.chat.model.Message;
 import com.chat.app.backend.feature.chat.model.MessageStatus;
 import com.chat.app.backend.feature.user.model.User;
 import com.chat.app.backend.feature.chat.repository.ConversationRepository;
-import com.chat.app.backend.feature.chat.repository.MessageRepository;
 import com.chat.app.backend.feature.user.repository.UserRepository;
+import com.chat.app.backend.feature.user.service.PresenceService;
 
 /**
  * Service for conversation operations.
@@ -36,7 +31,10 @@ public class ConversationService {
     private UserRepository userRepository;
 
     @Autowired
-    private MessageRepository messageRepository;
+    private UnreadCounterService unreadCounterService;
+
+    @Autowired
+    private PresenceService presenceService;
 
     /**
      * Get all conversations for a user.
@@ -46,82 +44,106 @@ public class ConversationService {
      * @return list of conversation DTOs
      */
     public List<ConversationDTO> getConversationsForUser(Long userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             throw new RuntimeException("User not found");
         }
-        User currentUser = userOpt.get();
 
-        // Get all conversations the user is part of
-        List<Conversation> allConversations = conversationRepository.findByParticipant(currentUser);
+        // Get all conversations the user is part of, with their participants, in one query
+        List<ConversationDTO> allConversations = assembleConversationList(userId,
+                conversationRepository.findConversationListRows(userId));
 
-        // Separate group chats and one-to-one chats
-        List<Conversation> groupChats = allConversations.stream()
-                .filter(Conversation::isGroupChat)
-                .collect(Collectors.toList());
+        // Separate group chats and one-to-one chats; group one-to-one chats by the other participant
+        List<ConversationDTO> consolidatedConversations = new ArrayList<>();
+        Map<Long, ConversationDTO> latestByParticipant = new HashMap<>();
 
-        List<Conversation> oneToOneChats = allConversations.stream()
-                .filter(c -> !c.isGroupChat())
-                .collect(Collectors.toList());
-
-        // Group one-to-one conversations by the other participant
-        Map<Long, List<Conversation>> conversationsByParticipant = new HashMap<>();
+        for (ConversationDTO conversation : allConversations) {
+            if (conversation.isGroupChat()) {
+                consolidatedConversations.add(conversation);
+                continue;
+            }
 
-        for (Conversation conversation : oneToOneChats) {
             // Find the other participant
-            User otherParticipant = conversation.getParticipants().stream()
+            UserDTO otherParticipant = conversation.getParticipants().stream()
                     .filter(p -> !p.getId().equals(userId))
                     .findFirst()
                     .orElse(null);
 
             if (otherParticipant != null) {
-                Long participantId = otherParticipant.getId();
-                if (!conversationsByParticipant.containsKey(participantId)) {
-                    conversationsByParticipant.put(participantId, new ArrayList<>());
-                }
-                conversationsByParticipant.get(participantId).add(conversation);
+                // For each participant, keep only the most recent conversation
+                latestByParticipant.merge(otherParticipant.getId(), conversation,
+                        (current, candidate) -> activityOf(candidate).isAfter(activityOf(current)) ? candidate : current);
             }
         }
+        consolidatedConversations.addAll(latestByParticipant.values());
+
+        // Sort all conversations by updatedAt (most recent first)
+        consolidatedConversations.sort((a, b) -> activityOf(b).compareTo(activityOf(a)));
 
-        // For each participant, keep only the most recent conversation
-        List<Conversation> consolidatedOneToOneChats = new ArrayList<>();
+        return consolidatedConversations;
+    }
 
-        for (List<Conversation> participantConversations : conversationsByParticipant.values()) {
-            // Sort by updatedAt (most recent first)
-            participantConversations.sort((a, b) -> {
-                LocalDateTime timeA = a.getUpdatedAt() != null ? a.getUpdatedAt() : a.getCreatedAt();
-                LocalDateTime timeB = b.getUpdatedAt() != null ? b.getUpdatedAt() : b.getCreatedAt();
-                return timeB.compareTo(timeA);
+    /**
+     * Build conversation DTOs from conversation list rows, which carry the last-message
+     * snapshot, and populate unread counts with a single lookup for the whole list.
+     *
+     * @param userId the ID of the requesting user
+     * @param rows one row per (conversation, participant) pair
+     * @return the conversation DTOs, in row order
+     */
+    private List<ConversationDTO> assembleConversationList(Long userId, List<ConversationRepository.ConversationListRow> rows) {
+        Map<Long, ConversationDTO> conversations = new LinkedHashMap<>();
+
+        for (ConversationRepository.ConversationListRow row : rows) {
+            ConversationDTO dto = conversations.computeIfAbsent(row.getConversationId(), id -> {
+                ConversationDTO conversation = new ConversationDTO();
+                conversation.setId(id);
+                conversation.setName(row.getName());
+                conversation.setDescription(row.getDescription());
+                conversation.setAvatarUrl(row.getAvatarUrl());
+                conversation.setGroupChat(Boolean.TRUE.equals(row.getGroupChat()));
+                conversation.setCreatedAt(row.getCreatedAt());
+                conversation.setUpdatedAt(row.getUpdatedAt());
+                conversation.setCreatorId(row.getCreatorId());
+                conversation.setCreatorUsername(row.getCreatorUsername());
+                conversation.setLastMessage(lastMessageOf(id, row.getLastMessageId(), row.getLastMessageSenderId(),
+                        row.getLastMessageSenderUsername(), row.getLastMessagePreview(),
+                        row.getLastMessageSentAt(), row.getLastMessageStatus()));
+                return conversation;
             });
 
-            // Add only the most recent conversation
-            if (!participantConversations.isEmpty()) {
-                consolidatedOneToOneChats.add(participantConversations.get(0));
-            }
+            UserDTO participant = new UserDTO();
+            participant.setId(row.getParticipantId());
+            participant.setUsername(row.getParticipantUsername());
+            participant.setEmail(row.getParticipantEmail());
+            participant.setFullName(row.getParticipantFullName());
+            participant.setAvatarUrl(row.getParticipantAvatarUrl());
+            // The users columns are only written on presence flushes; live presence comes first
+            participant.setStatus(presenceService.getStatus(row.getParticipantId(), row.getParticipantStatus()));
+            participant.setLastActive(presenceService.getLastActive(row.getParticipantId(),
+                    row.getParticipantLastActive()));
+            dto.getParticipants().add(participant);
+        }
+
+        if (conversations.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        // Combine group chats and consolidated one-to-one chats
-        List<Conversation> consolidatedConversations = new ArrayList<>();
-        consolidatedConversations.addAll(groupChats);
-        consolidatedConversations.addAll(consolidatedOneToOneChats);
+        // Unread counts for every conversation in one lookup
+        Map<Long, Long> unreadCounts = unreadCounterService.getUnreadCounts(userId, conversations.keySet());
+        conversations.forEach((conversationId, dto) ->
+                dto.setUnreadCount(unreadCounts.getOrDefault(conversationId, 0L).intValue()));
 
-        // Sort all conversations by updatedAt (most recent first)
-        consolidatedConversations.sort((a, b) -> {
-            LocalDateTime timeA = a.getUpdatedAt() != null ? a.getUpdatedAt() : a.getCreatedAt();
-            LocalDateTime timeB = b.getUpdatedAt() != null ? b.getUpdatedAt() : b.getCreatedAt();
-            return timeB.compareTo(timeA);
-        });
-
-        // Convert to DTOs and populate with latest messages
-        List<ConversationDTO> conversationDTOs = consolidatedConversations.stream()
-                .map(conversation -> {
-                    ConversationDTO dto = convertToDTO(conversation);
-                    populateLatestMessage(dto, conversation);
-                    return dto;
-                })
-                .collect(Collectors.toList());
-
-        return conversationDTOs;
+        return new ArrayList<>(conversations.values());
+    }
+
+    /**
+     * Get the time of the last activity in a conversation, for ordering the conversation list.
+     *
+     * @param conversation the conversation DTO
+     * @return the update time, or the creation time if the conversation was never updated
+     */
+    private LocalDateTime activityOf(ConversationDTO conversation) {
+        return conversation.getUpdatedAt() != null ? conversation.getUpdatedAt() : conversation.getCreatedAt();
     }
 
     /**
@@ -138,7 +160,6 @@ public class ConversationService {
 
         Conversation conversation = conversationOpt.get();
         ConversationDTO dto = convertToDTO(conversation);
-        populateLatestMessage(dto, conversation);
         return dto;
     }
 
@@ -167,7 +188,6 @@ public class ConversationService {
         }
 
         ConversationDTO dto = convertToDTO(conversation);
-        populateLatestMessage(dto, conversation);
         return dto;
     }
 
@@ -198,7 +218,6 @@ public class ConversationService {
         Optional<Conversation> existingConversation = conversationRepository.findOneToOneConversation(creator, participant);
         if (existingConversation.isPresent()) {
             ConversationDTO dto = convertToDTO(existingConversation.get());
-            populateLatestMessage(dto, existingConversation.get());
             return dto;
         }
 
@@ -207,7 +226,6 @@ public class ConversationService {
         Conversation savedConversation = conversationRepository.save(conversation);
 
         ConversationDTO dto = convertToDTO(savedConversation);
-        populateLatestMessage(dto, savedConversation);
         return dto;
     }
 
@@ -245,7 +263,6 @@ public class ConversationService {
         Conversation savedConversation = conversationRepository.save(conversation);
 
         ConversationDTO dto = convertToDTO(savedConversation);
-        populateLatestMessage(dto, savedConversation);
         return dto;
     }
 
@@ -282,7 +299,6 @@ public class ConversationService {
         Conversation savedConversation = conversationRepository.save(conversation);
 
         ConversationDTO dto = convertToDTO(savedConversation);
-        populateLatestMessage(dto, savedConversation);
         return dto;
     }
 
@@ -323,7 +339,6 @@ public class ConversationService {
         Conversation savedConversation = conversationRepository.save(conversation);
 
         ConversationDTO dto = convertToDTO(savedConversation);
-        populateLatestMessage(dto, savedConversation);
         return dto;
     }
 
@@ -362,7 +377,6 @@ public class ConversationService {
         Conversation savedConversation = conversationRepository.save(conversation);
 
         ConversationDTO dto = convertToDTO(savedConversation);
-        populateLatestMessage(dto, savedConversation);
         return dto;
     }
 
@@ -393,35 +407,41 @@ public class ConversationService {
                 .collect(Collectors.toSet());
         dto.setParticipants(participantDTOs);
 
+        dto.setLastMessage(lastMessageOf(conversation.getId(), conversation.getLastMessageId(),
+                conversation.getLastMessageSenderId(), conversation.getLastMessageSenderUsername(),
+                conversation.getLastMessagePreview(), conversation.getLastMessageSentAt(),
+                conversation.getLastMessageStatus()));
+
         return dto;
     }
 
     /**
-     * Populate the latest message for a conversation DTO.
+     * Build the last-message DTO from a conversation's snapshot columns.
      *
-     * @param dto the conversation DTO to populate
-     * @param conversation the conversation entity
+     * @param conversationId the conversation ID
+     * @param messageId the ID of the newest message, or null if there are no messages
+     * @param senderId the ID of its sender
+     * @param senderUsername the username of its sender
+     * @param preview the truncated message content
+     * @param sentAt the send time
+     * @param status the message status
+     * @return the message DTO, or null if the conversation has no messages
      */
-    private void populateLatestMessage(ConversationDTO dto, Conversation conversation) {
-        // Use a pageable to get the most recent message
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "sentAt"));
-        Page<Message> latestMessagePage = messageRepository.findByConversationOrderBySentAtDesc(conversation, pageable);
-
-        if (latestMessagePage.hasContent()) {
-            Message latestMessage = latestMessagePage.getContent().get(0);
-            MessageDTO messageDTO = new MessageDTO();
-            messageDTO.setId(latestMessage.getId());
-            messageDTO.setContent(latestMessage.getContent());
-            messageDTO.setSentAt(latestMessage.getSentAt());
-            messageDTO.setStatus(latestMessage.getStatus());
-
-            if (latestMessage.getSender() != null) {
-                messageDTO.setSenderId(latestMessage.getSender().getId());
-                messageDTO.setSenderUsername(latestMessage.getSender().getUsername());
-            }
-
-            dto.setLastMessage(messageDTO);
-        }
+    private MessageDTO lastMessageOf(Long conversationId, Long messageId, Long senderId, String senderUsername,
+                                     String preview, LocalDateTime sentAt, MessageStatus status) {
+        if (messageId == null) {
+            return null;
+        }
+
+        MessageDTO messageDTO = new MessageDTO();
+        messageDTO.setId(messageId);
+        messageDTO.setConversationId(conversationId);
+        messageDTO.setSenderId(senderId);
+        messageDTO.setSenderUsername(senderUsername);
+        messageDTO.setContent(preview);
+        messageDTO.setSentAt(sentAt);
+        messageDTO.setStatus(status);
+        return messageDTO;
     }
 
     /**
@@ -437,8 +457,8 @@ public class ConversationService {
         dto.setEmail(user.getEmail());
         dto.setFullName(user.getFullName());
         dto.setAvatarUrl(user.getAvatarUrl());
-        dto.setStatus(user.getStatus());
-        dto.setLastActive(user.getLastActive());
+        dto.setStatus(presenceService.getStatus(user.getId(), user.getStatus()));
+        dto.setLastActive(presenceService.getLastActive(user.getId(), user.getLastActive()));
         return dto;
     }
 
@@ -544,7 +564,6 @@ public class ConversationService {
         Conversation savedConversation = conversationRepository.save(conversation);
 
         ConversationDTO dto = convertToDTO(savedConversation);
-        populateLatestMessage(dto, savedConversation);
         return dto;
     }
 
@@ -560,25 +579,12 @@ public class ConversationService {
             return getConversationsForUser(userId);
         }
 
-        // Get all conversations the user has access to
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             throw new RuntimeException("User not found");
         }
 
-        User user = userOpt.get();
-
-        // Find conversations by name containing the query
-        List<Conversation> matchingConversations = conversationRepository.findByNameContainingIgnoreCase(query);
-
-        // Filter to only include conversations the user is a participant in
-        return matchingConversations.stream()
-                .filter(conversation -> conversation.getParticipants().contains(user))
-                .map(conversation -> {
-                    ConversationDTO dto = convertToDTO(conversation);
-                    populateLatestMessage(dto, conversation);
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // Find conversations of the user by name containing the query
+        return assembleConversationList(userId,
+                conversationRepository.findConversationListRowsByName(userId, query.trim()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.chat.app.backend.feature.chat.service;
+
+/**
+ * Bounded set of the most recently processed event keys.
+ * Keys are longs held in two primitive arrays: a ring buffer that remembers insertion order,
+ * and an open-addressing hash table (linear probing) for lookups. Once the window is full,
+ * adding a key evicts the oldest one, so memory stays under 40 bytes per key no matter how
+ * many events pass through. Zero is reserved as the empty marker and cannot be used as a key.
+ * Thread-safe.
+ */
+class DedupeWindow {
+
+    private final long[] ring;
+    private final long[] table;
+    private final int mask;
+    private int head;
+    private int size;
+
+    /**
+     * @param capacity the number of keys the window remembers
+     */
+    DedupeWindow(int capacity) {
+        this.ring = new long[capacity];
+        // At most half full, so probe sequences stay short
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 1) * 4 - 1);
+        this.table = new long[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    /**
+     * Add a key unless it is already in the window.
+     *
+     * @param key the event key, not zero
+     * @return true if the key was added, false if it is a duplicate
+     */
+    synchronized boolean add(long key) {
+        int slot = find(key);
+        if (table[slot] == key) {
+            return false;
+        }
+
+        if (size == ring.length) {
+            delete(ring[head]);
+            size--;
+        }
+        table[find(key)] = key;
+        ring[head] = key;
+        head = (head + 1) % ring.length;
+        size++;
+        return true;
+    }
+
+    /**
+     * Forget a key, e.g. because processing of its event was rolled back.
+     * The key's ring entry stays in place and is skipped when it is evicted; a key that is
+     * removed and added again may therefore be forgotten a little early.
+     *
+     * @param key the event key
+     */
+    synchronized void remove(long key) {
+        delete(key);
+    }
+
+    /**
+     * @return the number of slots in the ring, including those of removed keys
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        int slot = (int) mix(key) & mask;
+        while (table[slot] != 0 && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Remove a key from the hash table, shifting back later entries of its probe sequence
+     * so lookups never stop at the hole.
+     */
+    private void delete(long key) {
+        int slot = find(key);
+        if (table[slot] != key) {
+            return;
+        }
+
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int home = (int) mix(table[next]) & mask;
+            // Move the entry into the hole unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private static long mix(long key) {
+        // Fibonacci hashing spreads sequential IDs over the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,326 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.chat.repository.MessageRepository;
+import com.chat.app.backend.feature.chat.repository.MessageRepository.DeliveryCandidate;
+import com.chat.app.backend.feature.user.service.PresenceService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Event-driven delivery receipts.
+ * When a recipient connects or subscribes to a conversation, their SENT messages are marked
+ * DELIVERED with bulk updates, and the transitions are aggregated into status frames per conversation. Requests are coalesced per
+ * user and processed off the WebSocket threads. A bounded fallback sweep walks remaining SENT
+ * messages in keyset-paged chunks and delivers those whose recipients are online; each run
+ * resumes where the previous one stopped, so messages to offline recipients cannot keep the
+ * sweep from reaching newer ones.
+ */
+@Service
+public class DeliveryReceiptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeliveryReceiptService.class);
+
+    private static final String CONVERSATION_TOPIC_PREFIX = "/topic/conversation.";
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private MessageStatusAggregator statusAggregator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.chat.delivery.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.chat.delivery.sweep-max-chunks:20}")
+    private int sweepMaxChunks;
+
+    @Value("${app.chat.delivery.workers:2}")
+    private int workers;
+
+    private ExecutorService executor;
+    private TransactionTemplate transactionTemplate;
+
+    // Last message ID the sweep looked at; back to 0 once it reaches the end of the SENT messages
+    private volatile long sweepCursor;
+
+    // Users with a delivery run queued but not yet started; further requests for them are dropped
+    private final Set<Long> queuedRecipients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Start the worker pool.
+     */
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "delivery-receipts-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stop the worker pool, letting queued runs finish.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deliver pending messages to a user whose WebSocket session just connected.
+     *
+     * @param event the session connected event
+     */
+    @EventListener
+    public void handleSessionConnected(SessionConnectedEvent event) {
+        Long userId = userIdOf(event.getUser());
+        if (userId != null) {
+            requestDelivery(userId);
+        }
+    }
+
+    /**
+     * Deliver pending messages to a user who subscribed to a conversation topic.
+     *
+     * @param event the session subscribe event
+     */
+    @EventListener
+    public void handleSessionSubscribe(SessionSubscribeEvent event) {
+        String destination = StompHeaderAccessor.wrap(event.getMessage()).getDestination();
+        if (destination == null || !destination.startsWith(CONVERSATION_TOPIC_PREFIX)) {
+            return;
+        }
+
+        // Only the main conversation topic; its .status and .typing siblings are subscribed alongside it
+        if (destination.indexOf('.', CONVERSATION_TOPIC_PREFIX.length()) >= 0) {
+            return;
+        }
+
+        Long userId = userIdOf(event.getUser());
+        if (userId != null) {
+            requestDelivery(userId);
+        }
+    }
+
+    /**
+     * Queue a delivery run for a recipient who is known to be online.
+     * If a run for the same user is already queued, the request is absorbed by it.
+     *
+     * @param userId the ID of the recipient
+     */
+    public void requestDelivery(Long userId) {
+        if (!queuedRecipients.add(userId)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                queuedRecipients.remove(userId);
+                try {
+                    deliverToRecipient(userId);
+                } catch (Exception e) {
+                    logger.error("Error delivering pending messages to user {}: {}", userId, e.getMessage(), e);
+                }
+            });
+        } catch (Exception e) {
+            queuedRecipients.remove(userId);
+            logger.warn("Could not queue delivery run for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Mark every SENT message addressed to the recipient as DELIVERED, one chunk per transaction.
+     *
+     * @param userId the ID of the recipient
+     */
+    private void deliverToRecipient(Long userId) {
+        long afterId = 0L;
+        int delivered = 0;
+
+        while (true) {
+            List<DeliveryCandidate> chunk = messageRepository.findDeliveryCandidatesForRecipient(
+                    userId, MessageStatus.SENT, afterId, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            delivered += markDelivered(chunk);
+            afterId = chunk.get(chunk.size() - 1).getId();
+
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+
+        if (delivered > 0) {
+            logger.info("Marked {} messages as DELIVERED for user {}", delivered, userId);
+        }
+    }
+
+    /**
+     * Fallback sweep for SENT messages whose recipients came online without a connect or
+     * subscribe event reaching this instance. Walks the (status, id) index in keyset-paged
+     * chunks and stops after a bounded number of chunks per run; the next run continues from
+     * there, and the walk starts over once a chunk comes back short.
+     */
+    @Scheduled(fixedDelayString = "${app.chat.delivery.sweep-interval-ms:60000}")
+    public void sweep() {
+        long afterId = sweepCursor;
+        int scanned = 0;
+        int delivered = 0;
+
+        try {
+            for (int chunkIndex = 0; chunkIndex < sweepMaxChunks; chunkIndex++) {
+                List<DeliveryCandidate> chunk = messageRepository.findDeliveryCandidates(
+                        MessageStatus.SENT, afterId, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    sweepCursor = 0L;
+                    break;
+                }
+
+                scanned += chunk.size();
+                delivered += markDelivered(withOnlineRecipient(chunk));
+                afterId = chunk.get(chunk.size() - 1).getId();
+
+                if (chunk.size() < chunkSize) {
+                    sweepCursor = 0L;
+                    break;
+                }
+                sweepCursor = afterId;
+            }
+        } catch (Exception e) {
+            logger.error("Error in delivery receipt sweep: {}", e.getMessage(), e);
+        }
+
+        if (scanned > 0) {
+            logger.info("Delivery sweep scanned {} SENT messages, marked {} as DELIVERED", scanned, delivered);
+        }
+    }
+
+    /**
+     * Keep only candidates with at least one online participant other than the sender.
+     *
+     * @param chunk the candidates
+     * @return the deliverable candidates
+     */
+    private List<DeliveryCandidate> withOnlineRecipient(List<DeliveryCandidate> chunk) {
+        Set<Long> conversationIds = new HashSet<>();
+        for (DeliveryCandidate candidate : chunk) {
+            conversationIds.add(candidate.getConversationId());
+        }
+
+        Map<Long, List<Long>> participantsByConversation = new HashMap<>();
+        for (ConversationRepository.ParticipantView participant
+                : conversationRepository.findParticipantsByConversationIds(conversationIds)) {
+            participantsByConversation
+                    .computeIfAbsent(participant.getConversationId(), k -> new ArrayList<>())
+                    .add(participant.getUserId());
+        }
+
+        List<DeliveryCandidate> deliverable = new ArrayList<>();
+        for (DeliveryCandidate candidate : chunk) {
+            boolean anyRecipientOnline = participantsByConversation
+                    .getOrDefault(candidate.getConversationId(), List.of()).stream()
+                    .anyMatch(userId -> !userId.equals(candidate.getSenderId()) && presenceService.isOnline(userId));
+            if (anyRecipientOnline) {
+                deliverable.add(candidate);
+            }
+        }
+        return deliverable;
+    }
+
+    /**
+     * Mark candidates DELIVERED in one bulk update and report the transitions per conversation.
+     *
+     * @param candidates the messages to mark
+     * @return the number of messages updated
+     */
+    private int markDelivered(List<DeliveryCandidate> candidates) {
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(candidates.size());
+        Map<Long, List<Long>> idsByConversation = new LinkedHashMap<>();
+        for (DeliveryCandidate candidate : candidates) {
+            ids.add(candidate.getId());
+            idsByConversation.computeIfAbsent(candidate.getConversationId(), k -> new ArrayList<>())
+                    .add(candidate.getId());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status -> {
+            conversationRepository.updateLastMessageStatus(ids, List.of(MessageStatus.SENT), MessageStatus.DELIVERED);
+            return messageRepository.updateStatusAndDeliveredAt(ids, List.of(MessageStatus.SENT), MessageStatus.DELIVERED, now);
+        });
+
+        idsByConversation.forEach((conversationId, messageIds) ->
+                statusAggregator.delivered(conversationId, messageIds, now));
+
+        return updated != null ? updated : 0;
+    }
+
+    /**
+     * Extract the user ID from a WebSocket session principal.
+     *
+     * @param principal the session principal
+     * @return the user ID, or null if the session is not authenticated
+     */
+    private Long userIdOf(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return userDetails.getId();
+        }
+        return null;
+    }
+}
@@ -1,158 +1,452 @@
 package com.chat.app.backend.feature.chat.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.chat.app.backend.common.config.KafkaConfig;
 import com.chat.app.backend.feature.chat.dto.MessageDTO;
-import com.chat.app.backend.feature.chat.model.Conversation;
+import com.chat.app.backend.feature.chat.event.ChatEvent;
+import com.chat.app.backend.feature.chat.model.ConsumerCheckpoint;
+import com.chat.app.backend.feature.chat.model.Message;
 import com.chat.app.backend.feature.chat.model.MessageStatus;
+import com.chat.app.backend.feature.chat.repository.ConsumerCheckpointRepository;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
 import com.chat.app.backend.feature.chat.repository.MessageRepository;
-import com.chat.app.backend.feature.user.model.User;
-import com.chat.app.backend.feature.user.model.UserStatus;
+import com.chat.app.backend.feature.user.service.PresenceService;
+
+import jakarta.annotation.PostConstruct;
 
 /**
  * Service for consuming messages from Kafka and distributing them via WebSocket.
+ * Records are consumed either one at a time or, when
+ * {@code app.kafka.chat-messages.batch-listener} is enabled (the default), one poll at a time.
+ * Both modes share the same batch processing: one query for the messages, one for the
+ * participants, one bulk UPDATE per status transition and one status frame per conversation.
+ * <p>
+ * Processing is idempotent. The messages of a batch are processed in their own transaction;
+ * if that fails, it alone is rolled back and the messages are scheduled for retry instead.
+ * Either way the batch then advances a per-partition checkpoint; on partition assignment the
+ * consumer seeks past the checkpoint, and records at or below it are skipped, so rebalances,
+ * restarts and new consumer groups do not replay processed records. A checkpoint at or past the
+ * end of its partition is left over from before the topic was recreated or the cluster reset;
+ * it is dropped instead, since it would otherwise skip every new record as a replay. Events
+ * published more than once are caught by a bounded window of recently processed
+ * (message ID, event type) keys.
+ * Frames for a batch are only sent once its processing has committed.
  */
 @Service
-public class KafkaMessageConsumer {
-
-    // Track message processing to prevent duplicate processing
-    private final ConcurrentHashMap<Long, AtomicInteger> processingMessages = new ConcurrentHashMap<>();
+public class KafkaMessageConsumer implements ConsumerSeekAware {
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaMessageConsumer.class);
 
+    // Checkpoints are keyed by this name rather than the group ID, so a new group resumes too
+    private static final String CHECKPOINT_CONSUMER_NAME = "chat-message-delivery";
+
+    // Event types in dedupe keys: the message's creation, or its retry attempt (1 + attempt)
+    private static final int EVENT_CREATED = 1;
+    private static final int MAX_EVENT_TYPE = 63;
+    private static final int EVENT_TYPE_BITS = 6;
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
     private MessageRepository messageRepository;
 
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageMapper messageMapper;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private MessageRetryService messageRetryService;
+
+    @Autowired
+    private MessageStatusAggregator statusAggregator;
+
+    @Autowired
+    private ConsumerCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ConsumerFactory<String, ChatEvent> consumerFactory;
+
+    @Value("${app.kafka.chat-messages.dedupe-window-size:100000}")
+    private int dedupeWindowSize;
+
+    private DedupeWindow dedupeWindow;
+
+    private TransactionTemplate processTemplate;
+
+    // Checkpoints of the partitions assigned to this node, advanced after each commit
+    private final Map<TopicPartition, Long> checkpoints = new ConcurrentHashMap<>();
+
+    // Counters, reset every time they are reported
+    private final AtomicLong recordsProcessed = new AtomicLong();
+    private final AtomicLong duplicatesSuppressed = new AtomicLong();
+    private final AtomicLong replaysSkipped = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        dedupeWindow = new DedupeWindow(dedupeWindowSize);
+        // Processing failures must not mark the batch's own transaction rollback-only
+        processTemplate = new TransactionTemplate(transactionManager);
+        processTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     /**
-     * Listen for messages on the chat-messages Kafka topic and distribute them via WebSocket.
+     * Listen for messages on the chat-messages Kafka topic one record at a time.
+     * Only started when the batch listener is disabled.
      *
-     * @param message the message data (can be MessageDTO or Long message ID)
+     * @param record the record
      */
-    @KafkaListener(topics = "chat-messages", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(id = "chatMessagesListener",
+            topics = KafkaConfig.CHAT_MESSAGES_TOPIC,
+            groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{!${app.kafka.chat-messages.batch-listener:true}}")
     @Transactional
-    public void listen(Object message) {
-        final Long[] messageIdHolder = new Long[1];
-        final MessageDTO[] messageDTOHolder = new MessageDTO[1];
-
-        // Handle different message types
-        if (message instanceof MessageDTO) {
-            messageDTOHolder[0] = (MessageDTO) message;
-            messageIdHolder[0] = messageDTOHolder[0].getId();
-            logger.info("Received MessageDTO from Kafka: {}", messageIdHolder[0]);
-        } else if (message instanceof Long) {
-            messageIdHolder[0] = (Long) message;
-            logger.info("Received message ID from Kafka: {}", messageIdHolder[0]);
-        } else {
-            logger.error("Received unknown message type from Kafka: {}", message.getClass().getName());
+    public void listen(ConsumerRecord<String, ChatEvent> record) {
+        processBatch(List.of(record));
+    }
+
+    /**
+     * Listen for messages on the chat-messages Kafka topic one poll at a time.
+     *
+     * @param records the polled records
+     */
+    @KafkaListener(id = "chatMessagesBatchListener",
+            topics = KafkaConfig.CHAT_MESSAGES_TOPIC,
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${app.kafka.chat-messages.batch-listener:true}")
+    @Transactional
+    public void listenBatch(List<ConsumerRecord<String, ChatEvent>> records) {
+        logger.debug("Received batch of {} records from Kafka", records.size());
+        processBatch(records);
+    }
+
+    /**
+     * Resume each newly assigned partition after its checkpoint, dropping stale checkpoints.
+     *
+     * @param assignments the assigned partitions and their current positions
+     * @param callback the callback to seek with
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        Map<TopicPartition, Long> stored = new HashMap<>();
+        for (ConsumerCheckpoint checkpoint
+                : checkpointRepository.findByConsumerNameAndTopic(CHECKPOINT_CONSUMER_NAME, KafkaConfig.CHAT_MESSAGES_TOPIC)) {
+            stored.put(new TopicPartition(checkpoint.getTopic(), checkpoint.getPartitionId()),
+                    checkpoint.getCommittedOffset());
+        }
+
+        Map<TopicPartition, Long> endOffsets = findEndOffsets(stored.keySet().stream()
+                .filter(assignments::containsKey).toList());
+
+        assignments.forEach((partition, position) -> {
+            Long checkpoint = stored.get(partition);
+            if (checkpoint == null) {
+                return;
+            }
+            Long endOffset = endOffsets.get(partition);
+            if (endOffset != null && checkpoint >= endOffset) {
+                logger.warn("Dropping checkpoint {} of {}, which ends at offset {}; the topic was recreated or reset",
+                        checkpoint, partition, endOffset);
+                processTemplate.executeWithoutResult(status -> checkpointRepository.deleteIfAt(
+                        CHECKPOINT_CONSUMER_NAME, partition.topic(), partition.partition(), checkpoint));
+                return;
+            }
+            checkpoints.put(partition, checkpoint);
+            if (position <= checkpoint) {
+                logger.info("Skipping {} already processed records on {}", checkpoint + 1 - position, partition);
+                callback.seek(partition.topic(), partition.partition(), checkpoint + 1);
+            }
+        });
+    }
+
+    /**
+     * Look up where the given partitions currently end. If that fails, checkpoints are trusted.
+     *
+     * @param partitions the partitions
+     * @return the offset of the next record of each partition
+     */
+    private Map<TopicPartition, Long> findEndOffsets(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return Map.of();
+        }
+        try (Consumer<String, ChatEvent> consumer = consumerFactory.createConsumer()) {
+            return consumer.endOffsets(partitions);
+        } catch (Exception e) {
+            logger.warn("Failed to look up end offsets of {}: {}", partitions, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Forget the checkpoints of revoked partitions; they are reloaded on the next assignment.
+     *
+     * @param partitions the revoked partitions
+     */
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        partitions.forEach(checkpoints::remove);
+    }
+
+    /**
+     * Process a batch of records. Must run inside a transaction.
+     *
+     * @param records the records
+     */
+    private void processBatch(List<ConsumerRecord<String, ChatEvent>> records) {
+        Map<TopicPartition, Long> highestOffsets = new HashMap<>();
+
+        // Message IDs in arrival order, and those that came from the retry path
+        Set<Long> messageIds = new LinkedHashSet<>();
+        Set<Long> retriedIds = new HashSet<>();
+        List<Long> dedupeKeys = new ArrayList<>(records.size());
+
+        for (ConsumerRecord<String, ChatEvent> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            highestOffsets.merge(partition, record.offset(), Math::max);
+
+            Long checkpoint = checkpoints.get(partition);
+            if (checkpoint != null && record.offset() <= checkpoint) {
+                replaysSkipped.incrementAndGet();
+                continue;
+            }
+
+            ChatEvent event = record.value();
+            if (event == null) {
+                logger.error("Skipping undecodable record at offset {} of {}", record.offset(), partition);
+                continue;
+            }
+
+            Long messageId = event.getMessageId();
+            int eventType = switch (event.getType()) {
+                case MESSAGE_CREATED -> EVENT_CREATED;
+                case MESSAGE_RETRY -> event.getAttempt() > 0
+                        ? Math.min(EVENT_CREATED + event.getAttempt(), MAX_EVENT_TYPE) : 0;
+            };
+
+            // Manual retries carry no attempt and always go through
+            if (eventType > 0) {
+                long key = (messageId << EVENT_TYPE_BITS) | eventType;
+                if (!dedupeWindow.add(key)) {
+                    duplicatesSuppressed.incrementAndGet();
+                    logger.debug("Suppressed duplicate event {} for message {}", eventType, messageId);
+                    continue;
+                }
+                dedupeKeys.add(key);
+            }
+
+            messageIds.add(messageId);
+            if (eventType != EVENT_CREATED) {
+                retriedIds.add(messageId);
+            }
+        }
+
+        onCompletion(dedupeKeys, highestOffsets);
+
+        if (!messageIds.isEmpty()) {
+            List<Long> ids = new ArrayList<>(messageIds);
+            try {
+                processTemplate.executeWithoutResult(status -> processMessages(ids, retriedIds));
+            } catch (Exception e) {
+                logger.error("Error processing batch of {} messages: {}", ids.size(), e.getMessage(), e);
+                // Schedule retries unless the messages already moved on or failed
+                messageRetryService.scheduleRetries(ids);
+            }
+            recordsProcessed.addAndGet(ids.size());
+        }
+
+        // Part of the same transaction as the retries scheduled above
+        LocalDateTime now = LocalDateTime.now();
+        highestOffsets.forEach((partition, offset) -> checkpointRepository.advance(
+                CHECKPOINT_CONSUMER_NAME, partition.topic(), partition.partition(), offset, now));
+    }
+
+    /**
+     * Once the batch's transaction completes, advance the in-memory checkpoints if it committed,
+     * or let its events through the dedupe window again if it rolled back (Kafka redelivers them).
+     */
+    private void onCompletion(List<Long> dedupeKeys, Map<TopicPartition, Long> highestOffsets) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
             return;
         }
 
-        final Long messageId = messageIdHolder[0];
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    highestOffsets.forEach((partition, offset) -> checkpoints.merge(partition, offset, Math::max));
+                } else {
+                    dedupeKeys.forEach(dedupeWindow::remove);
+                }
+            }
+        });
+    }
+
+    /**
+     * Periodically log how many records were processed and how many were suppressed.
+     */
+    @Scheduled(fixedRateString = "${app.kafka.chat-messages.report-interval-ms:60000}")
+    public void reportStats() {
+        long processed = recordsProcessed.getAndSet(0);
+        long duplicates = duplicatesSuppressed.getAndSet(0);
+        long replays = replaysSkipped.getAndSet(0);
+        if (processed > 0 || duplicates > 0 || replays > 0) {
+            logger.info("Chat message consumer: {} messages processed, {} duplicate events suppressed, "
+                    + "{} already processed records skipped", processed, duplicates, replays);
+        }
+    }
 
-        // Prevent duplicate processing of the same message
-        AtomicInteger processingCount = processingMessages.computeIfAbsent(messageId, k -> new AtomicInteger(0));
-        if (processingCount.incrementAndGet() > 1) {
-            logger.warn("Message {} is already being processed, skipping duplicate", messageId);
-            processingCount.decrementAndGet();
+    /**
+     * Resolve delivery status for the given messages and notify subscribers.
+     *
+     * @param messageIds the IDs of the messages to process
+     * @param retriedIds the IDs that were received from the retry path
+     */
+    private void processMessages(List<Long> messageIds, Set<Long> retriedIds) {
+        // One query for the messages (with senders), one for all participants of their conversations
+        List<Message> messages = messageRepository.findAllWithSenderByIdIn(messageIds);
+        if (messages.isEmpty()) {
             return;
         }
 
-        try {
-            // Find the message in the database
-            messageRepository.findById(messageId).ifPresent(dbMessage -> {
-                // If we only received a message ID, create a DTO from the database message
-                if (messageDTOHolder[0] == null) {
-                    MessageDTO newDto = new MessageDTO();
-                    newDto.setId(dbMessage.getId());
-                    newDto.setConversationId(dbMessage.getConversation().getId());
-                    newDto.setSenderId(dbMessage.getSender().getId());
-                    newDto.setContent(dbMessage.getContent());
-                    newDto.setSentAt(dbMessage.getSentAt());
-                    newDto.setStatus(dbMessage.getStatus());
-                    messageDTOHolder[0] = newDto;
+        Set<Long> conversationIds = new HashSet<>();
+        for (Message message : messages) {
+            conversationIds.add(message.getConversation().getId());
+        }
+
+        Map<Long, List<ConversationRepository.ParticipantView>> participantsByConversation = new HashMap<>();
+        for (ConversationRepository.ParticipantView participant
+                : conversationRepository.findParticipantsByConversationIds(conversationIds)) {
+            participantsByConversation
+                    .computeIfAbsent(participant.getConversationId(), k -> new ArrayList<>())
+                    .add(participant);
+        }
+
+        // Decide each message's transition
+        List<Long> deliveredIds = new ArrayList<>();
+        List<Long> pendingIds = new ArrayList<>();
+        Map<Long, List<Long>> deliveredByConversation = new LinkedHashMap<>();
+
+        for (Message message : messages) {
+            MessageStatus status = message.getStatus();
+            if (status != MessageStatus.PENDING && status != MessageStatus.SENT) {
+                continue;
+            }
+
+            Long conversationId = message.getConversation().getId();
+            Long senderId = message.getSender().getId();
+
+            // Check if any recipient is online (in-memory presence lookup)
+            boolean anyRecipientOnline = participantsByConversation
+                    .getOrDefault(conversationId, List.of()).stream()
+                    .anyMatch(p -> !p.getUserId().equals(senderId) && presenceService.isOnline(p.getUserId()));
+
+            if (anyRecipientOnline) {
+                deliveredIds.add(message.getId());
+                deliveredByConversation.computeIfAbsent(conversationId, k -> new ArrayList<>()).add(message.getId());
+            } else if (status == MessageStatus.PENDING) {
+                // The message will be marked as DELIVERED when a recipient comes online
+                pendingIds.add(message.getId());
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        if (!deliveredIds.isEmpty()) {
+            int updated = messageRepository.updateStatusAndDeliveredAt(deliveredIds,
+                    EnumSet.of(MessageStatus.PENDING, MessageStatus.SENT), MessageStatus.DELIVERED, now);
+            conversationRepository.updateLastMessageStatus(deliveredIds,
+                    EnumSet.of(MessageStatus.PENDING, MessageStatus.SENT), MessageStatus.DELIVERED);
+            logger.info("Marked {} messages as DELIVERED", updated);
+        }
+
+        if (!pendingIds.isEmpty()) {
+            int updated = messageRepository.updateStatus(pendingIds, MessageStatus.PENDING, MessageStatus.SENT);
+            conversationRepository.updateLastMessageStatus(pendingIds, List.of(MessageStatus.PENDING), MessageStatus.SENT);
+            logger.info("Updated {} messages from PENDING to SENT", updated);
+        }
+
+        // Aggregated into status frames per conversation once the batch commits
+        deliveredByConversation.forEach((conversationId, ids) -> statusAggregator.delivered(conversationId, ids, now));
+
+        // Retried messages were never broadcast successfully, so send them in full once committed
+        if (!retriedIds.isEmpty()) {
+            List<MessageDTO> retried = new ArrayList<>();
+            Set<Long> delivered = new HashSet<>(deliveredIds);
+            Set<Long> pending = new HashSet<>(pendingIds);
+            for (Message message : messages) {
+                if (!retriedIds.contains(message.getId())) {
+                    continue;
                 }
-                try {
-                    // Find the conversation and check if recipients are online
-                    Conversation conversation = dbMessage.getConversation();
-
-                    // Get all participants except the sender
-                    Set<User> recipients = conversation.getParticipants().stream()
-                            .filter(user -> !user.getId().equals(dbMessage.getSender().getId()))
-                            .collect(Collectors.toSet());
-
-                    // Check if any recipient is online
-                    boolean anyRecipientOnline = recipients.stream()
-                            .anyMatch(user -> user.getStatus() == UserStatus.ONLINE);
-
-                    LocalDateTime now = LocalDateTime.now();
-
-                    if (anyRecipientOnline) {
-                        // At least one recipient is online, mark as DELIVERED
-                        dbMessage.setDeliveredAt(now);
-                        dbMessage.setStatus(MessageStatus.DELIVERED);
-                        messageRepository.save(dbMessage);
-
-                        // Update the DTO with delivered status
-                        messageDTOHolder[0].setDeliveredAt(now);
-                        messageDTOHolder[0].setStatus(MessageStatus.DELIVERED);
-
-                        // Send status update to the status topic
-                        String statusDestination = "/topic/conversation." + messageDTOHolder[0].getConversationId() + ".status";
-                        messagingTemplate.convertAndSend(statusDestination, messageDTOHolder[0]);
-
-                        logger.info("Message {} marked as DELIVERED", messageId);
-                    } else {
-                        // No recipients online, keep as SENT
-                        // The message will be marked as DELIVERED when a recipient comes online
-                        messageDTOHolder[0].setStatus(MessageStatus.SENT);
-                        logger.info("No recipients online for message {}, keeping as SENT", messageId);
-                    }
-
-                    // Send to conversation topic for all subscribers
-                    String destination = "/topic/conversation." + messageDTOHolder[0].getConversationId();
-                    messagingTemplate.convertAndSend(destination, messageDTOHolder[0]);
-
-                    logger.info("Message {} processed and sent to WebSocket destination: {}",
-                            messageId, destination);
-
-                    // If message was in PENDING state, update it to SENT
-                    if (dbMessage.getStatus() == MessageStatus.PENDING) {
-                        dbMessage.setStatus(MessageStatus.SENT);
-                        messageRepository.save(dbMessage);
-                        logger.info("Updated message {} from PENDING to SENT", messageId);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error processing message {}: {}", messageId, e.getMessage(), e);
-                    // Mark message for retry if it's not already failed
-                    if (dbMessage.getStatus() != MessageStatus.FAILED) {
-                        dbMessage.setStatus(MessageStatus.PENDING);
-                        messageRepository.save(dbMessage);
-                        logger.info("Marked message {} as PENDING for retry", messageId);
-                    }
+                MessageDTO messageDTO = messageMapper.toDTO(message);
+                if (delivered.contains(message.getId())) {
+                    messageDTO.setStatus(MessageStatus.DELIVERED);
+                    messageDTO.setDeliveredAt(now);
+                } else if (pending.contains(message.getId())) {
+                    messageDTO.setStatus(MessageStatus.SENT);
                 }
-            });
-        } catch (Exception e) {
-            logger.error("Error processing message from Kafka: {}", e.getMessage(), e);
-        } finally {
-            // Decrement processing count and remove if zero
-            if (processingCount.decrementAndGet() <= 0) {
-                processingMessages.remove(messageId);
+                retried.add(messageDTO);
             }
+            afterCommit(() -> retried.forEach(messageDTO -> messagingTemplate.convertAndSend(
+                    "/topic/conversation." + messageDTO.getConversationId(), messageDTO)));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Run an action once the current transaction has committed, or right away outside a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -24,6 +24,7 @@ public class MessageMapper {
         MessageDTO dto = new MessageDTO();
         dto.setId(message.getId());
         dto.setConversationId(message.getConversation().getId());
+        dto.setSeq(message.getSeq());
         dto.setSenderId(message.getSender().getId());
         dto.setSenderUsername(message.getSender().getUsername());
         dto.setContent(message.getContent());
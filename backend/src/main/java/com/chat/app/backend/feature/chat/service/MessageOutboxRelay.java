@@ -0,0 +1,227 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Relay from the transactional outbox to Kafka.
+ * The send pipeline writes one outbox row per message in the same transaction as the message,
+ * so a record exists if and only if the message was committed. A single relay thread drains the
+ * outbox in ID order: it reads a batch of rows, sends them all without waiting in between, waits
+ * for Kafka's acknowledgements, then deletes the acknowledged rows in a short transaction of its
+ * own. No transaction or row lock is held while Kafka is slow to answer.
+ * A row is only deleted if every earlier row of the batch with the same record key was
+ * acknowledged too; the rest stay and are sent again on the next pass, after the row that failed,
+ * so every committed message is published at least once and the rows of one key keep their order.
+ * Relays on several nodes may send the same rows; the consumer's dedupe window absorbs repeats.
+ */
+@Service
+public class MessageOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageOutboxRelay.class);
+
+    private static final String SELECT_BATCH_SQL =
+            "SELECT id, topic, record_key, payload FROM message_outbox ORDER BY id LIMIT ?";
+
+    private static final String DELETE_SQL = "DELETE FROM message_outbox WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> chatEventKafkaTemplate;
+
+    @Value("${app.chat.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.chat.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${app.chat.outbox.ack-timeout-ms:10000}")
+    private long ackTimeoutMs;
+
+    @Value("${app.chat.outbox.failure-backoff-ms:2000}")
+    private long failureBackoffMs;
+
+    private TransactionTemplate transactionTemplate;
+    private Thread relayThread;
+    private volatile boolean running;
+
+    // Counters, reset every time they are reported
+    private final AtomicLong recordsPublished = new AtomicLong();
+    private final AtomicLong recordsFailed = new AtomicLong();
+
+    /**
+     * Start the relay thread.
+     */
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // No gap locks, so deleting rows another relay already removed never blocks the send pipeline's inserts
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        running = true;
+        relayThread = new Thread(this::runRelayLoop, "message-outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+        logger.info("Message outbox relay started (batchSize={}, pollIntervalMs={})", batchSize, pollIntervalMs);
+    }
+
+    /**
+     * Stop the relay thread. Rows not yet published stay in the outbox for the next start.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(relayThread);
+        try {
+            relayThread.join(ackTimeoutMs + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wake the relay up because new rows were committed, instead of waiting for the next poll.
+     */
+    public void wakeUp() {
+        LockSupport.unpark(relayThread);
+    }
+
+    /**
+     * Relay loop: drain the outbox batch by batch, then sleep until woken up or the poll interval
+     * has passed. The poll picks up rows left behind by a failure or a previous run.
+     */
+    private void runRelayLoop() {
+        while (running) {
+            try {
+                int relayed;
+                do {
+                    relayed = relayBatch();
+                } while (running && relayed == batchSize);
+
+                if (relayed < 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(failureBackoffMs));
+                    continue;
+                }
+            } catch (Exception e) {
+                logger.error("Unexpected error in message outbox relay: {}", e.getMessage(), e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(failureBackoffMs));
+                continue;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollIntervalMs));
+        }
+    }
+
+    /**
+     * Publish one batch of outbox rows and delete the acknowledged ones.
+     *
+     * @return the number of rows relayed, or -1 if Kafka did not acknowledge all of them
+     */
+    private int relayBatch() {
+        List<OutboxRow> rows = jdbcTemplate.query(SELECT_BATCH_SQL, (resultSet, rowNum) -> new OutboxRow(
+                resultSet.getLong("id"), resultSet.getString("topic"),
+                resultSet.getString("record_key"), resultSet.getBytes("payload")), batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // Send the whole batch first, payloads as stored; the producer keeps the order within each partition
+        List<CompletableFuture<SendResult<String, byte[]>>> acks = new ArrayList<>(rows.size());
+        for (OutboxRow row : rows) {
+            acks.add(chatEventKafkaTemplate.send(row.topic, row.recordKey, row.payload));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        List<Object[]> done = new ArrayList<>(rows.size());
+        // Keys with an unacknowledged row; their later rows are kept so they are sent again after it
+        Set<String> failedKeys = new HashSet<>();
+        int failed = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            OutboxRow row = rows.get(i);
+            try {
+                acks.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (!failedKeys.contains(row.recordKey)) {
+                    done.add(new Object[]{row.id});
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed += rows.size() - i;
+                break;
+            } catch (Exception e) {
+                failed++;
+                failedKeys.add(row.recordKey);
+                if (failed == 1) {
+                    logger.warn("Kafka did not acknowledge outbox record {}: {}", row.id, e.getMessage());
+                }
+            }
+        }
+
+        // Rows another relay already deleted are simply not found
+        if (!done.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(DELETE_SQL, done));
+        }
+
+        recordsPublished.addAndGet(done.size());
+        if (failed > 0) {
+            recordsFailed.addAndGet(failed);
+            return -1;
+        }
+        return rows.size();
+    }
+
+    /**
+     * Periodically log relay throughput and the outbox backlog.
+     */
+    @Scheduled(fixedRateString = "${app.chat.outbox.report-interval-ms:60000}")
+    public void reportStats() {
+        long published = recordsPublished.getAndSet(0);
+        long failed = recordsFailed.getAndSet(0);
+        if (published > 0 || failed > 0) {
+            Long backlog = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message_outbox", Long.class);
+            logger.info("Message outbox: {} records published, {} unacknowledged, {} waiting",
+                    published, failed, backlog);
+        }
+    }
+
+    /**
+     * One outbox row as read by the relay.
+     */
+    private static class OutboxRow {
+        private final long id;
+        private final String topic;
+        private final String recordKey;
+        private final byte[] payload;
+
+        OutboxRow(long id, String topic, String recordKey, byte[] payload) {
+            this.id = id;
+            this.topic = topic;
+            this.recordKey = recordKey;
+            this.payload = payload;
+        }
+    }
+}
@@ -1,91 +1,272 @@
 package com.chat.app.backend.feature.chat.service;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.chat.app.backend.feature.chat.model.Message;
+import com.chat.app.backend.common.config.KafkaConfig;
+import com.chat.app.backend.feature.chat.event.ChatEvent;
+import com.chat.app.backend.feature.chat.event.ChatEventCodec;
 import com.chat.app.backend.feature.chat.model.MessageStatus;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
 import com.chat.app.backend.feature.chat.repository.MessageRepository;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * Service for handling message retry logic.
- * This service periodically checks for pending messages and attempts to resend them.
+ * A message that could not be processed is put in PENDING status with a {@code next_retry_at}
+ * time. Retries due within the horizon of an in-memory {@link RetryTimingWheel} are held there
+ * and dispatched on the tick they fall due, at most {@code app.chat.retry.max-per-tick} per tick;
+ * the wheel is refilled from the indexed {@code next_retry_at} column in bounded batches.
+ * Each attempt pushes {@code next_retry_at} out by an exponential backoff with jitter, so a
+ * message whose retry is lost is picked up again, and failures that happened together do not
+ * retry together.
  */
 @Service
 public class MessageRetryService {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageRetryService.class);
 
+    private static final String MARK_PENDING_SQL =
+            "UPDATE messages SET status = 'PENDING', next_retry_at = ? WHERE id = ? AND status = 'SENT'";
+
+    // Claims an attempt; the next_retry_at guard makes it a compare-and-set against other nodes
+    private static final String CLAIM_RETRY_SQL =
+            "UPDATE messages SET retry_count = ?, next_retry_at = ? " +
+            "WHERE id = ? AND status = 'PENDING' AND next_retry_at = ?";
+
+    private static final String MARK_FAILED_SQL =
+            "UPDATE messages SET status = 'FAILED', retry_count = ?, next_retry_at = NULL " +
+            "WHERE id = ? AND status = 'PENDING' AND next_retry_at = ?";
+
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
-    private KafkaTemplate<String, Object> objectKafkaTemplate;
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> chatEventKafkaTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Value("${app.chat.message.max-retry-count:3}")
     private int maxRetryCount;
 
-    @Value("${app.chat.message.retry-interval-seconds:30}")
-    private int retryIntervalSeconds;
+    @Value("${app.chat.retry.base-delay-ms:2000}")
+    private long baseDelayMs;
+
+    @Value("${app.chat.retry.max-delay-ms:300000}")
+    private long maxDelayMs;
+
+    @Value("${app.chat.retry.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.chat.retry.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${app.chat.retry.max-per-tick:200}")
+    private int maxPerTick;
+
+    @Value("${app.chat.retry.refill-batch-size:2000}")
+    private int refillBatchSize;
+
+    private RetryTimingWheel wheel;
+    private TransactionTemplate transactionTemplate;
+
+    // Counters, reset every time they are reported
+    private final AtomicLong retriesDispatched = new AtomicLong();
+    private final AtomicLong retriesFailed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        wheel = new RetryTimingWheel(tickMs, wheelSize, System.currentTimeMillis());
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     /**
-     * Scheduled task to retry pending messages.
-     * Runs every 30 seconds by default.
+     * Put messages that failed processing in PENDING status and schedule their first retry.
+     * Messages that already moved on (delivered, or pending with a retry scheduled) are left alone.
+     * Joins the caller's transaction if there is one.
+     *
+     * @param messageIds the IDs of the messages to retry
      */
-    @Scheduled(fixedDelayString = "${app.chat.message.retry-interval-ms:30000}")
-    @Transactional
-    public void retryPendingMessages() {
-        logger.info("Checking for pending messages to retry...");
+    public void scheduleRetries(Collection<Long> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
 
-        try {
-            // Find messages in PENDING status with retry count less than max
-            List<Message> pendingMessages = messageRepository.findByStatusAndRetryCountLessThanEqual(
-                    MessageStatus.PENDING, maxRetryCount);
+        List<Long> ids = new ArrayList<>(messageIds);
+        List<LocalDateTime> dueTimes = new ArrayList<>(ids.size());
+        List<Object[]> updates = new ArrayList<>(ids.size());
+        for (Long messageId : ids) {
+            LocalDateTime nextRetryAt = nextRetryAt(0);
+            dueTimes.add(nextRetryAt);
+            updates.add(new Object[]{Timestamp.valueOf(nextRetryAt), messageId});
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(MARK_PENDING_SQL, updates);
 
-            if (pendingMessages.isEmpty()) {
-                logger.info("No pending messages found for retry");
-                return;
+        List<Long> pendingIds = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (updated[i] > 0) {
+                pendingIds.add(ids.get(i));
+                wheel.schedule(ids.get(i), toEpochMillis(dueTimes.get(i)));
             }
+        }
+
+        if (!pendingIds.isEmpty()) {
+            conversationRepository.updateLastMessageStatus(pendingIds, List.of(MessageStatus.SENT), MessageStatus.PENDING);
+            logger.info("Scheduled retries for {} messages", pendingIds.size());
+        }
+    }
+
+    /**
+     * Load the retries falling due within the wheel's horizon from the database.
+     * Retries already in the wheel are skipped; since the wheel dispatches in due order, the
+     * earliest retries are always the ones loaded.
+     */
+    @Scheduled(fixedDelayString = "${app.chat.retry.refill-interval-ms:10000}")
+    public void refillWheel() {
+        try {
+            LocalDateTime until = LocalDateTime.now().plusNanos((wheel.horizonMs() - tickMs) * 1_000_000);
+            List<MessageRepository.RetryCandidate> candidates =
+                    messageRepository.findDueForRetry(until, PageRequest.of(0, refillBatchSize));
 
-            logger.info("Found {} pending messages to retry", pendingMessages.size());
-
-            for (Message message : pendingMessages) {
-                try {
-                    // Increment retry count
-                    message.setRetryCount(message.getRetryCount() + 1);
-
-                    // If max retries reached, mark as failed
-                    if (message.getRetryCount() >= maxRetryCount) {
-                        logger.warn("Message {} has reached max retry count ({}), marking as FAILED",
-                                message.getId(), maxRetryCount);
-                        message.setStatus(MessageStatus.FAILED);
-                    }
-
-                    // Save updated message
-                    messageRepository.save(message);
-
-                    // Only resend if not failed
-                    if (message.getStatus() != MessageStatus.FAILED) {
-                        // Send to Kafka for processing
-                        logger.info("Retrying message {} (attempt {}/{})",
-                                message.getId(), message.getRetryCount(), maxRetryCount);
-                        objectKafkaTemplate.send("chat-messages", message.getId());
-                    }
-                } catch (Exception e) {
-                    logger.error("Error retrying message {}: {}", message.getId(), e.getMessage(), e);
+            int loaded = 0;
+            for (MessageRepository.RetryCandidate candidate : candidates) {
+                if (wheel.schedule(candidate.getId(), toEpochMillis(candidate.getNextRetryAt()))) {
+                    loaded++;
                 }
             }
+
+            if (loaded > 0) {
+                logger.debug("Loaded {} retries into the wheel ({} waiting)", loaded, wheel.size());
+            }
+        } catch (Exception e) {
+            logger.error("Error loading message retries: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Dispatch the retries that fell due since the last tick.
+     * Each retry is claimed in the database before it is sent, so a retry is sent once even if
+     * several nodes hold it. Messages out of retries are marked FAILED instead.
+     */
+    @Scheduled(fixedRateString = "${app.chat.retry.tick-ms:1000}")
+    public void tick() {
+        List<Long> dueIds = wheel.advance(System.currentTimeMillis(), maxPerTick);
+        if (dueIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<MessageRepository.RetryCandidate> claimed = transactionTemplate.execute(status -> claimRetries(dueIds));
+
+            for (MessageRepository.RetryCandidate candidate : claimed) {
+                // Send a retry event to Kafka for processing, keyed by conversation to keep it ordered
+                chatEventKafkaTemplate.send(KafkaConfig.CHAT_MESSAGES_TOPIC, String.valueOf(candidate.getConversationId()),
+                        ChatEventCodec.encode(ChatEvent.messageRetry(candidate.getId(),
+                                candidate.getConversationId(), candidate.getRetryCount() + 1)));
+            }
+            retriesDispatched.addAndGet(claimed.size());
         } catch (Exception e) {
-            logger.error("Error in retry task: {}", e.getMessage(), e);
+            // The rows keep their next_retry_at, so the next refill picks them up again
+            logger.error("Error dispatching {} message retries: {}", dueIds.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Claim the attempts of due retries and mark exhausted messages as FAILED.
+     * Must run inside a transaction.
+     *
+     * @param dueIds the IDs of the messages whose retry fell due
+     * @return the claimed retries, to be sent once the transaction has committed
+     */
+    private List<MessageRepository.RetryCandidate> claimRetries(List<Long> dueIds) {
+        long now = System.currentTimeMillis();
+        List<MessageRepository.RetryCandidate> toClaim = new ArrayList<>();
+        List<Object[]> claims = new ArrayList<>();
+        List<Long> toFail = new ArrayList<>();
+        List<Object[]> failures = new ArrayList<>();
+
+        for (MessageRepository.RetryCandidate candidate : messageRepository.findRetryCandidatesByIdIn(dueIds)) {
+            if (candidate.getNextRetryAt() == null) {
+                continue;
+            }
+
+            // Rescheduled since it was loaded: put it back at its new time
+            long dueAt = toEpochMillis(candidate.getNextRetryAt());
+            if (dueAt > now) {
+                wheel.schedule(candidate.getId(), dueAt);
+                continue;
+            }
+
+            int attempt = candidate.getRetryCount() + 1;
+            Timestamp expected = Timestamp.valueOf(candidate.getNextRetryAt());
+            if (attempt >= maxRetryCount) {
+                toFail.add(candidate.getId());
+                failures.add(new Object[]{attempt, candidate.getId(), expected});
+            } else {
+                LocalDateTime nextRetryAt = nextRetryAt(attempt);
+                toClaim.add(candidate);
+                claims.add(new Object[]{attempt, Timestamp.valueOf(nextRetryAt), candidate.getId(), expected});
+                // Back in the wheel in case this attempt does not resolve the message
+                wheel.schedule(candidate.getId(), toEpochMillis(nextRetryAt));
+            }
+        }
+
+        List<MessageRepository.RetryCandidate> claimed = new ArrayList<>(toClaim.size());
+        if (!claims.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(CLAIM_RETRY_SQL, claims);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] > 0) {
+                    claimed.add(toClaim.get(i));
+                }
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failures);
+            List<Long> failedIds = new ArrayList<>(toFail.size());
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] > 0) {
+                    failedIds.add(toFail.get(i));
+                }
+            }
+            if (!failedIds.isEmpty()) {
+                logger.warn("{} messages reached the max retry count ({}), marked as FAILED",
+                        failedIds.size(), maxRetryCount);
+                conversationRepository.updateLastMessageStatus(failedIds,
+                        List.of(MessageStatus.PENDING), MessageStatus.FAILED);
+                retriesFailed.addAndGet(failedIds.size());
+            }
         }
+
+        return claimed;
     }
 
     /**
@@ -104,14 +285,20 @@ public class MessageRetryService {
                     return false;
                 }
 
-                // Reset retry count and status
+                // Reset retry count and status; the backoff covers the case this attempt is lost
                 message.setRetryCount(0);
                 message.setStatus(MessageStatus.PENDING);
+                message.setNextRetryAt(nextRetryAt(0));
                 messageRepository.save(message);
+                conversationRepository.updateLastMessageStatus(List.of(messageId),
+                        List.of(MessageStatus.FAILED), MessageStatus.PENDING);
+                wheel.schedule(messageId, toEpochMillis(message.getNextRetryAt()));
 
-                // Send to Kafka for processing
+                // Send to Kafka for processing; without an attempt number it bypasses the dedupe window
                 logger.info("Manually retrying failed message {}", messageId);
-                objectKafkaTemplate.send("chat-messages", message.getId());
+                Long conversationId = message.getConversation().getId();
+                chatEventKafkaTemplate.send(KafkaConfig.CHAT_MESSAGES_TOPIC, String.valueOf(conversationId),
+                        ChatEventCodec.encode(ChatEvent.messageRetry(message.getId(), conversationId, 0)));
 
                 return true;
             }).orElse(false);
@@ -120,4 +307,35 @@ public class MessageRetryService {
             return false;
         }
     }
+
+    /**
+     * Periodically log retry activity.
+     */
+    @Scheduled(fixedRateString = "${app.chat.retry.report-interval-ms:60000}")
+    public void reportStats() {
+        long dispatched = retriesDispatched.getAndSet(0);
+        long failed = retriesFailed.getAndSet(0);
+        if (dispatched > 0 || failed > 0) {
+            logger.info("Message retries: {} dispatched, {} failed, {} waiting in the wheel",
+                    dispatched, failed, wheel.size());
+        }
+    }
+
+    /**
+     * Compute when the next attempt after a given number of attempts is due.
+     * The delay doubles per attempt up to {@code max-delay-ms}; half of it is random
+     * ("equal jitter") so retries of messages that failed together spread out.
+     *
+     * @param attempts the number of attempts made so far
+     * @return the time of the next attempt
+     */
+    private LocalDateTime nextRetryAt(int attempts) {
+        long delay = Math.min(maxDelayMs, baseDelayMs << Math.min(attempts, 30));
+        long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        return LocalDateTime.now().plusNanos(jittered * 1_000_000);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
 }
@@ -0,0 +1,435 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chat.app.backend.common.config.KafkaConfig;
+import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.event.ChatEvent;
+import com.chat.app.backend.feature.chat.event.ChatEventCodec;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind pipeline for outgoing chat messages.
+ * Sends are queued in memory and a single flusher thread group-commits them: all queued
+ * messages are inserted with one JDBC batch and each conversation's updatedAt and
+ * last-message snapshot are updated once per batch, in one transaction. The same transaction
+ * writes each message's Kafka record to the outbox, which {@link MessageOutboxRelay} publishes.
+ * A send completes when the batch that contains it has committed, after which the message is
+ * sent to WebSocket subscribers.
+ * <p>
+ * Each message gets the next sequence number of its conversation. A batch reserves one
+ * contiguous block per conversation by advancing {@code conversations.last_seq} in the same
+ * transaction as the inserts, so only sends to the same conversation contend for a row lock,
+ * and a rolled-back batch gives its numbers back, which keeps each conversation gap-free.
+ */
+@Service
+public class MessageSendPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSendPipeline.class);
+
+    private static final String INSERT_MESSAGE_SQL =
+            "INSERT INTO messages (sender_id, conversation_id, seq, content, sent_at, status, retry_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_OUTBOX_SQL =
+            "INSERT INTO message_outbox (topic, record_key, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    // Reserves a block of sequence numbers; the row stays locked until the batch commits
+    private static final String ALLOCATE_SEQ_SQL =
+            "UPDATE conversations SET last_seq = last_seq + ? WHERE id = ?";
+
+    private static final String SELECT_LAST_SEQ_SQL =
+            "SELECT id, last_seq FROM conversations WHERE id IN (%s)";
+
+    // Bumps updatedAt and replaces the last-message snapshot. Sequence numbers are allocated under
+    // the same row lock, so the batch that writes last always holds the newest message
+    private static final String UPDATE_CONVERSATION_SQL =
+            "UPDATE conversations SET updated_at = ?, last_message_id = ?, last_message_sender_id = ?, " +
+            "last_message_sender_username = ?, last_message_preview = ?, last_message_sent_at = ?, " +
+            "last_message_status = ? " +
+            "WHERE id = ?";
+
+    // Length of the content preview kept in the conversation's last-message snapshot
+    private static final int PREVIEW_LENGTH = 255;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private MessageOutboxRelay outboxRelay;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    @Value("${app.chat.send-pipeline.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.chat.send-pipeline.flush-interval-ms:10}")
+    private long flushIntervalMs;
+
+    @Value("${app.chat.send-pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.chat.send-pipeline.enqueue-timeout-ms:1000}")
+    private long enqueueTimeoutMs;
+
+    private BlockingQueue<PendingSend> queue;
+    private TransactionTemplate transactionTemplate;
+    private Thread flusherThread;
+    private volatile boolean running;
+
+    // Throughput counters, reset every time they are reported
+    private final AtomicLong flushedMessages = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private volatile long lastReportNanos = System.nanoTime();
+
+    /**
+     * Start the flusher thread.
+     */
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        flusherThread = new Thread(this::runFlushLoop, "message-send-pipeline");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+        logger.info("Message send pipeline started (batchSize={}, flushIntervalMs={}, queueCapacity={})",
+                batchSize, flushIntervalMs, queueCapacity);
+    }
+
+    /**
+     * Stop accepting work, flush whatever is still queued and stop the flusher thread.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            flusherThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a message for the next group commit.
+     * The sender must already have been validated as a participant of the conversation.
+     *
+     * @param senderId the ID of the sender
+     * @param senderUsername the username of the sender
+     * @param conversationId the ID of the conversation
+     * @param content the message content
+     * @return a future completed with the persisted message once its batch has committed
+     */
+    public CompletableFuture<MessageDTO> submit(Long senderId, String senderUsername, Long conversationId, String content) {
+        MessageDTO messageDTO = new MessageDTO();
+        messageDTO.setSenderId(senderId);
+        messageDTO.setSenderUsername(senderUsername);
+        messageDTO.setConversationId(conversationId);
+        messageDTO.setContent(content);
+        messageDTO.setSentAt(LocalDateTime.now());
+        messageDTO.setStatus(MessageStatus.SENT);
+
+        PendingSend pending = new PendingSend(messageDTO);
+
+        if (!running) {
+            pending.future.completeExceptionally(new RuntimeException("Message send pipeline is shutting down"));
+            return pending.future;
+        }
+
+        try {
+            if (!queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                pending.future.completeExceptionally(new RuntimeException("Message send queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.future.completeExceptionally(new RuntimeException("Interrupted while queueing message"));
+        }
+
+        return pending.future;
+    }
+
+    /**
+     * Flusher loop: wait for the first queued send, then keep collecting until the batch
+     * is full or the flush window has elapsed, and commit the batch.
+     */
+    private void runFlushLoop() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        List<PendingSend> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingSend first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingSend next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Unexpected error in message send pipeline: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Commit a batch and complete its futures.
+     * If the batch fails as a whole, each message is retried on its own so one bad
+     * message does not fail every other message that happened to share its batch.
+     *
+     * @param batch the queued sends to commit
+     */
+    private void flush(List<PendingSend> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                logger.warn("Batch of {} messages failed ({}), retrying individually", batch.size(), e.getMessage());
+                for (PendingSend pending : batch) {
+                    flush(List.of(pending));
+                }
+            } else {
+                logger.error("Failed to persist message for conversation {}: {}",
+                        batch.get(0).message.getConversationId(), e.getMessage(), e);
+                batch.get(0).future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        flushedMessages.addAndGet(batch.size());
+        flushedBatches.incrementAndGet();
+
+        List<MessageDTO> committed = new ArrayList<>(batch.size());
+        for (PendingSend pending : batch) {
+            committed.add(pending.message);
+        }
+        try {
+            unreadCounterService.recordMessages(committed);
+        } catch (Exception e) {
+            logger.error("Failed to update unread counters for batch: {}", e.getMessage(), e);
+        }
+
+        // The batch's Kafka records are committed; have the relay publish them now
+        outboxRelay.wakeUp();
+
+        for (PendingSend pending : batch) {
+            publish(pending.message);
+            pending.future.complete(pending.message);
+        }
+    }
+
+    /**
+     * Insert the batch's messages and bump each affected conversation once.
+     * Must run inside a transaction.
+     *
+     * @param batch the queued sends to write
+     */
+    private void writeBatch(List<PendingSend> batch) {
+        allocateSequenceNumbers(batch);
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    INSERT_MESSAGE_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (PendingSend pending : batch) {
+                    MessageDTO message = pending.message;
+                    statement.setLong(1, message.getSenderId());
+                    statement.setLong(2, message.getConversationId());
+                    statement.setLong(3, message.getSeq());
+                    statement.setString(4, message.getContent());
+                    statement.setTimestamp(5, Timestamp.valueOf(message.getSentAt()));
+                    statement.setString(6, message.getStatus().name());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (PendingSend pending : batch) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Missing generated key for batched message insert");
+                        }
+                        pending.message.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+
+        // Kafka records, keyed by conversation to keep each conversation's events ordered.
+        // Encoded once here; the relay sends the stored bytes without decoding them
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> outboxRows = new ArrayList<>(batch.size());
+        for (PendingSend pending : batch) {
+            MessageDTO message = pending.message;
+            outboxRows.add(new Object[]{KafkaConfig.CHAT_MESSAGES_TOPIC, String.valueOf(message.getConversationId()),
+                    ChatEventCodec.encode(ChatEvent.messageCreated(message)), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_OUTBOX_SQL, outboxRows);
+
+        // Coalesce updatedAt bumps and snapshots: one UPDATE per conversation per batch.
+        // Sequence numbers follow batch order, so the last message of a conversation is its newest
+        Map<Long, MessageDTO> lastMessages = new LinkedHashMap<>();
+        for (PendingSend pending : batch) {
+            lastMessages.put(pending.message.getConversationId(), pending.message);
+        }
+
+        List<Object[]> updates = new ArrayList<>(lastMessages.size());
+        lastMessages.forEach((conversationId, message) -> {
+            Timestamp sentAt = Timestamp.valueOf(message.getSentAt());
+            updates.add(new Object[]{sentAt, message.getId(), message.getSenderId(), message.getSenderUsername(),
+                    preview(message.getContent()), sentAt, message.getStatus().name(), conversationId});
+        });
+        jdbcTemplate.batchUpdate(UPDATE_CONVERSATION_SQL, updates);
+    }
+
+    /**
+     * Reserve a contiguous block of sequence numbers per conversation and number the batch's
+     * messages in queue order. Must run inside the batch's transaction.
+     *
+     * @param batch the queued sends to number
+     */
+    private void allocateSequenceNumbers(List<PendingSend> batch) {
+        // Ordered by conversation ID so flushers on different nodes lock rows in the same order
+        Map<Long, Integer> counts = new TreeMap<>();
+        for (PendingSend pending : batch) {
+            counts.merge(pending.message.getConversationId(), 1, Integer::sum);
+        }
+
+        List<Object[]> allocations = new ArrayList<>(counts.size());
+        counts.forEach((conversationId, count) -> allocations.add(new Object[]{count, conversationId}));
+        jdbcTemplate.batchUpdate(ALLOCATE_SEQ_SQL, allocations);
+
+        // First number of each block: the new last_seq minus the block size, plus one
+        Map<Long, Long> nextSeq = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(counts.size(), "?"));
+        jdbcTemplate.query(String.format(SELECT_LAST_SEQ_SQL, placeholders), resultSet -> {
+            long conversationId = resultSet.getLong(1);
+            nextSeq.put(conversationId, resultSet.getLong(2) - counts.get(conversationId) + 1);
+        }, counts.keySet().toArray());
+
+        for (PendingSend pending : batch) {
+            Long conversationId = pending.message.getConversationId();
+            Long seq = nextSeq.get(conversationId);
+            if (seq == null) {
+                throw new RuntimeException("Conversation not found: " + conversationId);
+            }
+            pending.message.setSeq(seq);
+            nextSeq.put(conversationId, seq + 1);
+        }
+    }
+
+    /**
+     * Truncate message content for the conversation's last-message snapshot.
+     *
+     * @param content the message content
+     * @return the content, cut to the preview length
+     */
+    private String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH);
+    }
+
+    /**
+     * Distribute a committed message to WebSocket subscribers.
+     *
+     * @param messageDTO the persisted message
+     */
+    private void publish(MessageDTO messageDTO) {
+        try {
+            // Send message to WebSocket subscribers
+            messagingTemplate.convertAndSend("/topic/conversation." + messageDTO.getConversationId(), messageDTO);
+        } catch (Exception e) {
+            logger.error("Error publishing message {}: {}", messageDTO.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Periodically log pipeline throughput so batching behaviour can be compared under load.
+     */
+    @Scheduled(fixedRateString = "${app.chat.send-pipeline.report-interval-ms:60000}")
+    public void reportThroughput() {
+        long now = System.nanoTime();
+        long messages = flushedMessages.getAndSet(0);
+        long batches = flushedBatches.getAndSet(0);
+        double seconds = (now - lastReportNanos) / 1_000_000_000.0;
+        lastReportNanos = now;
+
+        if (messages > 0) {
+            logger.info("Send pipeline: {} messages in {} batches ({} msg/s, avg batch {}), queue depth {}",
+                    messages, batches,
+                    String.format("%.1f", messages / seconds),
+                    String.format("%.1f", (double) messages / batches),
+                    queue.size());
+        }
+    }
+
+    /**
+     * A queued send and the future its caller is waiting on.
+     */
+    private static class PendingSend {
+        private final MessageDTO message;
+        private final CompletableFuture<MessageDTO> future = new CompletableFuture<>();
+
+        PendingSend(MessageDTO message) {
+            this.message = message;
+        }
+    }
+}
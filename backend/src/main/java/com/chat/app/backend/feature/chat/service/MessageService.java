@@ -1,30 +1,29 @@
 package com.chat.app.backend.feature.chat.service;
 
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.chat.app.backend.feature.chat.dto.MessageCursor;
 import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.dto.MessageHistoryDTO;
 import com.chat.app.backend.feature.chat.model.Conversation;
 import com.chat.app.backend.feature.chat.model.Message;
-import com.chat.app.backend.feature.chat.model.MessageStatus;
 import com.chat.app.backend.feature.chat.repository.ConversationRepository;
 import com.chat.app.backend.feature.chat.repository.MessageRepository;
-import com.chat.app.backend.feature.user.model.User;
-import com.chat.app.backend.feature.user.repository.UserRepository;
 
 /**
  * Service for message operations.
@@ -34,74 +33,66 @@ public class MessageService {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageService.class);
     private static final int MAX_RETRY_ATTEMPTS = 3;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ConversationRepository conversationRepository;
 
     @Autowired
-    private ConversationRepository conversationRepository;
+    private MessageMapper messageMapper;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private MessageSendPipeline messageSendPipeline;
 
     @Autowired
-    private KafkaTemplate<String, Object> objectKafkaTemplate;
+    private DeliveryReceiptService deliveryReceiptService;
 
     @Autowired
-    private MessageMapper messageMapper;
+    private ReadReceiptService readReceiptService;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
 
     /**
-     * Send a new message in a conversation.
+     * Send a new message in a conversation and wait until it has been committed.
      *
      * @param senderId the ID of the user sending the message
      * @param conversationId the ID of the conversation
      * @param content the message content
      * @return the sent message DTO
      */
-    @Transactional
     public MessageDTO sendMessage(Long senderId, Long conversationId, String content) {
-        Optional<User> senderOpt = userRepository.findById(senderId);
-        Optional<Conversation> conversationOpt = conversationRepository.findById(conversationId);
-
-        if (senderOpt.isEmpty()) {
-            throw new RuntimeException("Sender not found");
-        }
-
-        if (conversationOpt.isEmpty()) {
-            throw new RuntimeException("Conversation not found");
+        try {
+            return sendMessageAsync(senderId, conversationId, content).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to send message", e.getCause());
         }
+    }
 
-        User sender = senderOpt.get();
-        Conversation conversation = conversationOpt.get();
-
-        // Check if sender is a participant in the conversation
-        if (!conversation.getParticipants().contains(sender)) {
+    /**
+     * Send a new message in a conversation through the write-behind pipeline.
+     * The sender is validated here; persistence, the conversation's updatedAt bump and
+     * distribution to Kafka and WebSocket subscribers happen in the pipeline's next group commit.
+     *
+     * @param senderId the ID of the user sending the message
+     * @param conversationId the ID of the conversation
+     * @param content the message content
+     * @return a future completed with the sent message DTO once it is durably stored
+     */
+    public CompletableFuture<MessageDTO> sendMessageAsync(Long senderId, Long conversationId, String content) {
+        // Check that the sender exists and is a participant in the conversation
+        Optional<String> senderUsername = conversationRepository.findParticipantUsername(conversationId, senderId);
+        if (senderUsername.isEmpty()) {
             throw new RuntimeException("User is not a participant in this conversation");
         }
 
-        // Create the message with initial SENT status
-        Message message = new Message(sender, conversation, content);
-        message.setStatus(MessageStatus.SENT);
-        Message savedMessage = messageRepository.save(message);
-
-        // Convert to DTO for response
-        MessageDTO messageDTO = messageMapper.toDTO(savedMessage);
-
-        // Send message to Kafka topic for distribution
-        objectKafkaTemplate.send("chat-messages", messageDTO);
-
-        // Send message to WebSocket subscribers
-        String destination = "/topic/conversation." + conversationId;
-        messagingTemplate.convertAndSend(destination, messageDTO);
-
-        // Update conversation's last activity time
-        conversation.setUpdatedAt(LocalDateTime.now());
-        conversationRepository.save(conversation);
-
-        return messageDTO;
+        return messageSendPipeline.submit(senderId, senderUsername.get(), conversationId, content);
     }
 
     /**
@@ -110,9 +101,9 @@ public class MessageService {
      * @param conversationId the conversation ID
      * @param page the page number (0-based)
      * @param size the page size
-     * @return a page of message DTOs
+     * @return a slice of message DTOs
      */
-    public Page<MessageDTO> getMessagesForConversation(Long conversationId, int page, int size) {
+    public Slice<MessageDTO> getMessagesForConversation(Long conversationId, int page, int size) {
         Optional<Conversation> conversationOpt = conversationRepository.findById(conversationId);
 
         if (conversationOpt.isEmpty()) {
@@ -121,82 +112,87 @@ public class MessageService {
 
         Conversation conversation = conversationOpt.get();
 
-        // Log the request parameters
-        System.out.println("Loading messages for conversation " + conversationId + ", page " + page + ", size " + size);
+        logger.debug("Loading messages for conversation {}, page {}, size {}", conversationId, page, size);
 
         // Always use descending order (newest first) for initial load
         // This matches WhatsApp behavior where newest messages are shown first
         // and older messages are loaded when scrolling up
         Pageable pageable = PageRequest.of(page, size, Sort.by("sentAt").descending());
 
-        // Use the repository method that matches our sort order
-        Page<Message> messages = messageRepository.findByConversationOrderBySentAtDesc(conversation, pageable);
+        // Slice instead of Page: the client never uses the total, so skip the COUNT(*)
+        Slice<Message> messages = messageRepository.findByConversationOrderBySentAtDesc(conversation, pageable);
 
-        // Log the result
-        System.out.println("Found " + messages.getContent().size() + " messages, total elements: " +
-                          messages.getTotalElements() + ", total pages: " + messages.getTotalPages());
+        logger.debug("Found {} messages, hasNext: {}", messages.getNumberOfElements(), messages.hasNext());
 
-        return messages.map(messageMapper::toDTO);
+        Slice<MessageDTO> messageDTOs = messages.map(messageMapper::toDTO);
+        readReceiptService.applyReadStatus(conversationId, messageDTOs.getContent());
+        return messageDTOs;
     }
 
     /**
-     * Mark messages as read for a user in a conversation.
+     * Get a slice of conversation history relative to a cursor.
+     * With no cursor the newest messages are returned. With {@code before} the messages
+     * older than the cursor are returned newest first (scrolling up); with {@code after} or
+     * {@code afterSeq} the messages newer than the cursor are returned oldest first (catching up).
+     * Each query seeks on the (conversation_id, seq) index, so latency does not depend on how
+     * deep into the history the cursor points, and catching up reads only the missing messages.
      *
-     * @param userId the user ID
      * @param conversationId the conversation ID
-     * @return the number of messages marked as read
+     * @param before an encoded cursor to load older messages from, or null
+     * @param after an encoded cursor to load newer messages from, or null
+     * @param afterSeq the sequence number of the newest message the client has, or null
+     * @param size the maximum number of messages to return
+     * @return the history slice with the cursor to continue from
      */
-    @Transactional
-    public int markMessagesAsRead(Long userId, Long conversationId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        Optional<Conversation> conversationOpt = conversationRepository.findById(conversationId);
-
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found");
+    @Transactional(readOnly = true)
+    public MessageHistoryDTO getMessageHistory(Long conversationId, String before, String after, Long afterSeq, int size) {
+        int positions = (before != null ? 1 : 0) + (after != null ? 1 : 0) + (afterSeq != null ? 1 : 0);
+        if (positions > 1) {
+            throw new RuntimeException("Only one of before, after or afterSeq may be specified");
         }
 
-        if (conversationOpt.isEmpty()) {
+        if (!conversationRepository.existsById(conversationId)) {
             throw new RuntimeException("Conversation not found");
         }
 
-        User user = userOpt.get();
-        Conversation conversation = conversationOpt.get();
+        Pageable pageable = PageRequest.of(0, Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE)));
+
+        Slice<Message> messages;
+        if (before != null) {
+            MessageCursor cursor = MessageCursor.decode(before);
+            messages = messageRepository.findByConversationIdBefore(conversationId, cursor.getSeq(), pageable);
+        } else if (after != null) {
+            MessageCursor cursor = MessageCursor.decode(after);
+            messages = messageRepository.findByConversationIdAfter(conversationId, cursor.getSeq(), pageable);
+        } else if (afterSeq != null) {
+            messages = messageRepository.findByConversationIdAfter(conversationId, afterSeq, pageable);
+        } else {
+            messages = messageRepository.findLatestByConversationId(conversationId, pageable);
+        }
 
-        // Get unread messages for the user in the conversation
-        List<Message> unreadMessages = messageRepository.findUnreadMessagesForUser(conversation, user);
+        List<MessageDTO> messageDTOs = messages.getContent().stream()
+                .map(messageMapper::toDTO)
+                .collect(Collectors.toList());
+        readReceiptService.applyReadStatus(conversationId, messageDTOs);
 
-        // Mark messages as read
-        LocalDateTime now = LocalDateTime.now();
-        for (Message message : unreadMessages) {
-            message.setReadAt(now);
-            message.setStatus(MessageStatus.READ);
+        // The last element is the furthest point reached in the requested direction
+        String nextCursor = messageDTOs.isEmpty()
+                ? null
+                : MessageCursor.of(messageDTOs.get(messageDTOs.size() - 1)).encode();
 
-            // If the message was never marked as delivered, mark it now
-            if (message.getDeliveredAt() == null) {
-                message.setDeliveredAt(now);
-            }
-        }
-
-        if (!unreadMessages.isEmpty()) {
-            messageRepository.saveAll(unreadMessages);
-
-            // Send individual status updates for each message
-            for (Message message : unreadMessages) {
-                // Create a status update DTO
-                MessageDTO statusUpdate = new MessageDTO();
-                statusUpdate.setId(message.getId());
-                statusUpdate.setConversationId(message.getConversation().getId());
-                statusUpdate.setStatus(MessageStatus.READ);
-                statusUpdate.setReadAt(message.getReadAt());
-                statusUpdate.setDeliveredAt(message.getDeliveredAt());
-
-                // Send to the conversation status topic
-                String destination = "/topic/conversation." + message.getConversation().getId() + ".status";
-                messagingTemplate.convertAndSend(destination, statusUpdate);
-            }
-        }
+        return new MessageHistoryDTO(messageDTOs, nextCursor, messages.hasNext());
+    }
 
-        return unreadMessages.size();
+    /**
+     * Mark messages as read for a user in a conversation.
+     * Moves the user's read watermark to the newest message; individual messages are not updated.
+     *
+     * @param userId the user ID
+     * @param conversationId the conversation ID
+     * @return the number of messages marked as read
+     */
+    public int markMessagesAsRead(Long userId, Long conversationId) {
+        return readReceiptService.markRead(userId, conversationId);
     }
 
     /**
@@ -207,17 +203,17 @@ public class MessageService {
      * @return the count of unread messages
      */
     public long getUnreadMessageCount(Long userId, Long conversationId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        Optional<Conversation> conversationOpt = conversationRepository.findById(conversationId);
-
-        if (userOpt.isEmpty() || conversationOpt.isEmpty()) {
-            return 0;
-        }
-
-        User user = userOpt.get();
-        Conversation conversation = conversationOpt.get();
+        return readReceiptService.getUnreadCount(userId, conversationId);
+    }
 
-        return messageRepository.countUnreadMessagesForUser(conversation, user);
+    /**
+     * Get unread message counts for all conversations of a user.
+     *
+     * @param userId the user ID
+     * @return the unread counts keyed by conversation ID
+     */
+    public Map<Long, Long> getUnreadMessageCounts(Long userId) {
+        return unreadCounterService.getUnreadCounts(userId);
     }
 
     /**
@@ -239,61 +235,7 @@ public class MessageService {
      *
      * @param userId the ID of the user who came online
      */
-    @Transactional
     public void processPendingMessagesForUser(Long userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            return;
-        }
-
-        User user = userOpt.get();
-
-        // Find all conversations where the user is a participant
-        List<Conversation> userConversations = conversationRepository.findByParticipant(user);
-
-        for (Conversation conversation : userConversations) {
-            // Find messages that are still in SENT status (not yet DELIVERED)
-            List<Message> pendingMessages = messageRepository.findPendingMessagesForUser(conversation, user);
-
-            if (!pendingMessages.isEmpty()) {
-                LocalDateTime now = LocalDateTime.now();
-
-                // Filter out messages sent by this user
-                List<Message> messagesToUpdate = pendingMessages.stream()
-                        .filter(message -> !message.getSender().getId().equals(userId))
-                        .collect(Collectors.toList());
-
-                if (!messagesToUpdate.isEmpty()) {
-                    // Update all pending messages to DELIVERED status
-                    for (Message message : messagesToUpdate) {
-                        message.setDeliveredAt(now);
-                        message.setStatus(MessageStatus.DELIVERED);
-                    }
-
-                    // Save all updated messages
-                    messageRepository.saveAll(messagesToUpdate);
-
-                    // Notify the sender about the delivery status update
-                    for (Message message : messagesToUpdate) {
-                        // Send status update via WebSocket
-                        MessageDTO statusUpdate = new MessageDTO();
-                        statusUpdate.setId(message.getId());
-                        statusUpdate.setConversationId(message.getConversation().getId());
-                        statusUpdate.setStatus(MessageStatus.DELIVERED);
-                        statusUpdate.setDeliveredAt(message.getDeliveredAt());
-
-                        // Send to the conversation status topic
-                        String destination = "/topic/conversation." + message.getConversation().getId() + ".status";
-                        messagingTemplate.convertAndSend(destination, statusUpdate);
-
-                        // Also send to the main conversation topic to ensure all clients get the update
-                        String mainDestination = "/topic/conversation." + message.getConversation().getId();
-                        messagingTemplate.convertAndSend(mainDestination, messageMapper.toDTO(message));
-                    }
-                }
-            }
-        }
+        deliveryReceiptService.requestDelivery(userId);
     }
-
-
-}
\ No newline at end of file
+}
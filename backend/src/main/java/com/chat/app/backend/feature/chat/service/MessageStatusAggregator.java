@@ -0,0 +1,225 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.chat.app.backend.feature.chat.dto.MessageStatusUpdateDTO;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Aggregates DELIVERED and READ transitions per conversation before they are sent to the
+ * conversation's status topic.
+ * Transitions are collected for a short window ({@code app.chat.status-aggregation.window-ms})
+ * and flushed as one DELIVERED frame listing the message IDs, plus one READ watermark frame
+ * per reader holding only the reader's highest watermark. A conversation whose DELIVERED list
+ * reaches {@code max-messages-per-frame} is flushed right away, so frames stay bounded in size
+ * as well as in latency. Transitions reported inside a transaction are only collected once it
+ * commits, so rolled-back changes are never announced.
+ */
+@Service
+public class MessageStatusAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageStatusAggregator.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Value("${app.chat.status-aggregation.max-messages-per-frame:500}")
+    private int maxMessagesPerFrame;
+
+    private final Map<Long, PendingStatus> pending = new ConcurrentHashMap<>();
+
+    // Counters, reset every time they are reported
+    private final AtomicLong transitionsCollected = new AtomicLong();
+    private final AtomicLong framesSent = new AtomicLong();
+
+    /**
+     * Report that messages of a conversation were delivered.
+     *
+     * @param conversationId the ID of the conversation
+     * @param messageIds the IDs of the delivered messages
+     * @param deliveredAt when the messages were delivered
+     */
+    public void delivered(Long conversationId, List<Long> messageIds, LocalDateTime deliveredAt) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(messageIds);
+        afterCommit(() -> {
+            transitionsCollected.addAndGet(ids.size());
+            for (int from = 0; from < ids.size(); from += maxMessagesPerFrame) {
+                List<Long> slice = ids.subList(from, Math.min(from + maxMessagesPerFrame, ids.size()));
+                while (true) {
+                    PendingStatus status = pending.computeIfAbsent(conversationId, k -> new PendingStatus());
+                    boolean full;
+                    synchronized (status) {
+                        if (status.closed) {
+                            continue;
+                        }
+                        // Make room first, so one frame never exceeds the limit
+                        if (status.deliveredIds.size() + slice.size() > maxMessagesPerFrame) {
+                            flush(conversationId, status);
+                            continue;
+                        }
+                        status.deliveredIds.addAll(slice);
+                        if (status.deliveredAt == null || deliveredAt.isAfter(status.deliveredAt)) {
+                            status.deliveredAt = deliveredAt;
+                        }
+                        full = status.deliveredIds.size() >= maxMessagesPerFrame;
+                    }
+                    if (full) {
+                        flush(conversationId, status);
+                    }
+                    break;
+                }
+            }
+        });
+    }
+
+    /**
+     * Report that a reader moved their read watermark in a conversation.
+     *
+     * @param conversationId the ID of the conversation
+     * @param readerId the ID of the reader
+     * @param upToMessageId the ID of the newest message read
+     * @param upToSeq the sequence number of the newest message read
+     * @param readAt when the messages were read
+     */
+    public void read(Long conversationId, Long readerId, Long upToMessageId, Long upToSeq, LocalDateTime readAt) {
+        afterCommit(() -> {
+            transitionsCollected.incrementAndGet();
+            while (true) {
+                PendingStatus status = pending.computeIfAbsent(conversationId, k -> new PendingStatus());
+                synchronized (status) {
+                    if (status.closed) {
+                        continue;
+                    }
+                    ReadMark mark = status.reads.get(readerId);
+                    if (mark == null || upToSeq > mark.upToSeq) {
+                        status.reads.put(readerId, new ReadMark(upToMessageId, upToSeq, readAt));
+                    }
+                }
+                break;
+            }
+        });
+    }
+
+    /**
+     * Flush every conversation collected during the last window.
+     */
+    @Scheduled(fixedDelayString = "${app.chat.status-aggregation.window-ms:100}")
+    @PreDestroy
+    public void flushAll() {
+        pending.forEach(this::flush);
+    }
+
+    /**
+     * Periodically log how many transitions were collected and how many frames they took.
+     */
+    @Scheduled(fixedRateString = "${app.chat.status-aggregation.report-interval-ms:60000}")
+    public void reportStats() {
+        long transitions = transitionsCollected.getAndSet(0);
+        long frames = framesSent.getAndSet(0);
+        if (transitions > 0) {
+            logger.info("Status aggregation: {} transitions sent in {} frames", transitions, frames);
+        }
+    }
+
+    /**
+     * Send a conversation's collected transitions and retire its buffer. Frames are sent while
+     * holding the buffer, so the frames of one conversation leave in the order they were flushed.
+     */
+    private void flush(Long conversationId, PendingStatus status) {
+        synchronized (status) {
+            if (status.closed) {
+                return;
+            }
+            status.closed = true;
+            pending.remove(conversationId, status);
+
+            String destination = "/topic/conversation." + conversationId + ".status";
+            try {
+                // DELIVERED first; a READ watermark supersedes it for the messages it covers
+                if (!status.deliveredIds.isEmpty()) {
+                    MessageStatusUpdateDTO update = new MessageStatusUpdateDTO(conversationId,
+                            MessageStatus.DELIVERED, status.deliveredIds);
+                    update.setDeliveredAt(status.deliveredAt);
+                    messagingTemplate.convertAndSend(destination, update);
+                    framesSent.incrementAndGet();
+                }
+
+                status.reads.forEach((readerId, mark) -> {
+                    MessageStatusUpdateDTO update = new MessageStatusUpdateDTO(conversationId, MessageStatus.READ, List.of());
+                    update.setReaderId(readerId);
+                    update.setUpToMessageId(mark.upToMessageId);
+                    update.setUpToSeq(mark.upToSeq);
+                    update.setReadAt(mark.readAt);
+                    messagingTemplate.convertAndSend(destination, update);
+                    framesSent.incrementAndGet();
+                });
+            } catch (Exception e) {
+                logger.error("Error sending status frames for conversation {}: {}", conversationId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Run an action once the current transaction has committed, or right away outside a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Transitions of one conversation collected since its last flush. Guarded by its own monitor;
+     * once closed it has been flushed and a new buffer takes its place.
+     */
+    private static class PendingStatus {
+        private final List<Long> deliveredIds = new ArrayList<>();
+        private LocalDateTime deliveredAt;
+        private final Map<Long, ReadMark> reads = new LinkedHashMap<>();
+        private boolean closed;
+    }
+
+    /**
+     * The highest read watermark of one reader within a window.
+     */
+    private static class ReadMark {
+        private final Long upToMessageId;
+        private final Long upToSeq;
+        private final LocalDateTime readAt;
+
+        ReadMark(Long upToMessageId, Long upToSeq, LocalDateTime readAt) {
+            this.upToMessageId = upToMessageId;
+            this.upToSeq = upToSeq;
+            this.readAt = readAt;
+        }
+    }
+}
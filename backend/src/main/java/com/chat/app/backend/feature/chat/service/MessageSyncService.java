@@ -1,198 +1,234 @@
 package com.chat.app.backend.feature.chat.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.chat.app.backend.feature.chat.dto.MessageDTO;
-import com.chat.app.backend.feature.chat.model.Conversation;
-import com.chat.app.backend.feature.chat.model.Message;
-import com.chat.app.backend.feature.chat.model.MessageStatus;
-import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.chat.dto.SyncBatchDTO;
+import com.chat.app.backend.feature.chat.model.ClientSyncState;
+import com.chat.app.backend.feature.chat.repository.ClientSyncStateRepository;
 import com.chat.app.backend.feature.chat.repository.MessageRepository;
-import com.chat.app.backend.feature.user.model.User;
-import com.chat.app.backend.feature.user.model.UserStatus;
-import com.chat.app.backend.feature.user.repository.UserRepository;
 
 
 /**
  * Service for handling message synchronization and delivery status updates.
+ * Offline sync is cursor based: messages are sent in bounded batches in message ID order,
+ * and each client device's position is stored so it resumes where it left off. Every message
+ * carries its conversation sequence number, so a client can check each conversation for gaps
+ * and fetch exactly the missing range from the history endpoint.
  */
 @Service
 public class MessageSyncService {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageSyncService.class);
 
+    // Matches the client_id column
+    private static final int MAX_CLIENT_ID_LENGTH = 64;
+
     @Autowired
     private MessageRepository messageRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private ConversationRepository conversationRepository;
+    private DeliveryReceiptService deliveryReceiptService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ReadReceiptService readReceiptService;
 
     @Autowired
-    private MessageMapper messageMapper;
+    private ClientSyncStateRepository clientSyncStateRepository;
 
-    /**
-     * Scheduled task to check for messages that should be marked as delivered.
-     * This runs every minute to update message status for online users.
-     */
-    @Scheduled(fixedRate = 30000) // Run every 30 seconds instead of 60
-    @Transactional
-    public void updateMessageDeliveryStatus() {
-        logger.info("Running scheduled message delivery status update");
+    @Value("${app.chat.sync.batch-size:200}")
+    private int batchSize;
 
-        try {
-            // Find all messages with SENT status, regardless of user status
-            List<Message> pendingMessages = messageRepository.findByStatus(MessageStatus.SENT);
+    @Value("${app.chat.sync.max-batches-per-request:10}")
+    private int maxBatchesPerRequest;
 
-            if (pendingMessages.isEmpty()) {
-                logger.info("No pending messages found, skipping delivery status update");
-                return;
-            }
-
-            logger.info("Found {} pending messages to mark as delivered", pendingMessages.size());
-            LocalDateTime now = LocalDateTime.now();
-
-            // Mark all messages as delivered
-            for (Message message : pendingMessages) {
-                // Update message status
-                message.setStatus(MessageStatus.DELIVERED);
-                message.setDeliveredAt(now);
-                messageRepository.save(message);
-
-                // Send status update via WebSocket
-                MessageDTO messageDTO = messageMapper.toDTO(message);
-
-                // Send to conversation status topic
-                String statusDestination = "/topic/conversation." + message.getConversation().getId() + ".status";
-                messagingTemplate.convertAndSend(statusDestination, messageDTO);
-
-                logger.info("Updated message {} to DELIVERED", message.getId());
-            }
-        } catch (Exception e) {
-            logger.error("Error updating message delivery status: {}", e.getMessage(), e);
-        }
-    }
+    @Value("${app.chat.sync.client-state-retention-days:30}")
+    private int clientStateRetentionDays;
 
     /**
      * Process pending messages for a user who just came online.
+     * Delivery runs asynchronously and is coalesced with runs triggered by the user's
+     * WebSocket connect and subscribe events.
      *
      * @param userId the ID of the user who came online
      */
-    @Transactional
     public void processPendingMessagesForUser(Long userId) {
         logger.info("Processing pending messages for user {}", userId);
+        deliveryReceiptService.requestDelivery(userId);
+    }
 
-        try {
-            Optional<User> userOpt = userRepository.findById(userId);
-            if (userOpt.isEmpty()) {
-                logger.warn("User {} not found", userId);
-                return;
-            }
-
-            User user = userOpt.get();
-
-            // Find conversations where this user is a participant
-            List<Conversation> conversations = conversationRepository.findByParticipant(user);
-
-            if (conversations.isEmpty()) {
-                logger.info("No conversations found for user {}", userId);
-                return;
-            }
+    /**
+     * Synchronize missed messages to one client of a user, in bounded batches.
+     * The starting position is, in order of preference: the cursor of the request, the position
+     * stored for the client, or the first message sent after {@code since}. Messages are streamed
+     * from the database in ID order and sent as batches of {@code app.chat.sync.batch-size}; at
+     * most {@code app.chat.sync.max-batches-per-request} batches are sent per request, after which
+     * the last batch tells the client to continue with its cursor.
+     *
+     * @param userId the ID of the user
+     * @param username the username of the user, for the user destination
+     * @param clientId the client (device) identifier, or null
+     * @param cursor the cursor of the last batch the client received, or null
+     * @param since the time to synchronize from if there is no cursor or stored position
+     * @return the number of messages synchronized by this request
+     */
+    @Transactional
+    public int synchronizeMessages(Long userId, String username, String clientId, String cursor, LocalDateTime since) {
+        String syncClientId = normalizeClientId(clientId);
+        Long afterId = resolveStartPosition(userId, syncClientId, cursor, since);
+        if (afterId == null) {
+            logger.info("No messages to synchronize for user {}", userId);
+            sendBatch(username, new SyncBatchDTO(syncClientId, SyncBatchDTO.STATUS_COMPLETE, List.of(),
+                    cursor, false, 0, System.currentTimeMillis()));
+            return 0;
+        }
 
-            LocalDateTime now = LocalDateTime.now();
+        int limit = batchSize * maxBatchesPerRequest;
+        List<MessageDTO> batch = new ArrayList<>(batchSize);
+        long lastId = afterId;
+        int synced = 0;
+        boolean hasMore = false;
+
+        // Fetch one row beyond the limit to learn whether the client has to come back for more
+        try (Stream<MessageRepository.SyncMessageView> rows =
+                     messageRepository.streamMessagesForSync(userId, afterId, Limit.of(limit + 1))) {
+            Iterator<MessageRepository.SyncMessageView> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                MessageRepository.SyncMessageView row = iterator.next();
+                if (synced == limit) {
+                    hasMore = true;
+                    break;
+                }
 
-            // For each conversation, find messages that should be marked as delivered
-            for (Conversation conversation : conversations) {
-                // Find messages in this conversation that are in SENT status and not from this user
-                List<Message> pendingMessages = messageRepository.findByConversationAndStatusAndSenderNot(
-                        conversation, MessageStatus.SENT, user);
+                batch.add(toDTO(row));
+                lastId = row.getId();
+                synced++;
 
-                if (pendingMessages.isEmpty()) {
-                    continue;
+                if (batch.size() == batchSize && synced < limit) {
+                    sendBatch(username, new SyncBatchDTO(syncClientId, SyncBatchDTO.STATUS_BATCH,
+                            withReadStatus(batch), encodeCursor(lastId), true, synced, System.currentTimeMillis()));
+                    batch = new ArrayList<>(batchSize);
                 }
+            }
+        }
 
-                logger.info("Found {} pending messages in conversation {} for user {}",
-                        pendingMessages.size(), conversation.getId(), userId);
-
-                // Mark messages as delivered
-                for (Message message : pendingMessages) {
-                    // Update message status
-                    message.setStatus(MessageStatus.DELIVERED);
-                    message.setDeliveredAt(now);
-                    messageRepository.save(message);
+        String status = hasMore ? SyncBatchDTO.STATUS_MORE : SyncBatchDTO.STATUS_COMPLETE;
+        sendBatch(username, new SyncBatchDTO(syncClientId, status, withReadStatus(batch),
+                encodeCursor(lastId), hasMore, synced, System.currentTimeMillis()));
 
-                    // Send status update via WebSocket
-                    MessageDTO messageDTO = messageMapper.toDTO(message);
+        if (syncClientId != null && lastId > afterId) {
+            clientSyncStateRepository.advance(userId, syncClientId, lastId, LocalDateTime.now());
+        }
 
-                    // Send to conversation status topic
-                    String statusDestination = "/topic/conversation." + conversation.getId() + ".status";
-                    messagingTemplate.convertAndSend(statusDestination, messageDTO);
+        logger.info("Synchronized {} messages to user {} (client {}){}", synced, userId, syncClientId,
+                hasMore ? ", more to follow" : "");
+        return synced;
+    }
 
-                    logger.info("Updated message {} to DELIVERED", message.getId());
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error processing pending messages for user {}: {}", userId, e.getMessage(), e);
+    /**
+     * Periodically delete the sync positions of clients that have not synchronized for a long time.
+     */
+    @Scheduled(cron = "${app.chat.sync.cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void deleteStaleClientStates() {
+        int deleted = clientSyncStateRepository.deleteByUpdatedAtBefore(
+                LocalDateTime.now().minusDays(clientStateRetentionDays));
+        if (deleted > 0) {
+            logger.info("Deleted {} stale client sync states", deleted);
         }
     }
 
     /**
-     * Synchronize messages for a user since a specific time.
+     * Resolve the message ID after which a sync starts.
      *
-     * @param userId the ID of the user
-     * @param since the time to synchronize from
-     * @return the number of messages synchronized
+     * @return the message ID (exclusive), or null if there is nothing to synchronize
      */
-    @Transactional(readOnly = true)
-    public int synchronizeMessages(Long userId, LocalDateTime since) {
-        logger.info("Synchronizing messages for user {} since {}", userId, since);
+    private Long resolveStartPosition(Long userId, String clientId, String cursor, LocalDateTime since) {
+        if (cursor != null && !cursor.isBlank()) {
+            return decodeCursor(cursor);
+        }
 
-        try {
-            Optional<User> userOpt = userRepository.findById(userId);
-            if (userOpt.isEmpty()) {
-                logger.warn("User {} not found", userId);
-                return 0;
+        if (clientId != null) {
+            Optional<ClientSyncState> state = clientSyncStateRepository.findById(new ClientSyncState.Key(userId, clientId));
+            if (state.isPresent()) {
+                return state.get().getLastMessageId();
             }
+        }
 
-            User user = userOpt.get();
+        Long firstId = messageRepository.findFirstMessageIdSentAfter(userId, since);
+        return firstId != null ? firstId - 1 : null;
+    }
 
-            // Find messages in user's conversations that were sent after the specified time
-            List<Message> messages = messageRepository.findByConversationParticipantAndSentAtAfter(user, since);
+    /**
+     * Apply the READ status derived from read watermarks to a batch, per conversation.
+     */
+    private List<MessageDTO> withReadStatus(List<MessageDTO> batch) {
+        Map<Long, List<MessageDTO>> byConversation = new HashMap<>();
+        for (MessageDTO message : batch) {
+            byConversation.computeIfAbsent(message.getConversationId(), k -> new ArrayList<>()).add(message);
+        }
+        byConversation.forEach(readReceiptService::applyReadStatus);
+        return batch;
+    }
 
-            if (messages.isEmpty()) {
-                logger.info("No messages to synchronize for user {}", userId);
-                return 0;
-            }
+    private void sendBatch(String username, SyncBatchDTO batch) {
+        messagingTemplate.convertAndSendToUser(username, "/queue/sync", batch);
+    }
 
-            logger.info("Found {} messages to synchronize for user {}", messages.size(), userId);
+    private MessageDTO toDTO(MessageRepository.SyncMessageView row) {
+        MessageDTO dto = new MessageDTO();
+        dto.setId(row.getId());
+        dto.setConversationId(row.getConversationId());
+        dto.setSeq(row.getSeq());
+        dto.setSenderId(row.getSenderId());
+        dto.setSenderUsername(row.getSenderUsername());
+        dto.setContent(row.getContent());
+        dto.setSentAt(row.getSentAt());
+        dto.setDeliveredAt(row.getDeliveredAt());
+        dto.setReadAt(row.getReadAt());
+        dto.setStatus(row.getStatus());
+        return dto;
+    }
 
-            // Send messages to the user's queue
-            String destination = "/queue/user." + userId + ".messages";
+    private String normalizeClientId(String clientId) {
+        if (clientId == null || clientId.isBlank()) {
+            return null;
+        }
+        return clientId.length() > MAX_CLIENT_ID_LENGTH ? clientId.substring(0, MAX_CLIENT_ID_LENGTH) : clientId;
+    }
 
-            for (Message message : messages) {
-                MessageDTO messageDTO = messageMapper.toDTO(message);
-                messagingTemplate.convertAndSend(destination, messageDTO);
-            }
+    private static String encodeCursor(long messageId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(messageId).getBytes(StandardCharsets.UTF_8));
+    }
 
-            return messages.size();
-        } catch (Exception e) {
-            logger.error("Error synchronizing messages for user {}: {}", userId, e.getMessage(), e);
-            return 0;
+    private static long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid sync cursor");
         }
     }
 }
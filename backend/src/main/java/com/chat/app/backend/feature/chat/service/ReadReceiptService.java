@@ -0,0 +1,164 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.model.ConversationReadState;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+import com.chat.app.backend.feature.chat.repository.ConversationReadStateRepository;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.chat.repository.MessageRepository;
+
+/**
+ * Service for read receipts based on per-(user, conversation) read watermarks.
+ * A watermark is a conversation sequence number, carried together with the matching message ID.
+ * A read action moves the reader's watermark to the newest message with one upsert and emits
+ * one watermark frame; messages are not updated individually. The READ status shown in history is
+ * derived from the watermarks; unread counts come from {@link UnreadCounterService}.
+ */
+@Service
+public class ReadReceiptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReceiptService.class);
+
+    @Autowired
+    private ConversationReadStateRepository readStateRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageStatusAggregator statusAggregator;
+
+    @Autowired
+    private UnreadCounterService unreadCounterService;
+
+    /**
+     * Mark everything in a conversation as read by a user.
+     *
+     * @param userId the ID of the reader
+     * @param conversationId the ID of the conversation
+     * @return the number of messages that became read
+     */
+    @Transactional
+    public int markRead(Long userId, Long conversationId) {
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new RuntimeException("Conversation not found");
+        }
+
+        if (conversationRepository.findParticipantUsername(conversationId, userId).isEmpty()) {
+            throw new RuntimeException("User is not a participant in this conversation");
+        }
+
+        List<MessageRepository.MessagePosition> latest =
+                messageRepository.findLatestPositions(conversationId, PageRequest.of(0, 1));
+        if (latest.isEmpty()) {
+            return 0;
+        }
+        Long upToMessageId = latest.get(0).getId();
+        Long upToSeq = latest.get(0).getSeq();
+
+        long watermark = readStateRepository.findById(new ConversationReadState.Key(userId, conversationId))
+                .map(ConversationReadState::getLastReadSeq)
+                .orElse(0L);
+        if (watermark >= upToSeq) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        readStateRepository.advanceWatermark(userId, conversationId, upToMessageId, upToSeq, now);
+        conversationRepository.markLastMessageRead(conversationId, upToMessageId, userId);
+        int newlyRead = (int) unreadCounterService.reset(userId, conversationId);
+
+        // One watermark frame for the whole read action, coalesced with the reader's other reads in the window
+        statusAggregator.read(conversationId, userId, upToMessageId, upToSeq, now);
+
+        logger.debug("User {} read conversation {} up to message {} ({} new)",
+                userId, conversationId, upToMessageId, newlyRead);
+        return newlyRead;
+    }
+
+    /**
+     * Get the number of messages in a conversation a user has not read.
+     *
+     * @param userId the ID of the user
+     * @param conversationId the ID of the conversation
+     * @return the unread message count
+     */
+    public long getUnreadCount(Long userId, Long conversationId) {
+        return unreadCounterService.getUnreadCount(userId, conversationId);
+    }
+
+    /**
+     * Derive READ status for messages of a conversation from the participants' watermarks.
+     * A message counts as read once every participant other than its sender has read past it.
+     *
+     * @param conversationId the ID of the conversation
+     * @param messages the message DTOs to update in place
+     */
+    public void applyReadStatus(Long conversationId, List<MessageDTO> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Long, ConversationReadState> states = new HashMap<>();
+        for (ConversationReadState state : readStateRepository.findByConversationId(conversationId)) {
+            states.put(state.getUserId(), state);
+        }
+
+        // Track the two lowest watermarks so "lowest among everyone but the sender" is O(1) per message
+        Long lowestUserId = null;
+        long lowest = Long.MAX_VALUE;
+        long secondLowest = Long.MAX_VALUE;
+        LocalDateTime lowestReadAt = null;
+        LocalDateTime secondLowestReadAt = null;
+
+        for (ConversationRepository.ParticipantView participant
+                : conversationRepository.findParticipantsByConversationIds(List.of(conversationId))) {
+            ConversationReadState state = states.get(participant.getUserId());
+            long watermark = state != null ? state.getLastReadSeq() : 0L;
+            LocalDateTime readAt = state != null ? state.getReadAt() : null;
+
+            if (watermark < lowest) {
+                secondLowest = lowest;
+                secondLowestReadAt = lowestReadAt;
+                lowest = watermark;
+                lowestReadAt = readAt;
+                lowestUserId = participant.getUserId();
+            } else if (watermark < secondLowest) {
+                secondLowest = watermark;
+                secondLowestReadAt = readAt;
+            }
+        }
+
+        for (MessageDTO message : messages) {
+            if (message.getSeq() == null
+                    || (message.getStatus() != MessageStatus.SENT && message.getStatus() != MessageStatus.DELIVERED)) {
+                continue;
+            }
+
+            boolean senderIsLowest = message.getSenderId().equals(lowestUserId);
+            long othersWatermark = senderIsLowest ? secondLowest : lowest;
+            LocalDateTime othersReadAt = senderIsLowest ? secondLowestReadAt : lowestReadAt;
+
+            // Long.MAX_VALUE means there is nobody besides the sender
+            if (othersWatermark != Long.MAX_VALUE && message.getSeq() <= othersWatermark) {
+                message.setStatus(MessageStatus.READ);
+                message.setReadAt(othersReadAt);
+            }
+        }
+    }
+}
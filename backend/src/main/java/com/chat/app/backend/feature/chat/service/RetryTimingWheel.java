@@ -0,0 +1,92 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hashed timing wheel holding the message retries due within its horizon.
+ * The wheel has {@code size} slots of {@code tickMs} each; a retry is placed in the slot of the
+ * tick it falls due in, so scheduling and expiring are O(1) no matter how many retries are
+ * waiting. Retries beyond the horizon are rejected and left to the database until they come
+ * into range. Expired retries go through an overflow queue that is drained in bounded chunks,
+ * so a burst of retries due at the same moment is spread over the following ticks.
+ * Thread-safe; all methods are short and non-blocking.
+ */
+class RetryTimingWheel {
+
+    private final long tickMs;
+    private final ArrayDeque<Long>[] slots;
+    private final ArrayDeque<Long> overflow = new ArrayDeque<>();
+    private final Set<Long> scheduled = new HashSet<>();
+    // The earliest tick whose slot has not expired yet
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    RetryTimingWheel(long tickMs, int size, long nowMillis) {
+        this.tickMs = tickMs;
+        this.slots = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.currentTick = nowMillis / tickMs;
+    }
+
+    /**
+     * Schedule a message retry. Retries already due go into the next slot to expire.
+     *
+     * @param messageId the ID of the message
+     * @param dueAtMillis when the retry is due, in epoch milliseconds
+     * @return false if the message is already scheduled or the retry is beyond the horizon
+     */
+    synchronized boolean schedule(Long messageId, long dueAtMillis) {
+        long tick = Math.max(currentTick, (dueAtMillis + tickMs - 1) / tickMs);
+        if (tick - currentTick >= slots.length || !scheduled.add(messageId)) {
+            return false;
+        }
+        slots[(int) (tick % slots.length)].add(messageId);
+        return true;
+    }
+
+    /**
+     * Advance the wheel to the given time and take up to {@code maxItems} expired retries.
+     * Expired retries beyond the limit stay queued for the next call.
+     *
+     * @param nowMillis the current time in epoch milliseconds
+     * @param maxItems the maximum number of retries to return
+     * @return the IDs of the messages whose retry is due, oldest first
+     */
+    synchronized List<Long> advance(long nowMillis, int maxItems) {
+        long nowTick = nowMillis / tickMs;
+        while (currentTick <= nowTick) {
+            ArrayDeque<Long> slot = slots[(int) (currentTick % slots.length)];
+            overflow.addAll(slot);
+            slot.clear();
+            currentTick++;
+        }
+
+        List<Long> due = new ArrayList<>(Math.min(maxItems, overflow.size()));
+        while (due.size() < maxItems && !overflow.isEmpty()) {
+            Long messageId = overflow.poll();
+            scheduled.remove(messageId);
+            due.add(messageId);
+        }
+        return due;
+    }
+
+    /**
+     * @return the number of retries waiting in the wheel, including expired ones not yet taken
+     */
+    synchronized int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * @return the horizon of the wheel in milliseconds
+     */
+    long horizonMs() {
+        return tickMs * slots.length;
+    }
+}
@@ -0,0 +1,229 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
+import com.chat.app.backend.feature.chat.dto.TypingIndicatorDTO;
+import com.chat.app.backend.feature.user.service.PresenceService;
+
+/**
+ * Tracks who is typing in which conversation and broadcasts only state transitions.
+ * Clients send a typing frame on every keystroke; the first one starts the user's typing state
+ * and is broadcast, later ones only extend its expiry and are dropped. A stop frame, the expiry
+ * or the close of the user's last session ends the state and broadcasts one stop frame.
+ * Transitions of a conversation are broadcast while holding the conversation, so its frames
+ * leave in the order the transitions happened.
+ * Only conversations with someone typing right now are held in memory.
+ */
+@Service
+public class TypingStateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TypingStateService.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Value("${app.chat.typing.ttl-ms:6000}")
+    private long ttlMs;
+
+    // Conversation ID -> typing users; entries are removed once nobody is typing
+    private final ConcurrentHashMap<Long, ConversationTyping> conversations = new ConcurrentHashMap<>();
+
+    // Frame counters, reset every time they are reported
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesBroadcast = new AtomicLong();
+
+    /**
+     * Apply a typing frame sent by a user.
+     *
+     * @param conversationId the ID of the conversation
+     * @param userId the ID of the user
+     * @param username the username of the user
+     * @param typing whether the user is typing
+     */
+    public void onTypingFrame(Long conversationId, Long userId, String username, boolean typing) {
+        framesReceived.incrementAndGet();
+        if (!typing) {
+            stopTyping(conversationId, userId, username);
+            return;
+        }
+
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        update(conversationId, true, typers -> {
+            TypingState state = typers.get(userId);
+            if (state != null) {
+                state.expiresAtMillis = expiresAt;
+                return List.of();
+            }
+            typers.put(userId, new TypingState(username, expiresAt));
+            return List.of(new TypingIndicatorDTO(conversationId, username, true));
+        });
+    }
+
+    /**
+     * Stop the typing state of a user in a conversation, e.g. once their message was sent.
+     *
+     * @param conversationId the ID of the conversation
+     * @param userId the ID of the user
+     * @param username the username of the user
+     */
+    public void stopTyping(Long conversationId, Long userId, String username) {
+        update(conversationId, false, typers -> typers.remove(userId) != null
+                ? List.of(new TypingIndicatorDTO(conversationId, username, false))
+                : List.of());
+    }
+
+    /**
+     * End the typing states of a user whose last WebSocket session on this node closed. Typing
+     * frames are handled by the node that received them, so another open session of the user
+     * on this node may still be typing; sessions on other nodes hold their own state.
+     * Only conversations with someone currently typing are scanned.
+     *
+     * @param event the session disconnect event
+     */
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        UserDetailsImpl userDetails = userDetailsOf(event.getUser());
+        if (userDetails == null || conversations.isEmpty()
+                // PresenceService has already removed the closed session
+                || presenceService.hasLocalSessions(userDetails.getId())) {
+            return;
+        }
+
+        for (Long conversationId : conversations.keySet()) {
+            stopTyping(conversationId, userDetails.getId(), userDetails.getUsername());
+        }
+    }
+
+    /**
+     * Expire typing states that were not refreshed in time and broadcast their stop frames.
+     */
+    @Scheduled(fixedDelayString = "${app.chat.typing.sweep-interval-ms:1000}")
+    public void expireStale() {
+        long now = System.currentTimeMillis();
+        for (Long conversationId : conversations.keySet()) {
+            update(conversationId, false, typers -> {
+                List<TypingIndicatorDTO> expired = new ArrayList<>();
+                Iterator<TypingState> states = typers.values().iterator();
+                while (states.hasNext()) {
+                    TypingState state = states.next();
+                    if (state.expiresAtMillis <= now) {
+                        expired.add(new TypingIndicatorDTO(conversationId, state.username, false));
+                        states.remove();
+                    }
+                }
+                return expired;
+            });
+        }
+    }
+
+    /**
+     * Periodically log how many typing frames were received and how many were broadcast.
+     */
+    @Scheduled(fixedRateString = "${app.chat.typing.report-interval-ms:60000}")
+    public void reportStats() {
+        long received = framesReceived.getAndSet(0);
+        long broadcast = framesBroadcast.getAndSet(0);
+        if (received > 0) {
+            logger.info("Typing indicators: {} frames received, {} broadcast, {} conversations active",
+                    received, broadcast, conversations.size());
+        }
+    }
+
+    /**
+     * Apply a change to the typing users of a conversation and broadcast the transitions it
+     * returns while holding the conversation. A conversation nobody types in any more is retired;
+     * a change that finds it retired retries against its replacement.
+     *
+     * @param conversationId the ID of the conversation
+     * @param create whether to start tracking the conversation if nobody is typing in it
+     * @param change the change, returning the transition frames to broadcast
+     */
+    private void update(Long conversationId, boolean create,
+                        Function<Map<Long, TypingState>, List<TypingIndicatorDTO>> change) {
+        while (true) {
+            ConversationTyping conversation = create
+                    ? conversations.computeIfAbsent(conversationId, k -> new ConversationTyping())
+                    : conversations.get(conversationId);
+            if (conversation == null) {
+                return;
+            }
+
+            synchronized (conversation) {
+                if (conversation.closed) {
+                    continue;
+                }
+                for (TypingIndicatorDTO frame : change.apply(conversation.typers)) {
+                    broadcast(frame);
+                }
+                if (conversation.typers.isEmpty()) {
+                    conversation.closed = true;
+                    conversations.remove(conversationId, conversation);
+                }
+                return;
+            }
+        }
+    }
+
+    private void broadcast(TypingIndicatorDTO frame) {
+        framesBroadcast.incrementAndGet();
+        try {
+            messagingTemplate.convertAndSend("/topic/conversation." + frame.getConversationId() + ".typing", frame);
+        } catch (Exception e) {
+            logger.error("Error sending typing frame for conversation {}: {}",
+                    frame.getConversationId(), e.getMessage(), e);
+        }
+    }
+
+    private UserDetailsImpl userDetailsOf(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return userDetails;
+        }
+        return null;
+    }
+
+    /**
+     * Users typing in one conversation. Guarded by its own monitor; once closed it has been
+     * removed from the map and a new one takes its place.
+     */
+    private static class ConversationTyping {
+        private final Map<Long, TypingState> typers = new HashMap<>();
+        private boolean closed;
+    }
+
+    /**
+     * Typing state of one user in one conversation. Guarded by the conversation's monitor.
+     */
+    private static class TypingState {
+        private final String username;
+        private long expiresAtMillis;
+
+        TypingState(String username, long expiresAtMillis) {
+            this.username = username;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
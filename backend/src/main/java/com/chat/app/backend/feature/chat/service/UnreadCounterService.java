@@ -0,0 +1,484 @@
+package com.chat.app.backend.feature.chat.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.model.ConversationReadState;
+import com.chat.app.backend.feature.chat.repository.ConversationReadStateRepository;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.chat.repository.MessageRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Materialized per-(user, conversation) unread counters.
+ * Counters are incremented when messages are committed and reset when the user reads the
+ * conversation. They live in a lock-striped in-memory cache and are written to
+ * conversation_read_states periodically: increments as deltas, resets as absolute values.
+ * A counter that has never been materialized is seeded once from a COUNT over the watermark;
+ * its increments are only written once it has been, since until then it is unknown whether a
+ * row exists for them to be added to.
+ * <p>
+ * Counters are loaded from the database in their own transaction and never while a flush is
+ * writing, so a loaded value and the in-memory changes not yet written always add up exactly.
+ * A user's counters stay in memory until their last changes have been written.
+ */
+@Service
+public class UnreadCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    private static final String ADD_UNREAD_SQL =
+            "INSERT INTO conversation_read_states (user_id, conversation_id, last_read_message_id, unread_count) " +
+            "VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE unread_count = unread_count + VALUES(unread_count)";
+
+    private static final String SET_UNREAD_SQL =
+            "INSERT INTO conversation_read_states (user_id, conversation_id, last_read_message_id, unread_count) " +
+            "VALUES (?, ?, 0, ?) ON DUPLICATE KEY UPDATE unread_count = VALUES(unread_count)";
+
+    // Must be a power of two
+    private static final int STRIPE_COUNT = 32;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ConversationReadStateRepository readStateRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.chat.unread.idle-evict-ms:600000}")
+    private long idleEvictMs;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    // Loads hold the read lock, flushes the write lock
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    private TransactionTemplate loadTemplate;
+
+    public UnreadCounterService() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Set up the transaction counters are loaded in.
+     */
+    @PostConstruct
+    public void init() {
+        loadTemplate = new TransactionTemplate(transactionManager);
+        // A fresh snapshot, so a load sees every flush that completed before it
+        loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        loadTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Count newly committed messages towards every participant except their senders.
+     * Resolves participants for all conversations in the batch with one query.
+     *
+     * @param messages the committed messages
+     */
+    public void recordMessages(List<MessageDTO> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Set<Long> conversationIds = new HashSet<>();
+        for (MessageDTO message : messages) {
+            conversationIds.add(message.getConversationId());
+        }
+
+        Map<Long, List<Long>> participantsByConversation = new HashMap<>();
+        for (ConversationRepository.ParticipantView participant
+                : conversationRepository.findParticipantsByConversationIds(conversationIds)) {
+            participantsByConversation
+                    .computeIfAbsent(participant.getConversationId(), k -> new ArrayList<>())
+                    .add(participant.getUserId());
+        }
+
+        for (MessageDTO message : messages) {
+            for (Long userId : participantsByConversation.getOrDefault(message.getConversationId(), List.of())) {
+                if (!userId.equals(message.getSenderId())) {
+                    stripeFor(userId).increment(userId, message.getConversationId(), message.getSeq());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reset a user's counter for a conversation after a read action.
+     *
+     * @param userId the ID of the reader
+     * @param conversationId the ID of the conversation
+     * @return the unread count before the reset
+     */
+    public long reset(Long userId, Long conversationId) {
+        long previous = getUnreadCount(userId, conversationId);
+        stripeFor(userId).reset(userId, conversationId);
+        return previous;
+    }
+
+    /**
+     * Get a user's unread count for one conversation.
+     *
+     * @param userId the ID of the user
+     * @param conversationId the ID of the conversation
+     * @return the unread message count
+     */
+    public long getUnreadCount(Long userId, Long conversationId) {
+        Long cached = stripeFor(userId).get(userId, conversationId);
+        if (cached != null) {
+            return cached;
+        }
+
+        return loadExclusive(() -> {
+            ConversationReadState state = readStateRepository
+                    .findById(new ConversationReadState.Key(userId, conversationId))
+                    .orElse(null);
+            return load(userId, conversationId, state);
+        });
+    }
+
+    /**
+     * Get a user's unread counts for all of their conversations.
+     *
+     * @param userId the ID of the user
+     * @return unread counts keyed by conversation ID
+     */
+    public Map<Long, Long> getUnreadCounts(Long userId) {
+        return getUnreadCounts(userId, conversationRepository.findConversationIdsByParticipantId(userId));
+    }
+
+    /**
+     * Get a user's unread counts for the given conversations.
+     *
+     * @param userId the ID of the user
+     * @param conversationIds the IDs of conversations the user participates in
+     * @return unread counts keyed by conversation ID
+     */
+    public Map<Long, Long> getUnreadCounts(Long userId, Collection<Long> conversationIds) {
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+
+        Stripe stripe = stripeFor(userId);
+        for (Long conversationId : conversationIds) {
+            Long cached = stripe.get(userId, conversationId);
+            if (cached != null) {
+                counts.put(conversationId, cached);
+            } else {
+                missing.add(conversationId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            loadExclusive(() -> {
+                // One query for every persisted counter of the user
+                Map<Long, ConversationReadState> states = new HashMap<>();
+                for (ConversationReadState state : readStateRepository.findByUserId(userId)) {
+                    states.put(state.getConversationId(), state);
+                }
+                for (Long conversationId : missing) {
+                    counts.put(conversationId, load(userId, conversationId, states.get(conversationId)));
+                }
+                return null;
+            });
+        }
+
+        return counts;
+    }
+
+    /**
+     * Materialize a counter from its persisted row, or seed it from the watermark if there is none.
+     *
+     * @param userId the ID of the user
+     * @param conversationId the ID of the conversation
+     * @param state the persisted read state, or null
+     * @return the current unread count
+     */
+    private long load(Long userId, Long conversationId, ConversationReadState state) {
+        if (state != null) {
+            return stripeFor(userId).loadPersisted(userId, conversationId, state.getUnreadCount());
+        }
+
+        MessageRepository.SeqBoundedCount counted = messageRepository.countFromOthers(conversationId, userId);
+        return stripeFor(userId).loadCounted(userId, conversationId, counted.getCount(), counted.getMaxSeq());
+    }
+
+    /**
+     * Run a load in its own transaction, while no flush is writing.
+     */
+    private <T> T loadExclusive(Supplier<T> loader) {
+        flushLock.readLock().lock();
+        try {
+            return loadTemplate.execute(status -> loader.get());
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Seed the counters that were incremented but never loaded, then write pending counter
+     * changes in two JDBC batches and evict idle users.
+     */
+    @Scheduled(fixedRateString = "${app.chat.unread.flush-interval-ms:10000}")
+    public void flush() {
+        long evictBefore = System.currentTimeMillis() - idleEvictMs;
+
+        // Counters still unloaded after this keep their increments until a later flush
+        Map<Long, List<Long>> unloaded = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.collectUnloaded(unloaded);
+        }
+        unloaded.forEach((userId, conversationIds) -> {
+            try {
+                getUnreadCounts(userId, conversationIds);
+            } catch (Exception e) {
+                logger.warn("Failed to seed unread counters of user {}: {}", userId, e.getMessage());
+            }
+        });
+
+        flushLock.writeLock().lock();
+        try {
+            List<Object[]> deltas = new ArrayList<>();
+            List<Object[]> absolutes = new ArrayList<>();
+            for (Stripe stripe : stripes) {
+                stripe.drain(deltas, absolutes);
+            }
+
+            if (!deltas.isEmpty() || !absolutes.isEmpty()) {
+                try {
+                    if (!absolutes.isEmpty()) {
+                        jdbcTemplate.batchUpdate(SET_UNREAD_SQL, absolutes);
+                    }
+                    if (!deltas.isEmpty()) {
+                        jdbcTemplate.batchUpdate(ADD_UNREAD_SQL, deltas);
+                    }
+                    logger.debug("Flushed {} unread counter resets and {} increments", absolutes.size(), deltas.size());
+                } catch (Exception e) {
+                    logger.error("Failed to flush unread counters: {}", e.getMessage(), e);
+                    // Put the changes back so the next flush retries them; nobody is evicted until it does
+                    for (Object[] row : absolutes) {
+                        Long userId = (Long) row[0];
+                        stripeFor(userId).restore(userId, (Long) row[1], (Long) row[2], true);
+                    }
+                    for (Object[] row : deltas) {
+                        Long userId = (Long) row[0];
+                        stripeFor(userId).restore(userId, (Long) row[1], (Long) row[2], false);
+                    }
+                    return;
+                }
+            }
+
+            for (Stripe stripe : stripes) {
+                stripe.evictIdle(evictBefore);
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Persist outstanding counter changes on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Stripe stripeFor(Long userId) {
+        return stripes[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * In-memory state of one counter. Guarded by the owning stripe.
+     */
+    static class Counter {
+        // Current value, valid once loaded
+        private long count;
+        private boolean loaded;
+        // Change not yet persisted: an increment, or the absolute value if a reset is pending
+        private long pending;
+        private boolean pendingIsAbsolute;
+        // Sequence numbers of the messages counted before the counter was loaded
+        private List<Long> unloadedSeqs;
+    }
+
+    /**
+     * Counters of one user, with the time they were last touched.
+     */
+    private static class UserCounters {
+        private final Map<Long, Counter> byConversation = new HashMap<>();
+        private long lastAccess;
+    }
+
+    /**
+     * One lock-striped segment of the cache, holding the counters of a subset of users.
+     */
+    static class Stripe {
+
+        private final Map<Long, UserCounters> users = new HashMap<>();
+
+        private Counter counter(Long userId, Long conversationId) {
+            UserCounters userCounters = users.computeIfAbsent(userId, k -> new UserCounters());
+            userCounters.lastAccess = System.currentTimeMillis();
+            return userCounters.byConversation.computeIfAbsent(conversationId, k -> new Counter());
+        }
+
+        synchronized Long get(Long userId, Long conversationId) {
+            UserCounters userCounters = users.get(userId);
+            if (userCounters == null) {
+                return null;
+            }
+            userCounters.lastAccess = System.currentTimeMillis();
+            Counter counter = userCounters.byConversation.get(conversationId);
+            return counter != null && counter.loaded ? counter.count : null;
+        }
+
+        synchronized void increment(Long userId, Long conversationId, Long seq) {
+            Counter counter = counter(userId, conversationId);
+            counter.count++;
+            counter.pending++;
+            if (!counter.loaded) {
+                if (counter.unloadedSeqs == null) {
+                    counter.unloadedSeqs = new ArrayList<>();
+                }
+                counter.unloadedSeqs.add(seq);
+            }
+        }
+
+        synchronized void reset(Long userId, Long conversationId) {
+            Counter counter = counter(userId, conversationId);
+            counter.count = 0;
+            counter.loaded = true;
+            counter.unloadedSeqs = null;
+            counter.pending = 0;
+            counter.pendingIsAbsolute = true;
+        }
+
+        synchronized long loadPersisted(Long userId, Long conversationId, long persisted) {
+            Counter counter = counter(userId, conversationId);
+            if (!counter.loaded) {
+                // No flush ran since the persisted value was read, so unpersisted changes are on top of it
+                counter.count = counter.pendingIsAbsolute ? counter.pending : persisted + counter.pending;
+                counter.loaded = true;
+                counter.unloadedSeqs = null;
+            }
+            return counter.count;
+        }
+
+        synchronized long loadCounted(Long userId, Long conversationId, long counted, long maxSeq) {
+            Counter counter = counter(userId, conversationId);
+            if (!counter.loaded) {
+                // The COUNT covers the messages up to maxSeq; increments for later ones are on top of it
+                long later = 0;
+                if (counter.unloadedSeqs != null) {
+                    for (Long seq : counter.unloadedSeqs) {
+                        if (seq == null || seq > maxSeq) {
+                            later++;
+                        }
+                    }
+                }
+                counter.count = counted + later;
+                counter.loaded = true;
+                counter.unloadedSeqs = null;
+                // Persist as an absolute value, since no row exists to add to
+                counter.pending = counter.count;
+                counter.pendingIsAbsolute = true;
+            }
+            return counter.count;
+        }
+
+        synchronized void restore(Long userId, Long conversationId, long pending, boolean absolute) {
+            Counter counter = counter(userId, conversationId);
+            if (counter.pendingIsAbsolute) {
+                // A newer reset supersedes the failed write
+                return;
+            }
+            // Increments made since the drain are on top of the failed write
+            counter.pending += pending;
+            counter.pendingIsAbsolute = absolute;
+        }
+
+        /**
+         * Collect the counters with increments that were never loaded, keyed by user ID.
+         */
+        synchronized void collectUnloaded(Map<Long, List<Long>> unloaded) {
+            users.forEach((userId, userCounters) -> userCounters.byConversation.forEach((conversationId, counter) -> {
+                if (!counter.loaded && counter.pending != 0) {
+                    unloaded.computeIfAbsent(userId, k -> new ArrayList<>()).add(conversationId);
+                }
+            }));
+        }
+
+        /**
+         * Take the pending changes of every loaded counter. Unloaded counters keep theirs: without
+         * a row their increments would be written as the whole count, losing the earlier unread
+         * messages the seeding COUNT would have found.
+         */
+        synchronized void drain(List<Object[]> deltas, List<Object[]> absolutes) {
+            users.forEach((userId, userCounters) -> {
+                for (Map.Entry<Long, Counter> entry : userCounters.byConversation.entrySet()) {
+                    Counter counter = entry.getValue();
+                    if (!counter.loaded) {
+                        continue;
+                    }
+                    if (counter.pendingIsAbsolute) {
+                        absolutes.add(new Object[]{userId, entry.getKey(), counter.pending});
+                    } else if (counter.pending != 0) {
+                        deltas.add(new Object[]{userId, entry.getKey(), counter.pending});
+                    }
+                    counter.pending = 0;
+                    counter.pendingIsAbsolute = false;
+                }
+            });
+        }
+
+        /**
+         * Drop users not touched since the given time whose changes are all persisted.
+         */
+        synchronized void evictIdle(long evictBefore) {
+            users.values().removeIf(userCounters -> {
+                if (userCounters.lastAccess >= evictBefore) {
+                    return false;
+                }
+                for (Counter counter : userCounters.byConversation.values()) {
+                    if (counter.pending != 0 || counter.pendingIsAbsolute) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        }
+    }
+}
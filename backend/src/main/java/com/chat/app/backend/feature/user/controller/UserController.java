@@ -1,13 +1,11 @@
 package com.chat.app.backend.feature.user.controller;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -24,6 +22,7 @@ import com.chat.app.backend.feature.user.dto.UserDTO;
 import com.chat.app.backend.feature.user.model.User;
 import com.chat.app.backend.feature.user.model.UserStatus;
 import com.chat.app.backend.feature.user.repository.UserRepository;
+import com.chat.app.backend.feature.user.service.PresenceService;
 
 /**
  * REST Controller for user operations.
@@ -37,10 +36,10 @@ public class UserController {
     private UserRepository userRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private MessageSyncService messageSyncService;
 
     @Autowired
-    private MessageSyncService messageSyncService;
+    private PresenceService presenceService;
 
     /**
      * Get all users except the current user.
@@ -126,21 +125,11 @@ public class UserController {
         }
 
         User user = userOpt.get();
-        user.setStatus(status.getStatus());
-        user.setLastActive(LocalDateTime.now());
-
-        User savedUser = userRepository.save(user);
-        UserDTO userDTO = convertToDTO(savedUser);
-
-        // Broadcast status update to all connected clients
-        com.chat.app.backend.feature.user.dto.UserStatusDTO statusDTO =
-            new com.chat.app.backend.feature.user.dto.UserStatusDTO(
-                savedUser.getId(),
-                savedUser.getUsername(),
-                savedUser.getStatus(),
-                savedUser.getLastActive() // Pass lastActive directly to constructor
-            );
-        messagingTemplate.convertAndSend("/topic/user.status", statusDTO);
+
+        // Update the presence registry; it is persisted with the next flush
+        // and broadcast to the user's contacts with the next presence delta
+        presenceService.updateStatus(userId, user.getUsername(), status.getStatus());
+        UserDTO userDTO = convertToDTO(user);
 
         // If user is coming online, process pending messages
         if (UserStatus.ONLINE.equals(status.getStatus())) {
@@ -164,8 +153,9 @@ public class UserController {
         dto.setFullName(user.getFullName());
         dto.setAvatarUrl(user.getAvatarUrl());
         dto.setBio(user.getBio());
-        dto.setStatus(user.getStatus());
-        dto.setLastActive(user.getLastActive());
+        // Live presence takes precedence over the periodically flushed columns
+        dto.setStatus(presenceService.getStatus(user.getId(), user.getStatus()));
+        dto.setLastActive(presenceService.getLastActive(user.getId(), user.getLastActive()));
         dto.setCreatedAt(user.getCreatedAt());
         dto.setUpdatedAt(user.getUpdatedAt());
 
@@ -200,27 +190,10 @@ public class UserController {
         }
 
         Long userId = userDetails.getId();
-        Optional<User> userOpt = userRepository.findById(userId);
 
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        User user = userOpt.get();
-        user.setStatus(UserStatus.OFFLINE);
-        user.setLastActive(LocalDateTime.now());
-
-        User savedUser = userRepository.save(user);
-
-        // Broadcast status update to all connected clients
-        com.chat.app.backend.feature.user.dto.UserStatusDTO statusDTO =
-            new com.chat.app.backend.feature.user.dto.UserStatusDTO(
-                savedUser.getId(),
-                savedUser.getUsername(),
-                UserStatus.OFFLINE,
-                savedUser.getLastActive() // Pass lastActive directly to constructor
-            );
-        messagingTemplate.convertAndSend("/topic/user.status", statusDTO);
+        // Update the presence registry; it is persisted with the next flush
+        // and broadcast to the user's contacts with the next presence delta
+        presenceService.updateStatus(userId, userDetails.getUsername(), UserStatus.OFFLINE);
 
         return ResponseEntity.ok().body("Logged out successfully");
     }
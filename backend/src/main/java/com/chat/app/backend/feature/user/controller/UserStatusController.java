@@ -2,23 +2,20 @@ package com.chat.app.backend.feature.user.controller;
 
 
 
-import java.time.LocalDateTime;
-import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
 import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
 import com.chat.app.backend.feature.chat.service.MessageSyncService;
 import com.chat.app.backend.feature.user.dto.UserStatusDTO;
-import com.chat.app.backend.feature.user.model.User;
-import com.chat.app.backend.feature.user.repository.UserRepository;
+import com.chat.app.backend.feature.user.model.UserStatus;
+import com.chat.app.backend.feature.user.service.PresenceService;
 
 /**
  * Controller for handling user status WebSocket messages.
@@ -29,10 +26,7 @@ public class UserStatusController {
     private static final Logger logger = LoggerFactory.getLogger(UserStatusController.class);
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
-
-    @Autowired
-    private UserRepository userRepository;
+    private PresenceService presenceService;
 
     @Autowired
     private MessageSyncService messageSyncService;
@@ -54,39 +48,17 @@ public class UserStatusController {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             Long userId = userDetails.getId();
 
-            // Update user status in database
-            Optional<User> userOpt = userRepository.findById(userId);
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                user.setStatus(statusDTO.getStatus());
-                user.setLastActive(LocalDateTime.now());
-                userRepository.save(user);
-
-                // Set lastActive timestamp (current time for all statuses)
-                LocalDateTime currentTime = LocalDateTime.now();
-                user.setLastActive(currentTime);
-
-                // Create status update DTO for broadcasting
-                UserStatusDTO broadcastStatus = new UserStatusDTO(
-                    userId,
-                    user.getUsername(),
-                    statusDTO.getStatus(),
-                    currentTime // Pass lastActive directly to constructor
-                );
+            // Update user status in the presence registry; it is persisted with the next flush
+            // and broadcast to the user's contacts with the next presence delta
+            presenceService.updateStatus(userId, userDetails.getUsername(), statusDTO.getStatus());
 
-                // Broadcast to all users
-                messagingTemplate.convertAndSend("/topic/user.status", broadcastStatus);
-
-                // If user is coming online, process pending messages
-                if ("ONLINE".equals(statusDTO.getStatus().toString())) {
-                    logger.info("User {} is now online, processing pending messages", user.getUsername());
-                    messageSyncService.processPendingMessagesForUser(userId);
-                }
-
-                logger.info("User status updated: {} -> {}", user.getUsername(), statusDTO.getStatus());
-            } else {
-                logger.warn("User not found for ID: {}", userId);
+            // If user is coming online, process pending messages
+            if (statusDTO.getStatus() == UserStatus.ONLINE) {
+                logger.info("User {} is now online, processing pending messages", userDetails.getUsername());
+                messageSyncService.processPendingMessagesForUser(userId);
             }
+
+            logger.info("User status updated: {} -> {}", userDetails.getUsername(), statusDTO.getStatus());
         } catch (Exception e) {
             logger.error("Error in handleStatusUpdate: {}", e.getMessage(), e);
         }
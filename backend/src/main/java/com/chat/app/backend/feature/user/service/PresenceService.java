@@ -0,0 +1,581 @@
+package com.chat.app.backend.feature.user.service;
+
+import java.security.Principal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.chat.app.backend.common.cluster.ClusterSessionRegistry;
+import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.user.dto.UserStatusDTO;
+import com.chat.app.backend.feature.user.model.UserStatus;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory registry of user presence.
+ * Tracks, per user, the number of open WebSocket sessions, the status the user last declared
+ * and when they were last seen. Session counts are driven by STOMP connect/disconnect events,
+ * so "is this user online" is a memory lookup rather than a database read.
+ * Status and lastActive are written back to the users table periodically in one JDBC batch.
+ * In cluster mode, sessions on other nodes (see {@link ClusterSessionRegistry}) also count as online,
+ * and ONLINE/OFFLINE transitions are only broadcast for the first and last session cluster-wide.
+ * Status changes are not broadcast globally: they are coalesced per user, deduplicated against
+ * the last status sent, and delivered periodically as one delta frame per recipient, only to
+ * online users who share a conversation with the subject.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private static final String UPDATE_PRESENCE_SQL =
+            "UPDATE users SET status = ?, last_active = ? WHERE id = ?";
+
+    // Must be a power of two
+    private static final int STRIPE_COUNT = 64;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ClusterSessionRegistry clusterSessionRegistry;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    // WebSocket session ID -> user ID, so repeated disconnect events for a session are applied once
+    private final ConcurrentHashMap<String, Long> sessionUsers = new ConcurrentHashMap<>();
+
+    // Status changes not yet broadcast, latest per user
+    private final ConcurrentHashMap<Long, UserStatusDTO> pendingBroadcasts = new ConcurrentHashMap<>();
+
+    public PresenceService() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Count a newly connected WebSocket session towards its user's presence.
+     *
+     * @param event the session connected event
+     */
+    @EventListener
+    public void handleSessionConnected(SessionConnectedEvent event) {
+        UserDetailsImpl userDetails = userDetailsOf(event.getUser());
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+        if (userDetails == null || sessionId == null) {
+            return;
+        }
+
+        if (sessionUsers.putIfAbsent(sessionId, userDetails.getId()) != null) {
+            return;
+        }
+
+        if (sessionOpened(userDetails.getId(), userDetails.getUsername())
+                && !clusterSessionRegistry.isUserConnectedElsewhere(userDetails.getId())) {
+            logger.info("User {} connected, now ONLINE", userDetails.getUsername());
+            broadcast(userDetails.getId(), userDetails.getUsername(), UserStatus.ONLINE, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Remove a closed WebSocket session from its user's presence.
+     * Spring may publish more than one disconnect event per session; only the first is applied.
+     * Runs before other disconnect listeners, so they see session counts without the closed session.
+     *
+     * @param event the session disconnect event
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        Long userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+
+        String username = sessionClosed(userId);
+        if (username != null && !clusterSessionRegistry.isUserConnectedElsewhere(userId)) {
+            logger.info("User {} disconnected from all sessions, now OFFLINE", username);
+            broadcast(userId, username, UserStatus.OFFLINE, LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Record a status declared by the user (e.g. ONLINE, AWAY, OFFLINE on logout).
+     * The change is persisted with the next periodic flush and broadcast to the user's
+     * contacts with the next delta frame.
+     *
+     * @param userId the ID of the user
+     * @param username the username of the user
+     * @param status the declared status
+     * @return the time the user was last seen, i.e. now
+     */
+    public LocalDateTime updateStatus(Long userId, String username, UserStatus status) {
+        long now = System.currentTimeMillis();
+        stripeFor(userId).update(userId, presence -> {
+            presence.username = username;
+            presence.status = status;
+            presence.lastSeen = now;
+            presence.dirty = true;
+        });
+        LocalDateTime lastActive = new Timestamp(now).toLocalDateTime();
+        broadcast(userId, username, status, lastActive);
+        return lastActive;
+    }
+
+    /**
+     * Check whether a user has an open WebSocket session on this node, whatever their status.
+     *
+     * @param userId the ID of the user
+     * @return true if the user has a session on this node
+     */
+    public boolean hasLocalSessions(Long userId) {
+        return stripeFor(userId).getSessions(userId) > 0;
+    }
+
+    /**
+     * Check whether a user currently has at least one open session and has not signed off.
+     *
+     * @param userId the ID of the user
+     * @return true if the user is online
+     */
+    public boolean isOnline(Long userId) {
+        return stripeFor(userId).isOnline(userId) || clusterSessionRegistry.isUserConnectedElsewhere(userId);
+    }
+
+    /**
+     * Get a user's current status, falling back to the persisted value if the user is not tracked.
+     *
+     * @param userId the ID of the user
+     * @param persistedStatus the status stored in the database
+     * @return the current status
+     */
+    public UserStatus getStatus(Long userId, UserStatus persistedStatus) {
+        UserStatus status = stripeFor(userId).getStatus(userId);
+        return status != null ? status : persistedStatus;
+    }
+
+    /**
+     * Get the time a user was last seen, falling back to the persisted value if the user is not tracked.
+     *
+     * @param userId the ID of the user
+     * @param persistedLastActive the lastActive value stored in the database
+     * @return the last seen time
+     */
+    public LocalDateTime getLastActive(Long userId, LocalDateTime persistedLastActive) {
+        long lastSeen = stripeFor(userId).getLastSeen(userId);
+        return lastSeen > 0 ? new Timestamp(lastSeen).toLocalDateTime() : persistedLastActive;
+    }
+
+    /**
+     * Write changed presence entries to the users table in one batch.
+     */
+    @Scheduled(fixedRateString = "${app.presence.flush-interval-ms:15000}")
+    public void flush() {
+        List<Object[]> updates = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.drainDirty(updates);
+        }
+
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_PRESENCE_SQL, updates);
+            logger.debug("Flushed presence for {} users", updates.size());
+        } catch (Exception e) {
+            logger.error("Failed to flush presence for {} users: {}", updates.size(), e.getMessage(), e);
+            // Mark the entries dirty again so the next flush retries them
+            for (Object[] update : updates) {
+                Long userId = (Long) update[2];
+                stripeFor(userId).update(userId, presence -> presence.dirty = true);
+            }
+        }
+    }
+
+    /**
+     * Deliver pending status changes to the subjects' online contacts, one frame per recipient.
+     * Changes that end on the status last broadcast for a user (e.g. a quick reconnect) are dropped.
+     */
+    @Scheduled(fixedDelayString = "${app.presence.broadcast-interval-ms:1000}")
+    public void publishStatusDeltas() {
+        if (pendingBroadcasts.isEmpty()) {
+            return;
+        }
+
+        Map<Long, UserStatusDTO> changes = new HashMap<>();
+        for (Long userId : pendingBroadcasts.keySet()) {
+            UserStatusDTO change = pendingBroadcasts.remove(userId);
+            if (change != null && stripeFor(userId).markBroadcast(userId, change.getStatus())) {
+                changes.put(userId, change);
+            }
+        }
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // Recipient username -> status changes of their contacts (and their own, for other devices)
+        Map<String, List<UserStatusDTO>> framesByRecipient = new HashMap<>();
+        for (UserStatusDTO change : changes.values()) {
+            if (isOnline(change.getUserId())) {
+                framesByRecipient.computeIfAbsent(change.getUsername(), k -> new ArrayList<>()).add(change);
+            }
+        }
+        for (ConversationRepository.ContactView contact : conversationRepository.findContactsByUserIds(changes.keySet())) {
+            if (isOnline(contact.getContactId())) {
+                framesByRecipient.computeIfAbsent(contact.getContactUsername(), k -> new ArrayList<>())
+                        .add(changes.get(contact.getSubjectId()));
+            }
+        }
+
+        framesByRecipient.forEach((recipient, frame) ->
+                messagingTemplate.convertAndSendToUser(recipient, "/queue/presence", frame));
+        logger.debug("Broadcast {} status changes in {} frames", changes.size(), framesByRecipient.size());
+    }
+
+    /**
+     * Persist outstanding presence changes on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Register an open session for a user.
+     *
+     * @param userId the ID of the user
+     * @param username the username of the user
+     * @return true if this was the user's first open session
+     */
+    private boolean sessionOpened(long userId, String username) {
+        long now = System.currentTimeMillis();
+        boolean[] firstSession = new boolean[1];
+        stripeFor(userId).update(userId, presence -> {
+            presence.username = username;
+            presence.sessions++;
+            presence.lastSeen = now;
+            presence.dirty = true;
+            if (presence.sessions == 1) {
+                firstSession[0] = true;
+                // Opening a session implies being online unless the user chose another visible status
+                if (presence.status == null || presence.status == UserStatus.OFFLINE) {
+                    presence.status = UserStatus.ONLINE;
+                }
+            }
+        });
+        return firstSession[0];
+    }
+
+    /**
+     * Unregister an open session for a user.
+     *
+     * @param userId the ID of the user
+     * @return the username if this was the user's last open session, null otherwise
+     */
+    private String sessionClosed(long userId) {
+        long now = System.currentTimeMillis();
+        String[] lastSession = new String[1];
+        stripeFor(userId).update(userId, presence -> {
+            presence.sessions = Math.max(0, presence.sessions - 1);
+            presence.lastSeen = now;
+            presence.dirty = true;
+            if (presence.sessions == 0) {
+                presence.status = UserStatus.OFFLINE;
+                lastSession[0] = presence.username;
+            }
+        });
+        return lastSession[0];
+    }
+
+    /**
+     * Queue a presence transition for the next delta frame, replacing an unsent earlier one.
+     *
+     * @param userId the ID of the user
+     * @param username the username of the user
+     * @param status the new status
+     * @param lastActive the time of the change
+     */
+    private void broadcast(Long userId, String username, UserStatus status, LocalDateTime lastActive) {
+        pendingBroadcasts.put(userId, new UserStatusDTO(userId, username, status, lastActive));
+    }
+
+    /**
+     * Extract our user details from a WebSocket session principal.
+     *
+     * @param principal the session principal
+     * @return the user details, or null if the session is not authenticated
+     */
+    private UserDetailsImpl userDetailsOf(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserDetailsImpl userDetails) {
+            return userDetails;
+        }
+        return null;
+    }
+
+    private Stripe stripeFor(long userId) {
+        return stripes[(int) (mix(userId) >>> 58) & (STRIPE_COUNT - 1)];
+    }
+
+    private static long mix(long key) {
+        // Murmur3 finalizer, spreads sequential IDs across stripes and slots
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Presence state of a single user. Fields are guarded by the owning stripe's lock.
+     */
+    private static class Presence {
+        private String username;
+        private int sessions;
+        private UserStatus status;
+        private long lastSeen;
+        private boolean dirty;
+        // Status most recently broadcast to contacts
+        private UserStatus broadcastStatus;
+    }
+
+    /**
+     * One lock-striped segment of the presence table: an open-addressing hash table keyed by
+     * primitive user IDs (no boxing on lookup). Reads use optimistic stamps and only fall back
+     * to a read lock if a writer interfered.
+     */
+    private static class Stripe {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final StampedLock lock = new StampedLock();
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Presence[] values = new Presence[INITIAL_CAPACITY];
+        private int size;
+
+        boolean isOnline(long userId) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                try {
+                    boolean online = isOnline(find(keys, values, userId));
+                    if (lock.validate(stamp)) {
+                        return online;
+                    }
+                } catch (RuntimeException e) {
+                    // Torn read during a concurrent resize, retry under the read lock
+                }
+            }
+
+            stamp = lock.readLock();
+            try {
+                return isOnline(find(keys, values, userId));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static boolean isOnline(Presence presence) {
+            return presence != null && presence.sessions > 0 && presence.status != UserStatus.OFFLINE;
+        }
+
+        UserStatus getStatus(long userId) {
+            long stamp = lock.readLock();
+            try {
+                Presence presence = find(keys, values, userId);
+                return presence != null ? presence.status : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long getLastSeen(long userId) {
+            long stamp = lock.readLock();
+            try {
+                Presence presence = find(keys, values, userId);
+                return presence != null ? presence.lastSeen : 0L;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int getSessions(long userId) {
+            long stamp = lock.readLock();
+            try {
+                Presence presence = find(keys, values, userId);
+                return presence != null ? presence.sessions : 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void update(long userId, Consumer<Presence> updater) {
+            long stamp = lock.writeLock();
+            try {
+                Presence presence = find(keys, values, userId);
+                if (presence == null) {
+                    presence = new Presence();
+                    insert(userId, presence);
+                }
+                updater.accept(presence);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Record a status as broadcast.
+         *
+         * @return false if it is the status that was broadcast last, i.e. a duplicate
+         */
+        boolean markBroadcast(long userId, UserStatus status) {
+            long stamp = lock.writeLock();
+            try {
+                Presence presence = find(keys, values, userId);
+                if (presence == null) {
+                    presence = new Presence();
+                    insert(userId, presence);
+                }
+                if (presence.broadcastStatus == status) {
+                    return false;
+                }
+                presence.broadcastStatus = status;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Collect the entries changed since the last flush and evict entries of users that
+         * have no open session and were already persisted.
+         */
+        void drainDirty(List<Object[]> updates) {
+            long stamp = lock.writeLock();
+            try {
+                for (int slot = 0; slot < values.length; slot++) {
+                    Presence presence = values[slot];
+                    if (presence == null) {
+                        continue;
+                    }
+                    if (presence.dirty) {
+                        presence.dirty = false;
+                        UserStatus status = presence.status != null ? presence.status : UserStatus.OFFLINE;
+                        updates.add(new Object[]{status.name(), new Timestamp(presence.lastSeen), keys[slot]});
+                    } else if (presence.sessions == 0) {
+                        removeAt(slot);
+                        // The slot now holds a shifted entry that has not been visited yet
+                        slot--;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private static Presence find(long[] keys, Presence[] values, long userId) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(userId) & mask;
+            for (int probes = 0; probes < keys.length; probes++) {
+                Presence presence = values[slot];
+                if (presence == null) {
+                    return null;
+                }
+                if (keys[slot] == userId) {
+                    return presence;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private void insert(long userId, Presence presence) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = (int) mix(userId) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = userId;
+            values[slot] = presence;
+            size++;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Presence[] oldValues = values;
+            long[] newKeys = new long[capacity];
+            Presence[] newValues = new Presence[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+                    while (newValues[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = oldKeys[i];
+                    newValues[slot] = oldValues[i];
+                }
+            }
+            values = newValues;
+            keys = newKeys;
+        }
+
+        /**
+         * Remove the entry at a slot, shifting later entries of the same probe chain back
+         * so lookups never stop early at the freed slot.
+         */
+        private void removeAt(int slot) {
+            int mask = keys.length - 1;
+            values[slot] = null;
+            size--;
+            int next = (slot + 1) & mask;
+            while (values[next] != null) {
+                int home = (int) mix(keys[next]) & mask;
+                // Move the entry back if its home slot is not in (slot, next]
+                boolean movable = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+                if (movable) {
+                    keys[slot] = keys[next];
+                    values[slot] = values[next];
+                    values[next] = null;
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 
+import com.chat.app.backend.feature.auth.security.UserDetailsServiceImpl;
 import com.chat.app.backend.feature.user.model.User;
 import com.chat.app.backend.feature.user.repository.UserRepository;
 
@@ -22,6 +23,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
     /**
      * Find a user by username.
      *
@@ -85,6 +89,9 @@ public class UserService {
      */
     public User saveUser(User user) {
         logger.debug("Saving user: {}", user.getUsername());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Cached principals may carry the old account data or roles
+        userDetailsService.evictUser(saved.getId());
+        return saved;
     }
 }
\ No newline at end of file
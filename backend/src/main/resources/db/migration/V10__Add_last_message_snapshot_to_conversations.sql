@@ -0,0 +1,23 @@
+-- Denormalized snapshot of the newest message, maintained by the send pipeline
+ALTER TABLE conversations
+    ADD COLUMN last_message_id BIGINT NULL,
+    ADD COLUMN last_message_sender_id BIGINT NULL,
+    ADD COLUMN last_message_sender_username VARCHAR(255) NULL,
+    ADD COLUMN last_message_preview VARCHAR(255) NULL,
+    ADD COLUMN last_message_sent_at DATETIME(6) NULL,
+    ADD COLUMN last_message_status VARCHAR(20) NULL;
+
+-- Backfill snapshots from the newest message of each conversation
+UPDATE conversations c
+JOIN (
+    SELECT id, conversation_id, sender_id, content, sent_at, status,
+           ROW_NUMBER() OVER (PARTITION BY conversation_id ORDER BY sent_at DESC, id DESC) AS rn
+    FROM messages
+) m ON m.conversation_id = c.id AND m.rn = 1
+LEFT JOIN users u ON u.id = m.sender_id
+SET c.last_message_id = m.id,
+    c.last_message_sender_id = m.sender_id,
+    c.last_message_sender_username = u.username,
+    c.last_message_preview = LEFT(m.content, 255),
+    c.last_message_sent_at = m.sent_at,
+    c.last_message_status = m.status;
@@ -0,0 +1,10 @@
+-- Per-device offline sync position: the newest message ID a client has been sent by a sync
+CREATE TABLE client_sync_states (
+    user_id BIGINT NOT NULL,
+    client_id VARCHAR(64) NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (user_id, client_id)
+);
+
+CREATE INDEX idx_client_sync_states_updated_at ON client_sync_states (updated_at);
@@ -0,0 +1,36 @@
+-- Per-conversation message sequence: gap-free, assigned by the send pipeline from conversations.last_seq
+ALTER TABLE conversations
+    ADD COLUMN last_seq BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE messages
+    ADD COLUMN seq BIGINT NULL;
+
+ALTER TABLE conversation_read_states
+    ADD COLUMN last_read_seq BIGINT NOT NULL DEFAULT 0;
+
+-- Number existing messages in send order within each conversation
+UPDATE messages m
+JOIN (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY conversation_id ORDER BY sent_at, id) AS rn
+    FROM messages
+) numbered ON numbered.id = m.id
+SET m.seq = numbered.rn;
+
+UPDATE conversations c
+JOIN (
+    SELECT conversation_id, MAX(seq) AS max_seq
+    FROM messages
+    GROUP BY conversation_id
+) s ON s.conversation_id = c.id
+SET c.last_seq = s.max_seq;
+
+-- Carry read watermarks over to the sequence of the message they point at
+UPDATE conversation_read_states r
+JOIN messages m ON m.id = r.last_read_message_id
+SET r.last_read_seq = m.seq;
+
+ALTER TABLE messages
+    MODIFY COLUMN seq BIGINT NOT NULL;
+
+-- Backs sequence-addressed history and catch-up, and guards against a sequence being reused
+CREATE UNIQUE INDEX uk_messages_conversation_seq ON messages (conversation_id, seq);
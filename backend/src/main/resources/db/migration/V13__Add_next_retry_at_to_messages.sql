@@ -0,0 +1,8 @@
+-- Due time of the next delivery attempt of a PENDING message, scanned by the retry scheduler
+ALTER TABLE messages
+    ADD COLUMN next_retry_at DATETIME(6) NULL;
+
+-- Messages already waiting for a retry are due immediately
+UPDATE messages SET next_retry_at = NOW(6) WHERE status = 'PENDING';
+
+CREATE INDEX idx_messages_status_next_retry_at ON messages (status, next_retry_at);
@@ -0,0 +1,9 @@
+-- Highest Kafka offset per partition whose effects a consumer has committed to the database
+CREATE TABLE consumer_checkpoints (
+    consumer_name VARCHAR(100) NOT NULL,
+    topic VARCHAR(255) NOT NULL,
+    partition_id INT NOT NULL,
+    committed_offset BIGINT NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (consumer_name, topic, partition_id)
+);
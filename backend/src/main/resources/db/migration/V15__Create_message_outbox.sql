@@ -0,0 +1,10 @@
+-- Kafka records written in the same transaction as the messages they announce, drained by the outbox relay.
+-- Payloads are binary chat events (ChatEventCodec) that the relay sends as stored.
+CREATE TABLE message_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    topic VARCHAR(255) NOT NULL,
+    record_key VARCHAR(255) NULL,
+    payload MEDIUMBLOB NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,2 @@
+-- Composite index backing keyset (cursor) pagination of conversation history
+CREATE INDEX idx_messages_conversation_sent_at_id ON messages (conversation_id, sent_at, id);
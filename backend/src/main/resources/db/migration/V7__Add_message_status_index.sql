@@ -0,0 +1,2 @@
+-- Index backing keyset-chunked scans of messages by status (delivery receipts fallback sweep)
+CREATE INDEX idx_messages_status_id ON messages (status, id);
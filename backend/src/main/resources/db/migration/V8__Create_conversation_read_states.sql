@@ -0,0 +1,19 @@
+-- Per-(user, conversation) read watermark: every message up to last_read_message_id is read
+CREATE TABLE conversation_read_states (
+    user_id BIGINT NOT NULL,
+    conversation_id BIGINT NOT NULL,
+    last_read_message_id BIGINT NOT NULL,
+    read_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (user_id, conversation_id)
+);
+
+-- Carry existing per-message read state over: each participant has read up to the newest
+-- message from someone else already marked READ. Messages only record that they were read,
+-- not by whom, so in group chats every participant other than the sender gets that watermark.
+INSERT INTO conversation_read_states (user_id, conversation_id, last_read_message_id, read_at)
+SELECT p.user_id, p.conversation_id, MAX(m.id), COALESCE(MAX(m.read_at), MAX(m.sent_at))
+FROM conversation_participants p
+JOIN messages m ON m.conversation_id = p.conversation_id
+    AND m.sender_id <> p.user_id
+    AND m.status = 'READ'
+GROUP BY p.user_id, p.conversation_id;
@@ -0,0 +1,13 @@
+-- Materialized per-(user, conversation) unread counter, stored alongside the read watermark
+ALTER TABLE conversation_read_states
+    MODIFY COLUMN read_at DATETIME(6) NULL,
+    ADD COLUMN unread_count BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill counters for existing watermarks
+UPDATE conversation_read_states rs
+SET unread_count = (
+    SELECT COUNT(*) FROM messages m
+    WHERE m.conversation_id = rs.conversation_id
+      AND m.sender_id <> rs.user_id
+      AND m.id > rs.last_read_message_id
+);
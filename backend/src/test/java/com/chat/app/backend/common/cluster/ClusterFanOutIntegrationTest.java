@@ -0,0 +1,229 @@
+package com.chat.app.backend.common.cluster;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import com.chat.app.backend.BackendApplication;
+import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
+import com.chat.app.backend.feature.chat.model.Conversation;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.user.model.User;
+import com.chat.app.backend.feature.user.repository.UserRepository;
+import com.chat.app.backend.feature.user.service.PresenceService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs two backend nodes in cluster mode against one embedded Kafka broker and one database,
+ * and checks broker fan-out and cluster-wide presence between them. WebSocket sessions are
+ * simulated with the session events and broker messages their STOMP frames produce.
+ */
+@EmbeddedKafka(partitions = 1)
+class ClusterFanOutIntegrationTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes(EmbeddedKafkaBroker broker) {
+        nodeA = startNode("node-a", broker, "create-drop");
+        // Shares node A's schema, like nodes sharing one MySQL database
+        nodeB = startNode("node-b", broker, "none");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void relaysTopicFramesToTheNodeHoldingTheSubscription() throws Exception {
+        String sessionId = "b-topic-session";
+        List<Message<?>> delivered = captureOutbound(nodeB, sessionId);
+
+        connect(nodeB, sessionId, 9001L, "subscriber");
+        subscribe(nodeB, sessionId, "sub-0", "/topic/conversation.42");
+        ClusterSessionRegistry registryA = nodeA.getBean(ClusterSessionRegistry.class);
+        await().atMost(TIMEOUT).until(() -> registryA.hasRemoteSubscribers("/topic/conversation.42"));
+
+        SimpMessagingTemplate templateA = nodeA.getBean(SimpMessagingTemplate.class);
+        templateA.convertAndSend("/topic/conversation.43", Map.of("content", "nobody on node B listens"));
+        templateA.convertAndSend("/topic/conversation.42", Map.of("content", "hello from node A"));
+
+        await().atMost(TIMEOUT).until(() -> !delivered.isEmpty());
+        Message<?> frame = delivered.get(0);
+        assertEquals("/topic/conversation.42", SimpMessageHeaderAccessor.getDestination(frame.getHeaders()));
+        assertEquals("hello from node A", objectMapper.readTree((byte[]) frame.getPayload()).get("content").asText());
+
+        Thread.sleep(500);
+        assertEquals(1, delivered.size());
+    }
+
+    @Test
+    void presenceChangesOnlyOnFirstAndLastSessionClusterWide() throws Exception {
+        UserRepository users = nodeA.getBean(UserRepository.class);
+        User alice = users.save(new User("alice", "alice@example.com", "secret"));
+        User bob = users.save(new User("bob", "bob@example.com", "secret"));
+        nodeA.getBean(ConversationRepository.class).save(new Conversation(alice, bob));
+
+        // Status frames about alice delivered to bob, from whichever node sent them
+        List<String> aliceStatuses = new CopyOnWriteArrayList<>();
+        capturePresence(nodeA, "bob", alice.getId(), aliceStatuses);
+        capturePresence(nodeB, "bob", alice.getId(), aliceStatuses);
+
+        ClusterSessionRegistry registryA = nodeA.getBean(ClusterSessionRegistry.class);
+        ClusterSessionRegistry registryB = nodeB.getBean(ClusterSessionRegistry.class);
+
+        connect(nodeA, "a-bob", bob.getId(), "bob");
+        connect(nodeA, "a-alice", alice.getId(), "alice");
+        await().atMost(TIMEOUT).until(() -> aliceStatuses.contains("ONLINE"));
+        await().atMost(TIMEOUT).until(() -> registryB.isUserConnectedElsewhere(alice.getId()));
+
+        // A second session on another node is not a transition
+        connect(nodeB, "b-alice", alice.getId(), "alice");
+        await().atMost(TIMEOUT).until(() -> registryA.isUserConnectedElsewhere(alice.getId()));
+
+        // Closing the first session while the second stays open is not a transition either
+        disconnect(nodeA, "a-alice", alice.getId(), "alice");
+        await().atMost(TIMEOUT).until(() -> !registryB.isUserConnectedElsewhere(alice.getId()));
+
+        // The last session cluster-wide takes the user offline
+        disconnect(nodeB, "b-alice", alice.getId(), "alice");
+        await().atMost(TIMEOUT).until(() -> aliceStatuses.contains("OFFLINE"));
+
+        Thread.sleep(500);
+        assertEquals(List.of("ONLINE", "OFFLINE"), aliceStatuses);
+        assertTrue(nodeB.getBean(PresenceService.class).isOnline(bob.getId()));
+    }
+
+    private static ConfigurableApplicationContext startNode(String nodeId, EmbeddedKafkaBroker broker, String ddlAuto) {
+        return new SpringApplicationBuilder(BackendApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--app.cluster.enabled=true",
+                        "--app.cluster.node-id=" + nodeId,
+                        "--app.cluster.heartbeat-interval-ms=500",
+                        "--app.cluster.node-timeout-ms=5000",
+                        "--app.presence.broadcast-interval-ms=100");
+    }
+
+    private static UsernamePasswordAuthenticationToken principal(Long userId, String username) {
+        UserDetailsImpl userDetails = new UserDetailsImpl(userId, username, username + "@example.com", "", List.of());
+        return new UsernamePasswordAuthenticationToken(userDetails, null, List.of());
+    }
+
+    /**
+     * Open a session: the broker learns about it, and the connected event is published.
+     */
+    private static void connect(ConfigurableApplicationContext node, String sessionId, Long userId, String username) {
+        SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        connect.setSessionId(sessionId);
+        connect.setUser(principal(userId, username));
+        node.getBean("brokerChannel", SubscribableChannel.class)
+                .send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+        StompHeaderAccessor connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+        connected.setSessionId(sessionId);
+        node.publishEvent(new SessionConnectedEvent(node,
+                MessageBuilder.createMessage(new byte[0], connected.getMessageHeaders()), principal(userId, username)));
+    }
+
+    /**
+     * Subscribe a session to a destination on the node's broker, and publish the subscribe event.
+     */
+    private static void subscribe(ConfigurableApplicationContext node, String sessionId, String subscriptionId,
+                                  String destination) {
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setSessionId(sessionId);
+        subscribe.setSubscriptionId(subscriptionId);
+        subscribe.setDestination(destination);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders());
+
+        node.getBean("brokerChannel", SubscribableChannel.class).send(message);
+        node.publishEvent(new SessionSubscribeEvent(node, message));
+    }
+
+    private static void disconnect(ConfigurableApplicationContext node, String sessionId, Long userId, String username) {
+        StompHeaderAccessor disconnect = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        disconnect.setSessionId(sessionId);
+        node.publishEvent(new SessionDisconnectEvent(node,
+                MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()),
+                sessionId, CloseStatus.NORMAL, principal(userId, username)));
+    }
+
+    /**
+     * Collect the MESSAGE frames a node's broker sends to one session.
+     */
+    private static List<Message<?>> captureOutbound(ConfigurableApplicationContext node, String sessionId) {
+        List<Message<?>> frames = new CopyOnWriteArrayList<>();
+        node.getBean("clientOutboundChannel", SubscribableChannel.class).subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                    && sessionId.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))) {
+                frames.add(message);
+            }
+        });
+        return frames;
+    }
+
+    /**
+     * Collect the statuses of one subject in presence frames a node sends to a recipient.
+     * Frames relayed from the other node are skipped, so each status is collected once.
+     */
+    private static void capturePresence(ConfigurableApplicationContext node, String recipient, Long subjectId,
+                                        List<String> statuses) {
+        String destination = "/user/" + recipient + "/queue/presence";
+        node.getBean("brokerChannel", SubscribableChannel.class).subscribe(message -> {
+            if (!destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))
+                    || message.getHeaders().containsKey(ClusterBrokerRelay.RELAYED_FROM_HEADER)) {
+                return;
+            }
+            try {
+                for (JsonNode change : objectMapper.readTree((byte[]) message.getPayload())) {
+                    if (change.get("userId").asLong() == subjectId) {
+                        statuses.add(change.get("status").asText());
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.chat.app.backend.feature.chat.event;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.chat.app.backend.feature.chat.dto.MessageDTO;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+
+/**
+ * Tests for {@link ChatEventCodec}.
+ */
+class ChatEventCodecTest {
+
+    @Test
+    void messageCreatedRoundTrips() {
+        MessageDTO message = fullMessage();
+
+        byte[] data = ChatEventCodec.encode(ChatEvent.messageCreated(message));
+        ChatEvent event = ChatEventCodec.decode(data);
+
+        assertEquals(ChatEvent.Type.MESSAGE_CREATED, event.getType());
+        assertEquals(message.getId(), event.getMessageId());
+        assertEquals(message.getConversationId(), event.getConversationId());
+        MessageDTO decoded = event.getMessage();
+        assertEquals(message.getId(), decoded.getId());
+        assertEquals(message.getSenderId(), decoded.getSenderId());
+        assertEquals(message.getConversationId(), decoded.getConversationId());
+        assertEquals(message.getSeq(), decoded.getSeq());
+        assertEquals(message.getSenderUsername(), decoded.getSenderUsername());
+        assertEquals(message.getSenderAvatarUrl(), decoded.getSenderAvatarUrl());
+        assertEquals(message.getContent(), decoded.getContent());
+        assertEquals(message.getSentAt(), decoded.getSentAt());
+        assertEquals(message.getDeliveredAt(), decoded.getDeliveredAt());
+        assertEquals(message.getReadAt(), decoded.getReadAt());
+        assertEquals(message.getStatus(), decoded.getStatus());
+        // Sized exactly: the status is the last byte
+        assertEquals(MessageStatus.READ.ordinal() + 1, data[data.length - 1]);
+    }
+
+    @Test
+    void nullFieldsRoundTrip() {
+        MessageDTO message = new MessageDTO();
+        message.setId(0L);
+
+        MessageDTO decoded = ChatEventCodec.decode(ChatEventCodec.encode(ChatEvent.messageCreated(message))).getMessage();
+
+        assertEquals(0L, decoded.getId());
+        assertNull(decoded.getSenderId());
+        assertNull(decoded.getSeq());
+        assertNull(decoded.getContent());
+        assertNull(decoded.getSentAt());
+        assertNull(decoded.getStatus());
+    }
+
+    @Test
+    void messageRetryRoundTrips() {
+        byte[] data = ChatEventCodec.encode(ChatEvent.messageRetry(1L << 40, 300L, 2));
+        ChatEvent event = ChatEventCodec.decode(data);
+
+        assertEquals(ChatEvent.Type.MESSAGE_RETRY, event.getType());
+        assertEquals(1L << 40, event.getMessageId());
+        assertEquals(300L, event.getConversationId());
+        assertEquals(2, event.getAttempt());
+        assertArrayEquals(data, ChatEventCodec.encode(event));
+    }
+
+    @Test
+    void everyTruncationIsRejected() {
+        byte[] data = ChatEventCodec.encode(ChatEvent.messageCreated(fullMessage()));
+
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IllegalArgumentException.class, () -> ChatEventCodec.decode(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    void badMagicIsRejected() {
+        byte[] data = ChatEventCodec.encode(ChatEvent.messageRetry(1L, 2L, 1));
+        data[0] = '{';
+
+        assertThrows(IllegalArgumentException.class, () -> ChatEventCodec.decode(data));
+    }
+
+    @Test
+    void badVersionIsRejected() {
+        byte[] data = ChatEventCodec.encode(ChatEvent.messageRetry(1L, 2L, 1));
+        data[1] = 0;
+
+        assertThrows(IllegalArgumentException.class, () -> ChatEventCodec.decode(data));
+    }
+
+    @Test
+    void unknownTypeIsRejected() {
+        byte[] data = ChatEventCodec.encode(ChatEvent.messageRetry(1L, 2L, 1));
+        data[2] = 3;
+
+        assertThrows(IllegalArgumentException.class, () -> ChatEventCodec.decode(data));
+    }
+
+    @Test
+    void fieldsAppendedByANewerVersionAreIgnored() {
+        byte[] data = ChatEventCodec.encode(ChatEvent.messageRetry(1L, 2L, 1));
+        byte[] newer = Arrays.copyOf(data, data.length + 2);
+        newer[1] = ChatEventCodec.VERSION + 1;
+        newer[data.length] = 42;
+        newer[data.length + 1] = 7;
+
+        ChatEvent event = ChatEventCodec.decode(newer);
+
+        assertEquals(1L, event.getMessageId());
+        assertEquals(2L, event.getConversationId());
+        assertEquals(1, event.getAttempt());
+    }
+
+    @Test
+    void eventWithoutTypeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ChatEventCodec.encode(new ChatEvent()));
+    }
+
+    private MessageDTO fullMessage() {
+        MessageDTO message = new MessageDTO(123_456L, 7L, "zoë", 42L,
+                "héllo ✓ 😀", LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000), MessageStatus.READ);
+        message.setSeq(128L);
+        message.setSenderAvatarUrl("https://example.com/a.png");
+        message.setDeliveredAt(LocalDateTime.of(2024, 5, 1, 12, 30, 16));
+        // Before the epoch, so negative timestamps are covered too
+        message.setReadAt(LocalDateTime.of(1969, 7, 20, 20, 17, 40, 5_000));
+        return message;
+    }
+}
@@ -0,0 +1,92 @@
+package com.chat.app.backend.feature.chat.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.user.model.User;
+import com.chat.app.backend.feature.user.repository.UserRepository;
+
+/**
+ * Checks that saving a loaded conversation leaves the columns maintained by SQL updates alone.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConversationSnapshotColumnsTest {
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void saveDoesNotOverwriteLastMessageSnapshot() {
+        Long conversationId = createConversation("snapshot");
+
+        saveAfterConcurrentUpdate(conversationId,
+                "UPDATE conversations SET last_message_id = 17, last_message_preview = 'newest', " +
+                "last_message_status = 'READ' WHERE id = ?");
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT last_message_id, last_message_preview, last_message_status FROM conversations WHERE id = ?",
+                conversationId);
+        assertEquals(17L, ((Number) row.get("last_message_id")).longValue());
+        assertEquals("newest", row.get("last_message_preview"));
+        assertEquals("READ", row.get("last_message_status"));
+    }
+
+    @Test
+    void saveDoesNotOverwriteLastSeq() {
+        Long conversationId = createConversation("sequence");
+        assertEquals(0L, conversationRepository.findById(conversationId).orElseThrow().getLastSeq());
+
+        saveAfterConcurrentUpdate(conversationId, "UPDATE conversations SET last_seq = last_seq + 5 WHERE id = ?");
+
+        assertEquals(5L, jdbcTemplate.queryForObject(
+                "SELECT last_seq FROM conversations WHERE id = ?", Long.class, conversationId));
+    }
+
+    /**
+     * Load a conversation, apply an SQL update to its row from another transaction, then rename
+     * and save the loaded entity.
+     */
+    private void saveAfterConcurrentUpdate(Long conversationId, String updateSql) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Conversation conversation = conversationRepository.findById(conversationId).orElseThrow();
+
+            TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+            concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            concurrent.executeWithoutResult(inner -> jdbcTemplate.update(updateSql, conversationId));
+
+            conversation.setName("renamed");
+            conversationRepository.save(conversation);
+        });
+    }
+
+    private Long createConversation(String name) {
+        User creator = userRepository.save(new User(name, name + "@example.com", "secret"));
+        return conversationRepository.save(new Conversation(name, null, creator, true)).getId();
+    }
+}
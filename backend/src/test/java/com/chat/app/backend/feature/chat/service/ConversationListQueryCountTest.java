@@ -0,0 +1,151 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chat.app.backend.feature.chat.dto.ConversationDTO;
+import com.chat.app.backend.feature.chat.model.Conversation;
+import com.chat.app.backend.feature.chat.model.ConversationReadState;
+import com.chat.app.backend.feature.chat.repository.ConversationReadStateRepository;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.user.dto.UserDTO;
+import com.chat.app.backend.feature.user.model.User;
+import com.chat.app.backend.feature.user.model.UserStatus;
+import com.chat.app.backend.feature.user.repository.UserRepository;
+import com.chat.app.backend.feature.user.service.PresenceService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Guards the number of SQL statements {@link ConversationService#getConversationsForUser(Long)}
+ * runs, so the conversation list stays independent of the number of conversations.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ConversationService.class, UnreadCounterService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConversationListQueryCountTest {
+
+    // existsById, the conversation list rows, and the user's persisted unread counters
+    private static final long EXPECTED_STATEMENTS = 3;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private ConversationReadStateRepository readStateRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private PresenceService presenceService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        readStateRepository.deleteAll();
+        conversationRepository.deleteAll();
+        userRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        when(presenceService.getStatus(anyLong(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(presenceService.getLastActive(anyLong(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
+    @Test
+    void queryCountDoesNotGrowWithConversations() {
+        User me = createUser("me");
+        createGroupConversations(me, 2);
+        assertEquals(EXPECTED_STATEMENTS, statementsToList(me, 2));
+
+        createGroupConversations(me, 30);
+        assertEquals(EXPECTED_STATEMENTS, statementsToList(me, 32));
+    }
+
+    @Test
+    void participantsCarryLivePresence() {
+        User me = createUser("me");
+        createGroupConversations(me, 1);
+        LocalDateTime seen = LocalDateTime.now().withNano(0);
+        when(presenceService.getStatus(anyLong(), eq(UserStatus.OFFLINE))).thenReturn(UserStatus.ONLINE);
+        when(presenceService.getLastActive(anyLong(), any())).thenReturn(seen);
+
+        List<ConversationDTO> conversations = conversationService.getConversationsForUser(me.getId());
+
+        for (UserDTO participant : conversations.get(0).getParticipants()) {
+            assertEquals(UserStatus.ONLINE, participant.getStatus());
+            assertEquals(seen, participant.getLastActive());
+        }
+    }
+
+    private long statementsToList(User me, int expectedConversations) {
+        statistics.clear();
+        List<ConversationDTO> conversations = conversationService.getConversationsForUser(me.getId());
+        assertEquals(expectedConversations, conversations.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createUser(String username) {
+        User user = new User(username, username + "@example.com", "secret");
+        user.setStatus(UserStatus.OFFLINE);
+        return userRepository.save(user);
+    }
+
+    /**
+     * Create group conversations of three participants, each with a persisted unread counter
+     * for the given user, the state every counter reaches after its first load.
+     */
+    private void createGroupConversations(User me, int count) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            List<ConversationReadState> states = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String suffix = me.getId() + "-" + System.nanoTime();
+                Conversation conversation = new Conversation("group " + suffix, null, me, true);
+                conversation.addParticipant(createUser("a" + suffix));
+                conversation.addParticipant(createUser("b" + suffix));
+                conversation = conversationRepository.save(conversation);
+
+                ConversationReadState state = new ConversationReadState();
+                state.setUserId(me.getId());
+                state.setConversationId(conversation.getId());
+                state.setUnreadCount(i);
+                states.add(state);
+            }
+            readStateRepository.saveAll(states);
+        });
+    }
+}
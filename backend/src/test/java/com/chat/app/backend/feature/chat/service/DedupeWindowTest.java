@@ -0,0 +1,104 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DedupeWindow}.
+ */
+class DedupeWindowTest {
+
+    @Test
+    void duplicateKeysAreRejected() {
+        DedupeWindow window = new DedupeWindow(4);
+
+        assertTrue(window.add(1L));
+        assertTrue(window.add(2L));
+        assertFalse(window.add(1L));
+        assertEquals(2, window.size());
+    }
+
+    @Test
+    void oldestKeyIsEvictedOnceFull() {
+        DedupeWindow window = new DedupeWindow(3);
+        window.add(1L);
+        window.add(2L);
+        window.add(3L);
+
+        assertTrue(window.add(4L));
+        assertEquals(3, window.size());
+        assertTrue(window.add(1L));
+        assertFalse(window.add(3L));
+        assertFalse(window.add(4L));
+    }
+
+    @Test
+    void removedKeyCanBeAddedAgain() {
+        DedupeWindow window = new DedupeWindow(4);
+        window.add(1L);
+        window.add(2L);
+
+        window.remove(1L);
+
+        assertTrue(window.add(1L));
+        assertFalse(window.add(2L));
+    }
+
+    @Test
+    void removingAnUnknownKeyIsHarmless() {
+        DedupeWindow window = new DedupeWindow(4);
+        window.add(1L);
+
+        window.remove(5L);
+
+        assertFalse(window.add(1L));
+    }
+
+    @Test
+    void matchesTheLastKeysAddedUnderChurn() {
+        int capacity = 64;
+        DedupeWindow window = new DedupeWindow(capacity);
+        ArrayDeque<Long> order = new ArrayDeque<>();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        // A small key space, so keys collide in the table and come back after being evicted
+        for (int i = 0; i < 100_000; i++) {
+            long key = 1 + random.nextInt(200);
+            boolean added = window.add(key);
+            assertEquals(!expected.contains(key), added, "key " + key + " at step " + i);
+            if (added) {
+                order.add(key);
+                expected.add(key);
+                if (order.size() > capacity) {
+                    expected.remove(order.poll());
+                }
+            }
+        }
+        assertEquals(capacity, window.size());
+    }
+
+    @Test
+    void removalsKeepOtherKeysFindable() {
+        DedupeWindow window = new DedupeWindow(2_000);
+        for (long key = 1; key <= 1_000; key++) {
+            window.add(key);
+        }
+
+        for (long key = 2; key <= 1_000; key += 2) {
+            window.remove(key);
+        }
+
+        for (long key = 1; key <= 1_000; key++) {
+            assertEquals(key % 2 == 0, window.add(key), "key " + key);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+import com.chat.app.backend.feature.chat.repository.ConversationRepository;
+import com.chat.app.backend.feature.chat.repository.MessageRepository;
+import com.chat.app.backend.feature.chat.repository.MessageRepository.DeliveryCandidate;
+import com.chat.app.backend.feature.user.service.PresenceService;
+
+/**
+ * Tests for the fallback sweep of {@link DeliveryReceiptService}.
+ */
+class DeliveryReceiptServiceTest {
+
+    private static final Long SENDER = 1L;
+    private static final Long OFFLINE_RECIPIENT = 2L;
+    private static final Long ONLINE_RECIPIENT = 3L;
+    private static final Long OFFLINE_CONVERSATION = 10L;
+    private static final Long ONLINE_CONVERSATION = 20L;
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final PresenceService presenceService = mock(PresenceService.class);
+
+    // SENT messages by ID, as the (status, id) index returns them
+    private final List<DeliveryCandidate> sentMessages = new ArrayList<>();
+    private final List<Long> deliveredIds = new ArrayList<>();
+
+    private DeliveryReceiptService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DeliveryReceiptService();
+        ReflectionTestUtils.setField(service, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(service, "conversationRepository", conversationRepository);
+        ReflectionTestUtils.setField(service, "presenceService", presenceService);
+        ReflectionTestUtils.setField(service, "statusAggregator", mock(MessageStatusAggregator.class));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "sweepMaxChunks", 2);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(transactionManager));
+
+        when(messageRepository.findDeliveryCandidates(eq(MessageStatus.SENT), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long afterId = invocation.getArgument(1);
+                    Pageable page = invocation.getArgument(2);
+                    return sentMessages.stream()
+                            .filter(candidate -> candidate.getId() > afterId)
+                            .limit(page.getPageSize())
+                            .toList();
+                });
+        when(conversationRepository.findParticipantsByConversationIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> conversationIds = invocation.getArgument(0);
+            List<ConversationRepository.ParticipantView> participants = new ArrayList<>();
+            for (Long conversationId : conversationIds) {
+                participants.add(participant(conversationId, SENDER));
+                participants.add(participant(conversationId,
+                        conversationId.equals(ONLINE_CONVERSATION) ? ONLINE_RECIPIENT : OFFLINE_RECIPIENT));
+            }
+            return participants;
+        });
+        when(messageRepository.updateStatusAndDeliveredAt(anyCollection(), anyCollection(), eq(MessageStatus.DELIVERED), any()))
+                .thenAnswer(invocation -> {
+                    Collection<Long> ids = invocation.getArgument(0);
+                    deliveredIds.addAll(ids);
+                    sentMessages.removeIf(candidate -> ids.contains(candidate.getId()));
+                    return ids.size();
+                });
+        when(presenceService.isOnline(ONLINE_RECIPIENT)).thenReturn(true);
+    }
+
+    @Test
+    void sweepReachesMessagesBehindMoreThanOneRunOfOfflineRecipients() {
+        // Two runs' worth of messages to an offline recipient, then one to an online recipient
+        for (long id = 1; id <= 8; id++) {
+            sentMessages.add(candidate(id, OFFLINE_CONVERSATION));
+        }
+        sentMessages.add(candidate(9L, ONLINE_CONVERSATION));
+
+        service.sweep();
+        service.sweep();
+        assertEquals(List.of(), deliveredIds);
+
+        service.sweep();
+        assertEquals(List.of(9L), deliveredIds);
+    }
+
+    @Test
+    void sweepStartsOverOnceItReachesTheEnd() {
+        for (long id = 2; id <= 4; id++) {
+            sentMessages.add(candidate(id, OFFLINE_CONVERSATION));
+        }
+
+        // Reaches the end with a short chunk
+        service.sweep();
+        // A message whose recipient came online behind the cursor, and a new one
+        sentMessages.add(0, candidate(1L, ONLINE_CONVERSATION));
+        sentMessages.add(candidate(5L, ONLINE_CONVERSATION));
+
+        service.sweep();
+        assertEquals(List.of(1L), deliveredIds);
+        service.sweep();
+        assertEquals(List.of(1L, 5L), deliveredIds);
+    }
+
+    private static DeliveryCandidate candidate(Long id, Long conversationId) {
+        return new DeliveryCandidate() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getConversationId() {
+                return conversationId;
+            }
+
+            @Override
+            public Long getSenderId() {
+                return SENDER;
+            }
+        };
+    }
+
+    private static ConversationRepository.ParticipantView participant(Long conversationId, Long userId) {
+        return new ConversationRepository.ParticipantView() {
+            @Override
+            public Long getConversationId() {
+                return conversationId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+}
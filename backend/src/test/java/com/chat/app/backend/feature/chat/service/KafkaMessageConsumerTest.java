@@ -0,0 +1,115 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConsumerSeekAware.ConsumerSeekCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.chat.app.backend.common.config.KafkaConfig;
+import com.chat.app.backend.feature.chat.event.ChatEvent;
+import com.chat.app.backend.feature.chat.model.ConsumerCheckpoint;
+import com.chat.app.backend.feature.chat.repository.ConsumerCheckpointRepository;
+import com.chat.app.backend.feature.chat.repository.MessageRepository;
+
+/**
+ * Tests for the checkpoint handling of {@link KafkaMessageConsumer}.
+ */
+class KafkaMessageConsumerTest {
+
+    private static final String CONSUMER_NAME = "chat-message-delivery";
+    private static final TopicPartition PARTITION = new TopicPartition(KafkaConfig.CHAT_MESSAGES_TOPIC, 0);
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConsumerCheckpointRepository checkpointRepository = mock(ConsumerCheckpointRepository.class);
+    @SuppressWarnings("unchecked")
+    private final ConsumerFactory<String, ChatEvent> consumerFactory = mock(ConsumerFactory.class);
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, ChatEvent> kafkaConsumer = mock(Consumer.class);
+    private final ConsumerSeekCallback callback = mock(ConsumerSeekCallback.class);
+
+    private KafkaMessageConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new KafkaMessageConsumer();
+        ReflectionTestUtils.setField(consumer, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(consumer, "checkpointRepository", checkpointRepository);
+        ReflectionTestUtils.setField(consumer, "consumerFactory", consumerFactory);
+        ReflectionTestUtils.setField(consumer, "dedupeWindowSize", 16);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(consumer, "transactionManager", transactionManager);
+        consumer.init();
+
+        when(consumerFactory.createConsumer()).thenReturn(kafkaConsumer);
+        when(checkpointRepository.findByConsumerNameAndTopic(CONSUMER_NAME, KafkaConfig.CHAT_MESSAGES_TOPIC))
+                .thenReturn(List.of(checkpoint(99L)));
+    }
+
+    @Test
+    void checkpointWithinThePartitionSkipsProcessedRecords() {
+        when(kafkaConsumer.endOffsets(List.of(PARTITION))).thenReturn(Map.of(PARTITION, 150L));
+
+        consumer.onPartitionsAssigned(Map.of(PARTITION, 90L), callback);
+        verify(callback).seek(PARTITION.topic(), PARTITION.partition(), 100L);
+
+        consumer.listen(record(95L, 1L));
+        verify(messageRepository, never()).findAllWithSenderByIdIn(any());
+    }
+
+    @Test
+    void checkpointPastTheEndOfARecreatedTopicIsDropped() {
+        // The topic was recreated and only holds five records
+        when(kafkaConsumer.endOffsets(List.of(PARTITION))).thenReturn(Map.of(PARTITION, 5L));
+
+        consumer.onPartitionsAssigned(Map.of(PARTITION, 0L), callback);
+        verify(callback, never()).seek(anyString(), anyInt(), anyLong());
+        verify(checkpointRepository).deleteIfAt(CONSUMER_NAME, PARTITION.topic(), PARTITION.partition(), 99L);
+
+        consumer.listen(record(0L, 1L));
+        verify(messageRepository).findAllWithSenderByIdIn(List.of(1L));
+    }
+
+    @Test
+    void checkpointIsTrustedWhenEndOffsetsAreUnavailable() {
+        when(kafkaConsumer.endOffsets(List.of(PARTITION))).thenThrow(new RuntimeException("timeout"));
+
+        consumer.onPartitionsAssigned(Map.of(PARTITION, 90L), callback);
+
+        verify(callback).seek(PARTITION.topic(), PARTITION.partition(), 100L);
+        verify(checkpointRepository, never()).deleteIfAt(anyString(), anyString(), anyInt(), anyLong());
+    }
+
+    private static ConsumerCheckpoint checkpoint(Long offset) {
+        ConsumerCheckpoint checkpoint = new ConsumerCheckpoint();
+        checkpoint.setConsumerName(CONSUMER_NAME);
+        checkpoint.setTopic(PARTITION.topic());
+        checkpoint.setPartitionId(PARTITION.partition());
+        checkpoint.setCommittedOffset(offset);
+        return checkpoint;
+    }
+
+    private static ConsumerRecord<String, ChatEvent> record(long offset, Long messageId) {
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "key",
+                ChatEvent.messageRetry(messageId, 1L, 1));
+    }
+}
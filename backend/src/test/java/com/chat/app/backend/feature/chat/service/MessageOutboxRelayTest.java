@@ -0,0 +1,111 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests which outbox rows {@link MessageOutboxRelay} deletes once Kafka has answered.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(MessageOutboxRelay.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageOutboxRelayTest {
+
+    @Autowired
+    private MessageOutboxRelay relay;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private KafkaTemplate<String, byte[]> chatEventKafkaTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // Batches are relayed by the test itself
+        relay.stop();
+        jdbcTemplate.update("DELETE FROM message_outbox");
+    }
+
+    @Test
+    void acknowledgedRowsAreDeleted() {
+        insert("a", "1");
+        insert("b", "2");
+        acknowledgeAllBut();
+
+        assertEquals(2, relayBatch());
+        assertEquals(List.of(), remainingPayloads());
+    }
+
+    @Test
+    void rowsAfterAnUnacknowledgedRowOfTheSameKeyAreKept() {
+        insert("a", "1");
+        insert("b", "2");
+        insert("a", "3");
+        insert("b", "4");
+        acknowledgeAllBut("1");
+
+        assertEquals(-1, relayBatch());
+        assertEquals(List.of("1", "3"), remainingPayloads());
+    }
+
+    @Test
+    void kafkaIsAwaitedOutsideAnyTransaction() {
+        insert("a", "1");
+        doAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            return CompletableFuture.completedFuture(null);
+        }).when(chatEventKafkaTemplate).send(anyString(), any(), any());
+
+        assertEquals(1, relayBatch());
+    }
+
+    private void acknowledgeAllBut(String... failingPayloads) {
+        List<String> failing = List.of(failingPayloads);
+        doAnswer(invocation -> {
+            String payload = new String((byte[]) invocation.getArgument(2), StandardCharsets.UTF_8);
+            return failing.contains(payload)
+                    ? CompletableFuture.failedFuture(new IllegalStateException("not acknowledged"))
+                    : CompletableFuture.completedFuture(null);
+        }).when(chatEventKafkaTemplate).send(anyString(), any(), any());
+    }
+
+    private int relayBatch() {
+        Integer relayed = ReflectionTestUtils.invokeMethod(relay, "relayBatch");
+        return relayed;
+    }
+
+    private void insert(String key, String payload) {
+        jdbcTemplate.update("INSERT INTO message_outbox (topic, record_key, payload, created_at) "
+                + "VALUES ('chat-messages', ?, ?, CURRENT_TIMESTAMP)", key, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> remainingPayloads() {
+        return jdbcTemplate.query("SELECT payload FROM message_outbox ORDER BY id",
+                (resultSet, rowNum) -> new String(resultSet.getBytes("payload"), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,149 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.chat.app.backend.feature.chat.dto.MessageStatusUpdateDTO;
+import com.chat.app.backend.feature.chat.model.MessageStatus;
+
+/**
+ * Tests for the status frames {@link MessageStatusAggregator} sends.
+ */
+class MessageStatusAggregatorTest {
+
+    private static final Long CONVERSATION = 42L;
+    private static final String DESTINATION = "/topic/conversation.42.status";
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final List<String> destinations = new ArrayList<>();
+    private final List<MessageStatusUpdateDTO> frames = new ArrayList<>();
+
+    private MessageStatusAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new MessageStatusAggregator();
+        ReflectionTestUtils.setField(aggregator, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(aggregator, "maxMessagesPerFrame", 4);
+        doAnswer(invocation -> {
+            destinations.add(invocation.getArgument(0));
+            frames.add(invocation.getArgument(1));
+            return null;
+        }).when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void deliveriesOfAWindowAreSentAsOneFrame() {
+        aggregator.delivered(CONVERSATION, List.of(1L, 2L), NOW);
+        aggregator.delivered(CONVERSATION, List.of(3L), NOW.plusSeconds(1));
+        assertTrue(frames.isEmpty());
+
+        aggregator.flushAll();
+
+        assertEquals(List.of(DESTINATION), destinations);
+        MessageStatusUpdateDTO frame = frames.get(0);
+        assertEquals(MessageStatus.DELIVERED, frame.getStatus());
+        assertEquals(List.of(1L, 2L, 3L), frame.getMessageIds());
+        assertEquals(NOW.plusSeconds(1), frame.getDeliveredAt());
+    }
+
+    @Test
+    void onlyTheHighestReadWatermarkOfEachReaderIsSent() {
+        aggregator.read(CONVERSATION, 7L, 10L, 5L, NOW);
+        aggregator.read(CONVERSATION, 7L, 12L, 6L, NOW.plusSeconds(1));
+        aggregator.read(CONVERSATION, 7L, 11L, 4L, NOW.plusSeconds(2));
+        aggregator.read(CONVERSATION, 8L, 10L, 5L, NOW);
+
+        aggregator.flushAll();
+
+        assertEquals(2, frames.size());
+        assertEquals(MessageStatus.READ, frames.get(0).getStatus());
+        assertEquals(7L, frames.get(0).getReaderId());
+        assertEquals(12L, frames.get(0).getUpToMessageId());
+        assertEquals(6L, frames.get(0).getUpToSeq());
+        assertEquals(8L, frames.get(1).getReaderId());
+    }
+
+    @Test
+    void deliveredFrameGoesBeforeReadFrames() {
+        aggregator.read(CONVERSATION, 7L, 2L, 2L, NOW);
+        aggregator.delivered(CONVERSATION, List.of(1L, 2L), NOW);
+
+        aggregator.flushAll();
+
+        assertEquals(MessageStatus.DELIVERED, frames.get(0).getStatus());
+        assertEquals(MessageStatus.READ, frames.get(1).getStatus());
+    }
+
+    @Test
+    void framesNeverExceedTheLimit() {
+        aggregator.delivered(CONVERSATION, List.of(1L, 2L, 3L), NOW);
+        // Does not fit next to the first three, which are flushed first
+        aggregator.delivered(CONVERSATION, List.of(4L, 5L), NOW);
+        // Split into slices; full frames are sent right away
+        aggregator.delivered(CONVERSATION, LongStream.rangeClosed(6, 15).boxed().toList(), NOW);
+        aggregator.flushAll();
+
+        List<List<Long>> sent = frames.stream().map(MessageStatusUpdateDTO::getMessageIds).toList();
+        assertTrue(sent.stream().allMatch(ids -> ids.size() <= 4), sent.toString());
+        assertEquals(LongStream.rangeClosed(1, 15).boxed().toList(),
+                sent.stream().flatMap(List::stream).toList());
+        assertEquals(List.of(1L, 2L, 3L), sent.get(0));
+    }
+
+    @Test
+    void transitionsAreCollectedOnlyOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        aggregator.delivered(CONVERSATION, List.of(1L), NOW);
+        aggregator.read(CONVERSATION, 7L, 1L, 1L, NOW);
+
+        aggregator.flushAll();
+        assertTrue(frames.isEmpty());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        aggregator.flushAll();
+
+        assertEquals(2, frames.size());
+    }
+
+    @Test
+    void rolledBackTransitionsAreNeverSent() {
+        TransactionSynchronizationManager.initSynchronization();
+        aggregator.delivered(CONVERSATION, List.of(1L), NOW);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        aggregator.flushAll();
+
+        assertTrue(frames.isEmpty());
+    }
+}
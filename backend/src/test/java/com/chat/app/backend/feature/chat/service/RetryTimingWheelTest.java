@@ -0,0 +1,86 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link RetryTimingWheel}.
+ */
+class RetryTimingWheelTest {
+
+    private static final long TICK_MS = 100;
+    private static final int SIZE = 8;
+    private static final long START = 1_000;
+
+    private final RetryTimingWheel wheel = new RetryTimingWheel(TICK_MS, SIZE, START);
+
+    @Test
+    void retryExpiresOnceItsTickIsReached() {
+        assertTrue(wheel.schedule(1L, 1_250));
+
+        assertEquals(List.of(), wheel.advance(1_299, 10));
+        assertEquals(List.of(1L), wheel.advance(1_300, 10));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void retryAlreadyDueExpiresWithTheCurrentTick() {
+        assertTrue(wheel.schedule(1L, 500));
+
+        assertEquals(List.of(1L), wheel.advance(START, 10));
+    }
+
+    @Test
+    void retryBeyondTheHorizonIsRejected() {
+        assertEquals(SIZE * TICK_MS, wheel.horizonMs());
+        assertFalse(wheel.schedule(1L, START + wheel.horizonMs()));
+        assertTrue(wheel.schedule(2L, START + wheel.horizonMs() - TICK_MS));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void messageIsScheduledOnlyOnceUntilTaken() {
+        assertTrue(wheel.schedule(1L, 1_100));
+        assertFalse(wheel.schedule(1L, 1_200));
+
+        assertEquals(List.of(1L), wheel.advance(1_200, 10));
+        assertTrue(wheel.schedule(1L, 1_300));
+    }
+
+    @Test
+    void expiredRetriesBeyondTheLimitWaitForTheNextCall() {
+        for (long id = 1; id <= 5; id++) {
+            wheel.schedule(id, 1_100);
+        }
+
+        assertEquals(List.of(1L, 2L), wheel.advance(1_100, 2));
+        assertEquals(3, wheel.size());
+        assertEquals(List.of(3L, 4L), wheel.advance(1_100, 2));
+        assertEquals(List.of(5L), wheel.advance(1_100, 2));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void slotsAreReusedAfterTheWheelTurns() {
+        wheel.advance(2_000, 10);
+
+        // Same slot as tick 12, one turn later
+        assertTrue(wheel.schedule(1L, 2_800));
+        assertEquals(List.of(), wheel.advance(2_799, 10));
+        assertEquals(List.of(1L), wheel.advance(2_800, 10));
+    }
+
+    @Test
+    void retriesExpireInDueOrderAcrossTicks() {
+        wheel.schedule(3L, 1_300);
+        wheel.schedule(1L, 1_100);
+        wheel.schedule(2L, 1_200);
+
+        assertEquals(List.of(1L, 2L, 3L), wheel.advance(1_500, 10));
+    }
+}
@@ -0,0 +1,143 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import com.chat.app.backend.feature.auth.security.UserDetailsImpl;
+import com.chat.app.backend.feature.chat.dto.TypingIndicatorDTO;
+import com.chat.app.backend.feature.user.service.PresenceService;
+
+/**
+ * Tests for the typing transitions broadcast by {@link TypingStateService}.
+ */
+class TypingStateServiceTest {
+
+    private static final Long CONVERSATION = 42L;
+    private static final Long USER = 7L;
+    private static final String USERNAME = "alice";
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final PresenceService presenceService = mock(PresenceService.class);
+    private final List<TypingIndicatorDTO> frames = Collections.synchronizedList(new ArrayList<>());
+
+    private TypingStateService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TypingStateService();
+        ReflectionTestUtils.setField(service, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(service, "presenceService", presenceService);
+        ReflectionTestUtils.setField(service, "ttlMs", 60_000L);
+        doAnswer(invocation -> frames.add(invocation.getArgument(1)))
+                .when(messagingTemplate).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void repeatedTypingFramesAreBroadcastOnce() {
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, true);
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, true);
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, true);
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, false);
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, false);
+
+        assertEquals(2, frames.size());
+        assertTrue(frames.get(0).isTyping());
+        assertFalse(frames.get(1).isTyping());
+    }
+
+    @Test
+    void closingOneOfSeveralSessionsKeepsTyping() {
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, true);
+        when(presenceService.hasLocalSessions(USER)).thenReturn(true);
+
+        service.handleSessionDisconnect(disconnect());
+
+        assertEquals(1, frames.size());
+    }
+
+    @Test
+    void closingTheLastSessionStopsTyping() {
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, true);
+        when(presenceService.hasLocalSessions(USER)).thenReturn(false);
+
+        service.handleSessionDisconnect(disconnect());
+
+        assertEquals(2, frames.size());
+        assertFalse(frames.get(1).isTyping());
+        assertEquals(USERNAME, frames.get(1).getUsername());
+    }
+
+    @Test
+    void staleTypingStatesExpire() {
+        ReflectionTestUtils.setField(service, "ttlMs", 0L);
+        service.onTypingFrame(CONVERSATION, USER, USERNAME, true);
+
+        service.expireStale();
+        service.expireStale();
+
+        assertEquals(2, frames.size());
+        assertFalse(frames.get(1).isTyping());
+    }
+
+    @Test
+    void concurrentStartsAndStopsAreBroadcastInTransitionOrder() throws Exception {
+        int rounds = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> typing = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    service.onTypingFrame(CONVERSATION, USER, USERNAME, true);
+                }
+                return null;
+            });
+            Future<?> stopping = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < rounds; i++) {
+                    service.stopTyping(CONVERSATION, USER, USERNAME);
+                }
+                return null;
+            });
+            start.countDown();
+            typing.get();
+            stopping.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every start is followed by its stop before the next start can be broadcast
+        for (int i = 0; i < frames.size(); i++) {
+            assertEquals(i % 2 == 0, frames.get(i).isTyping(), "frame " + i);
+        }
+    }
+
+    private SessionDisconnectEvent disconnect() {
+        UserDetailsImpl user = new UserDetailsImpl(USER, USERNAME, "alice@example.com", "", List.of());
+        return new SessionDisconnectEvent(this, MessageBuilder.withPayload(new byte[0]).build(), "session-1",
+                CloseStatus.NORMAL, new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+}
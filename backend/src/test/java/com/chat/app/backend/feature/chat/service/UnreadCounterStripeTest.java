@@ -0,0 +1,160 @@
+package com.chat.app.backend.feature.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the in-memory counter state of {@link UnreadCounterService}.
+ */
+class UnreadCounterStripeTest {
+
+    private static final Long USER = 7L;
+    private static final Long CONVERSATION = 42L;
+
+    private final UnreadCounterService.Stripe stripe = new UnreadCounterService.Stripe();
+
+    @Test
+    void seedDoesNotRecountIncrementsCoveredByTheCount() {
+        stripe.increment(USER, CONVERSATION, 4L);
+        stripe.increment(USER, CONVERSATION, 5L);
+
+        assertEquals(5, stripe.loadCounted(USER, CONVERSATION, 5, 5));
+        assertEquals(5L, stripe.get(USER, CONVERSATION));
+    }
+
+    @Test
+    void seedAddsIncrementsForMessagesCommittedAfterTheCount() {
+        stripe.increment(USER, CONVERSATION, 5L);
+        stripe.increment(USER, CONVERSATION, 6L);
+
+        // The COUNT saw messages up to seq 4 only
+        assertEquals(6, stripe.loadCounted(USER, CONVERSATION, 4, 4));
+    }
+
+    @Test
+    void seedIsPersistedAsAnAbsoluteValue() {
+        stripe.increment(USER, CONVERSATION, 3L);
+        stripe.loadCounted(USER, CONVERSATION, 3, 3);
+        stripe.increment(USER, CONVERSATION, 4L);
+
+        List<Object[]> deltas = new ArrayList<>();
+        List<Object[]> absolutes = new ArrayList<>();
+        stripe.drain(deltas, absolutes);
+
+        assertTrue(deltas.isEmpty());
+        assertEquals(1, absolutes.size());
+        assertArrayEquals(new Object[]{USER, CONVERSATION, 4L}, absolutes.get(0));
+    }
+
+    @Test
+    void unloadedIncrementsAreKeptUntilSeededAgainstHistory() {
+        // Ten earlier messages are unread, but this counter has never been loaded
+        stripe.increment(USER, CONVERSATION, 11L);
+
+        List<Object[]> deltas = new ArrayList<>();
+        List<Object[]> absolutes = new ArrayList<>();
+        stripe.drain(deltas, absolutes);
+        assertTrue(deltas.isEmpty());
+        assertTrue(absolutes.isEmpty());
+
+        Map<Long, List<Long>> unloaded = new HashMap<>();
+        stripe.collectUnloaded(unloaded);
+        assertEquals(Map.of(USER, List.of(CONVERSATION)), unloaded);
+
+        // The COUNT sees the history and the new message
+        assertEquals(11, stripe.loadCounted(USER, CONVERSATION, 11, 11));
+        stripe.drain(deltas, absolutes);
+        assertTrue(deltas.isEmpty());
+        assertArrayEquals(new Object[]{USER, CONVERSATION, 11L}, absolutes.get(0));
+    }
+
+    @Test
+    void unloadedCounterIsNotEvictedWithItsIncrements() {
+        stripe.increment(USER, CONVERSATION, 1L);
+        stripe.drain(new ArrayList<>(), new ArrayList<>());
+
+        stripe.evictIdle(Long.MAX_VALUE);
+
+        assertEquals(1, stripe.loadPersisted(USER, CONVERSATION, 0));
+    }
+
+    @Test
+    void persistedLoadAddsUnpersistedIncrements() {
+        stripe.increment(USER, CONVERSATION, 11L);
+        stripe.increment(USER, CONVERSATION, 12L);
+
+        assertEquals(12, stripe.loadPersisted(USER, CONVERSATION, 10));
+    }
+
+    @Test
+    void loadedCounterIsNotReloaded() {
+        stripe.loadPersisted(USER, CONVERSATION, 10);
+
+        assertEquals(10, stripe.loadPersisted(USER, CONVERSATION, 99));
+        assertEquals(10, stripe.loadCounted(USER, CONVERSATION, 99, 99));
+    }
+
+    @Test
+    void failedAbsoluteWriteIsRestoredWithoutDoubleCounting() {
+        stripe.loadCounted(USER, CONVERSATION, 3, 3);
+        List<Object[]> deltas = new ArrayList<>();
+        List<Object[]> absolutes = new ArrayList<>();
+        stripe.drain(deltas, absolutes);
+
+        stripe.increment(USER, CONVERSATION, 4L);
+        stripe.restore(USER, CONVERSATION, 3, true);
+
+        assertEquals(4L, stripe.get(USER, CONVERSATION));
+        List<Object[]> retriedDeltas = new ArrayList<>();
+        List<Object[]> retriedAbsolutes = new ArrayList<>();
+        stripe.drain(retriedDeltas, retriedAbsolutes);
+        assertTrue(retriedDeltas.isEmpty());
+        assertArrayEquals(new Object[]{USER, CONVERSATION, 4L}, retriedAbsolutes.get(0));
+    }
+
+    @Test
+    void resetSupersedesFailedWrite() {
+        stripe.loadPersisted(USER, CONVERSATION, 0);
+        stripe.increment(USER, CONVERSATION, 1L);
+        List<Object[]> deltas = new ArrayList<>();
+        stripe.drain(deltas, new ArrayList<>());
+
+        stripe.reset(USER, CONVERSATION);
+        stripe.restore(USER, CONVERSATION, 1, false);
+
+        List<Object[]> absolutes = new ArrayList<>();
+        stripe.drain(new ArrayList<>(), absolutes);
+        assertArrayEquals(new Object[]{USER, CONVERSATION, 0L}, absolutes.get(0));
+    }
+
+    @Test
+    void idleUserIsKeptUntilItsChangesAreWritten() {
+        stripe.loadPersisted(USER, CONVERSATION, 0);
+        stripe.increment(USER, CONVERSATION, 1L);
+
+        stripe.evictIdle(Long.MAX_VALUE);
+        assertEquals(1L, stripe.get(USER, CONVERSATION));
+
+        stripe.drain(new ArrayList<>(), new ArrayList<>());
+        stripe.evictIdle(Long.MAX_VALUE);
+        assertNull(stripe.get(USER, CONVERSATION));
+    }
+
+    @Test
+    void recentlyUsedUserIsNotEvicted() {
+        stripe.loadPersisted(USER, CONVERSATION, 2);
+
+        stripe.evictIdle(System.currentTimeMillis() - 60_000);
+
+        assertEquals(2L, stripe.get(USER, CONVERSATION));
+    }
+}
@@ -29,6 +29,11 @@ export interface ChatMessage {
    */
   conversationId: string | number;
 
+  /**
+   * Position of the message within its conversation, assigned by the server (gap-free, starting at 1)
+   */
+  seq?: number;
+
   /**
    * The actual message content
    */
@@ -7,4 +7,8 @@ export interface MessageStatusUpdate {
     status: 'PENDING' | 'SENT' | 'DELIVERED' | 'READ' | 'FAILED';
     deliveredAt?: Date;
     readAt?: Date;
+    // Read-watermark updates: every message up to this ID not sent by the reader is read
+    upToMessageId?: string | number;
+    upToSeq?: number;
+    readerId?: string | number;
   }
\ No newline at end of file
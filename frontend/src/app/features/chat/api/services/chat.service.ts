@@ -198,6 +198,16 @@ export class ChatService implements OnDestroy {
       })
     );
 
+    // Subscribe to messages delivered by offline sync (not throttled: a batch must not lose messages)
+    this.subscriptions.add(
+      this.websocketService.syncedMessages$.subscribe(messages => {
+        this.ngZone.run(() => {
+          console.log(`ChatService: Received ${messages.length} synchronized messages`);
+          messages.forEach(message => this.handleNewMessage(message));
+        });
+      })
+    );
+
     // Subscribe to typing status updates
     this.subscriptions.add(
       this.websocketService.typingStatus$.subscribe(typingUpdate => {
@@ -419,8 +429,16 @@ export class ChatService implements OnDestroy {
     // Case 1: If it's a broadcast update, update all messages in the conversation
     if (isBroadcastUpdate) {
       updatedMessages = currentMessages.map(message => {
+        // Read-watermark updates only cover messages up to the watermark not sent by the reader;
+        // the sequence number is authoritative when both sides have one
+        const withinWatermark = statusUpdate.upToSeq !== undefined && message.seq !== undefined
+          ? message.seq <= statusUpdate.upToSeq
+          : Number(message.id) <= Number(statusUpdate.upToMessageId);
+        const coveredByWatermark = statusUpdate.upToMessageId === undefined ||
+          (withinWatermark && String(message.senderId) !== String(statusUpdate.readerId));
+
         // Only update messages in the same conversation with lower status
-        if (message.conversationId === statusUpdate.conversationId &&
+        if (message.conversationId === statusUpdate.conversationId && coveredByWatermark &&
             !this.hasHigherStatus(message.status, statusUpdate.status)) {
 
           hasStatusChanged = true;
@@ -7,6 +7,10 @@ import { environment } from '../../../../../environments/environment';
 import { ChatMessage, MessageStatusUpdate, UserStatusUpdate } from '../models';
 import { v4 as uuidv4 } from 'uuid';
 
+// Compact frames: JSON without null/default fields and with epoch-millis timestamps, negotiated at CONNECT
+const COMPACT_CONTENT_TYPE = 'application/vnd.chat.compact+json';
+const COMPACT_TIMESTAMP_FIELDS = new Set(['sentAt', 'deliveredAt', 'readAt', 'lastActive']);
+
 /**
  * Service for handling WebSocket connections for real-time chat functionality.
  * This service manages the WebSocket connection and subscriptions.
@@ -24,13 +28,14 @@ export class ChatWebsocketService implements OnDestroy {
   private typingStatusSubject = new Subject<{conversationId: string | number, username: string, isTyping: boolean}>();
   private userStatusSubject = new Subject<UserStatusUpdate>();
   private syncCompleteSubject = new Subject<{syncedCount: number, timestamp: number}>();
+  private syncedMessagesSubject = new Subject<ChatMessage[]>();
 
   // Reconnection properties
   private reconnecting = false;
   private reconnectAttempts = 0;
   private maxReconnectAttempts = 10;
   private reconnectSubscription?: Subscription;
-  private clientId = uuidv4(); // Unique client ID for this session
+  private clientId = this.loadClientId(); // Stable client ID of this device, keys its server-side sync position
   private lastSyncTimestamp = 0; // Last successful sync timestamp
   private pendingMessages: Map<string, {message: ChatMessage, attempts: number}> = new Map(); // Messages waiting to be sent
 
@@ -39,6 +44,7 @@ export class ChatWebsocketService implements OnDestroy {
   public messageStatus$ = this.messageStatusSubject.asObservable();
   public typingStatus$ = this.typingStatusSubject.asObservable();
   public userStatus$ = this.userStatusSubject.asObservable();
+  public syncedMessages$ = this.syncedMessagesSubject.asObservable();
 
   constructor(private ngZone: NgZone) {}
 
@@ -56,7 +62,8 @@ export class ChatWebsocketService implements OnDestroy {
         return sockjs;
       },
       connectHeaders: {
-        Authorization: `Bearer ${token}`
+        Authorization: `Bearer ${token}`,
+        'accept-content-type': `${COMPACT_CONTENT_TYPE}, application/json`
       },
       debug: function(str) {
         if (environment.production === false) {
@@ -153,7 +160,7 @@ export class ChatWebsocketService implements OnDestroy {
     const subscription = this.stompClient.subscribe(destination, (message: IMessage) => {
       try {
         if (message && message.body) {
-          const chatMessage = JSON.parse(message.body) as ChatMessage;
+          const chatMessage = this.parseFrame(message) as ChatMessage;
           if (chatMessage) {
             this.messageReceivedSubject.next(chatMessage);
           } else {
@@ -197,7 +204,7 @@ export class ChatWebsocketService implements OnDestroy {
     const subscription = this.stompClient.subscribe(destination, (message: IMessage) => {
       try {
         if (message && message.body) {
-          const typingData = JSON.parse(message.body);
+          const typingData = this.parseFrame(message);
           console.log('Received typing data:', typingData);
 
           // The backend uses isTyping property (Java boolean getter/setter naming convention)
@@ -251,7 +258,7 @@ export class ChatWebsocketService implements OnDestroy {
     const subscription = this.stompClient.subscribe(destination, (message: IMessage) => {
       try {
         if (message && message.body) {
-          const statusData = JSON.parse(message.body);
+          const statusData = this.parseFrame(message);
           if (statusData && statusData.status) {
             // Validate the status value
             let status = statusData.status;
@@ -260,17 +267,27 @@ export class ChatWebsocketService implements OnDestroy {
               status = 'SENT';
             }
 
-            // Push status update to subscribers
-            const statusUpdate: MessageStatusUpdate = {
-              messageId: statusData.id || 0,
-              conversationId: conversationId,
-              status: status as 'PENDING' | 'SENT' | 'DELIVERED' | 'READ' | 'FAILED',
-              deliveredAt: statusData.deliveredAt ? new Date(statusData.deliveredAt) : undefined,
-              readAt: statusData.readAt ? new Date(statusData.readAt) : undefined
-            };
-            this.messageStatusSubject.next(statusUpdate);
-
-            console.log(`Received status update for message ${statusData.id}: ${status}`);
+            // Aggregated frames list several message IDs; older frames carry a single id
+            const messageIds: (string | number)[] = Array.isArray(statusData.messageIds) && statusData.messageIds.length > 0
+              ? statusData.messageIds
+              : [statusData.id || 0];
+
+            // Push one status update per message to subscribers
+            for (const messageId of messageIds) {
+              const statusUpdate: MessageStatusUpdate = {
+                messageId: messageId,
+                conversationId: conversationId,
+                status: status as 'PENDING' | 'SENT' | 'DELIVERED' | 'READ' | 'FAILED',
+                deliveredAt: statusData.deliveredAt ? new Date(statusData.deliveredAt) : undefined,
+                readAt: statusData.readAt ? new Date(statusData.readAt) : undefined,
+                upToMessageId: statusData.upToMessageId ?? undefined,
+                upToSeq: statusData.upToSeq ?? undefined,
+                readerId: statusData.readerId ?? undefined
+              };
+              this.messageStatusSubject.next(statusUpdate);
+            }
+
+            console.log(`Received status update for ${messageIds.length} message(s): ${status}`);
           } else {
             console.warn('Received invalid message status data');
           }
@@ -420,45 +437,49 @@ export class ChatWebsocketService implements OnDestroy {
   }
 
   /**
-   * Subscribe to global user status updates
+   * Subscribe to status updates of the current user's contacts.
+   * The server sends periodic delta frames: an array of status changes.
    */
   public subscribeToUserStatus(): void {
     if (!this.stompClient || !this.stompClient.connected) {
       return;
     }
 
-    const destination = `/topic/user.status`;
+    const destination = `/user/queue/presence`;
 
     // Check if already subscribed
     if (this.subscriptions.has(destination)) {
       return;
     }
 
-    // Subscribe to the user status topic
+    // Subscribe to the presence delta queue
     const subscription = this.stompClient.subscribe(destination, (message: IMessage) => {
       try {
         if (message && message.body) {
-          const statusData = JSON.parse(message.body);
-          if (statusData && statusData.userId && statusData.status) {
-            // Parse lastActive timestamp if available
-            let lastActive = null;
-            if (statusData.lastActive) {
-              try {
-                lastActive = new Date(statusData.lastActive);
-                console.log(`Received lastActive timestamp: ${lastActive} for user ${statusData.userId}`);
-              } catch (e) {
-                console.warn(`Failed to parse lastActive timestamp: ${statusData.lastActive}`, e);
+          const parsed = this.parseFrame(message);
+          const changes = Array.isArray(parsed) ? parsed : [parsed];
+          for (const statusData of changes) {
+            if (statusData && statusData.userId && statusData.status) {
+              // Parse lastActive timestamp if available
+              let lastActive = null;
+              if (statusData.lastActive) {
+                try {
+                  lastActive = new Date(statusData.lastActive);
+                  console.log(`Received lastActive timestamp: ${lastActive} for user ${statusData.userId}`);
+                } catch (e) {
+                  console.warn(`Failed to parse lastActive timestamp: ${statusData.lastActive}`, e);
+                }
               }
-            }
 
-            this.userStatusSubject.next({
-              userId: statusData.userId,
-              username: statusData.username || '',
-              status: statusData.status,
-              lastActive: lastActive
-            });
-          } else {
-            console.warn('Received invalid user status data');
+              this.userStatusSubject.next({
+                userId: statusData.userId,
+                username: statusData.username || '',
+                status: statusData.status,
+                lastActive: lastActive
+              });
+            } else {
+              console.warn('Received invalid user status data');
+            }
           }
         } else {
           console.warn('Received empty user status update');
@@ -607,7 +628,9 @@ export class ChatWebsocketService implements OnDestroy {
   }
 
   /**
-   * Subscribe to the sync topic for this user
+   * Subscribe to the sync queue for this user.
+   * The server answers a sync request with batches of missed messages; a batch with status
+   * 'more' means this client should continue with the batch's cursor.
    */
   private subscribeToSyncTopic(): void {
     if (!this.stompClient || !this.stompClient.connected) {
@@ -615,8 +638,8 @@ export class ChatWebsocketService implements OnDestroy {
       return;
     }
 
-    // Subscribe to the user's sync topic
-    const destination = '/queue/user.sync';
+    // Subscribe to the user's sync queue
+    const destination = '/user/queue/sync';
 
     if (this.subscriptions.has(destination)) {
       console.log('Already subscribed to sync topic');
@@ -626,8 +649,19 @@ export class ChatWebsocketService implements OnDestroy {
     const subscription = this.stompClient.subscribe(destination, (message: IMessage) => {
       try {
         if (message && message.body) {
-          const syncData = JSON.parse(message.body);
-          if (syncData && syncData.status === 'complete') {
+          const syncData = this.parseFrame(message);
+          if (!syncData || (syncData.clientId && syncData.clientId !== this.clientId)) {
+            return;
+          }
+
+          if (syncData.messages && syncData.messages.length > 0) {
+            this.syncedMessagesSubject.next(syncData.messages as ChatMessage[]);
+          }
+
+          if (syncData.status === 'more') {
+            // Ask for the next batches where this request stopped
+            this.synchronizeMessages(syncData.cursor);
+          } else if (syncData.status === 'complete') {
             console.log(`Sync complete: ${syncData.syncedCount} messages synchronized`);
 
             // Update last sync timestamp
@@ -652,8 +686,9 @@ export class ChatWebsocketService implements OnDestroy {
 
   /**
    * Synchronize messages with the server
+   * @param cursor Cursor of the last batch received, to continue a sync
    */
-  private synchronizeMessages(): void {
+  private synchronizeMessages(cursor?: string): void {
     if (!this.stompClient || !this.stompClient.connected) {
       console.warn('WebSocket not connected, cannot synchronize messages');
       return;
@@ -666,11 +701,57 @@ export class ChatWebsocketService implements OnDestroy {
       destination: '/app/chat.sync',
       body: JSON.stringify({
         lastSyncTimestamp: this.lastSyncTimestamp,
-        clientId: this.clientId
+        clientId: this.clientId,
+        cursor: cursor
       })
     });
   }
 
+  /**
+   * Load this device's client ID, creating and storing one on first use
+   */
+  private loadClientId(): string {
+    try {
+      const stored = localStorage.getItem('chat_client_id');
+      if (stored) {
+        return stored;
+      }
+      const clientId = uuidv4();
+      localStorage.setItem('chat_client_id', clientId);
+      return clientId;
+    } catch (e) {
+      // Storage unavailable (e.g. private mode); fall back to a per-session ID
+      return uuidv4();
+    }
+  }
+
+  /**
+   * Parse the body of a frame. Compact frames get their epoch-millis timestamps back as ISO strings,
+   * the form JSON frames carry; fields they omit read as undefined, which handlers treat as the default.
+   * @param message The received STOMP frame
+   * @returns The parsed payload
+   */
+  private parseFrame(message: IMessage): any {
+    const payload = JSON.parse(message.body);
+    const contentType = message.headers['content-type'] || '';
+    return contentType.startsWith(COMPACT_CONTENT_TYPE) ? this.expandCompactTimestamps(payload) : payload;
+  }
+
+  private expandCompactTimestamps(value: any): any {
+    if (Array.isArray(value)) {
+      value.forEach(item => this.expandCompactTimestamps(item));
+    } else if (value && typeof value === 'object') {
+      for (const key of Object.keys(value)) {
+        if (COMPACT_TIMESTAMP_FIELDS.has(key) && typeof value[key] === 'number') {
+          value[key] = new Date(value[key]).toISOString();
+        } else if (typeof value[key] === 'object') {
+          this.expandCompactTimestamps(value[key]);
+        }
+      }
+    }
+    return value;
+  }
+
   /**
    * Get sync complete notifications
    * @returns An observable of sync complete events